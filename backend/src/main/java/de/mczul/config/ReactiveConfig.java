@@ -0,0 +1,88 @@
+package de.mczul.config;
+
+import de.mczul.config.web.ReactiveQueryHandler;
+import de.mczul.config.web.RestConstants;
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.reactive.ServletHttpHandlerAdapter;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+/**
+ * Read API on the reactive stack next to the servlet stack. Its functional endpoints are served by the servlet
+ * container with non-blocking I/O below {@link RestConstants#PATH_PREFIX_REACTIVE_API} and read through R2DBC, so
+ * requests do not hold a servlet thread while they wait for the database. Writes remain with the servlet stack.
+ * Requires an H2 database and is therefore switched off unless de.mczul.config.reactive.enabled=true.
+ */
+@ConditionalOnProperty(prefix = "de.mczul.config.reactive", name = "enabled", havingValue = "true")
+@Configuration
+public class ReactiveConfig {
+    private static final String H2_URL_PREFIX = "jdbc:h2:";
+
+    /**
+     * Connects to the database of the servlet stack, which is embedded into this process. The connection factory is no
+     * bean, since the JDBC data source is not auto-configured as soon as there is one.
+     */
+    private static ConnectionFactory connectionFactory(DataSourceProperties properties) {
+        final String url = properties.determineUrl();
+        if (url == null || !url.startsWith(H2_URL_PREFIX)) {
+            throw new IllegalStateException("The reactive read API requires an H2 database, but the data source URL is " + url
+                    + "; remove de.mczul.config.reactive.enabled=true");
+        }
+        H2ConnectionConfiguration.Builder configuration = H2ConnectionConfiguration.builder()
+                .url(url.substring(H2_URL_PREFIX.length()))
+                .username(properties.determineUsername());
+        if (properties.determinePassword() != null) {
+            configuration.password(properties.determinePassword());
+        }
+        return new H2ConnectionFactory(configuration.build());
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(DataSourceProperties properties) {
+        return DatabaseClient.create(connectionFactory(properties));
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> reactiveQueryRoutes(ReactiveQueryHandler handler) {
+        // Valid config keys never start with an underscore, hence the first routes cannot collide with key queries
+        return RouterFunctions.route()
+                .GET("/" + RestConstants.PATH_CHANGES, handler::streamChanges)
+                .POST("/" + RestConstants.PATH_BULK_QUERY, handler::queryByKeys)
+                .GET("/{" + RestConstants.PATH_VARIABLE_KEY + "}", handler::queryByKey)
+                .build();
+    }
+
+    /**
+     * Maps the routes next to the dispatcher servlet; JSON is written by the codecs of the application's object mapper,
+     * hence in the same format as responses of the servlet stack.
+     */
+    @Bean
+    public ServletRegistrationBean<ServletHttpHandlerAdapter> reactiveServlet(
+            RouterFunction<ServerResponse> reactiveQueryRoutes,
+            ObjectProvider<CodecCustomizer> codecCustomizers
+    ) {
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(configurer -> codecCustomizers.orderedStream().forEach(customizer -> customizer.customize(configurer)))
+                .build();
+        ServletRegistrationBean<ServletHttpHandlerAdapter> registration = new ServletRegistrationBean<>(
+                new ServletHttpHandlerAdapter(RouterFunctions.toHttpHandler(reactiveQueryRoutes, strategies)),
+                RestConstants.PATH_PREFIX_REACTIVE_API + "/*"
+        );
+        registration.setName("reactive");
+        registration.setAsyncSupported(true);
+        return registration;
+    }
+
+}
@@ -2,8 +2,10 @@ package de.mczul.config;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 
-@SpringBootApplication
+// The data source is not auto-configured in the presence of an R2DBC connection factory; see ReactiveConfig
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 public class ScheduledConfigApplication {
 
     public static void main(String[] args) {
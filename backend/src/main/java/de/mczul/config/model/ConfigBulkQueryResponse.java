@@ -0,0 +1,17 @@
+package de.mczul.config.model;
+
+import lombok.*;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@With
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConfigBulkQueryResponse {
+    private ZonedDateTime referenceTime;
+    @Singular
+    private List<ConfigQueryResponse> values;
+}
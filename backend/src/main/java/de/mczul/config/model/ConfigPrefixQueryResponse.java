@@ -0,0 +1,22 @@
+package de.mczul.config.model;
+
+import lombok.*;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@With
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConfigPrefixQueryResponse {
+    private ZonedDateTime referenceTime;
+    private String prefix;
+    @Singular
+    private List<ConfigQueryResponse> values;
+    /**
+     * Continuation token for the next page or null if there are no more values
+     */
+    private String nextCursor;
+}
@@ -0,0 +1,32 @@
+package de.mczul.config.model;
+
+import de.mczul.config.AppConstants;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Unmanaged projection of the fields of an entry that are required to answer value queries
+ */
+@Value
+@AllArgsConstructor
+public class ConfigValue {
+    /**
+     * Normalized configuration key
+     */
+    String key;
+    String value;
+    ZonedDateTime validFrom;
+
+    /**
+     * Query constructor for rows that either reference shared content or store their value inline
+     */
+    public ConfigValue(String key, String content, String legacyValue, ZonedDateTime validFrom) {
+        this(key, content == null ? legacyValue : content, validFrom);
+    }
+
+    public static ConfigValue of(ScheduledConfigEntry entry) {
+        return new ConfigValue(entry.getKey().toLowerCase(AppConstants.DEFAULT_LOCALE), entry.getValue(), entry.getValidFrom());
+    }
+}
@@ -0,0 +1,51 @@
+package de.mczul.config.model;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.ZonedDateTime;
+
+/**
+ * Materialized entry that is effective right now for a single normalized key. Rows are maintained by
+ * {@link de.mczul.config.service.CurrentValueStore}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "current_value", schema = ScheduledConfigEntry.SCHEMA_NAME)
+public class CurrentValue {
+
+    @Id
+    @Column(name = "key")
+    private String key;
+
+    @Column(name = "entry_id")
+    private Integer entryId;
+
+    @ManyToOne
+    @JoinColumn(name = "value_hash")
+    private ValueContent content;
+
+    /**
+     * Copy of {@link ScheduledConfigEntry#getLegacyValue()}
+     */
+    @Convert(converter = ValueCompressionConverter.class)
+    @Column(name = "value")
+    private String legacyValue;
+
+    @Column(name = "valid_from")
+    private ZonedDateTime validFrom;
+
+    /**
+     * Valid from timestamp of the next scheduled entry of the key or null if there is none
+     */
+    @Column(name = "valid_until")
+    private ZonedDateTime validUntil;
+
+    public String getValue() {
+        return content == null ? legacyValue : content.getValue();
+    }
+
+}
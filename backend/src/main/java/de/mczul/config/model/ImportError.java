@@ -0,0 +1,19 @@
+package de.mczul.config.model;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+@With
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportError {
+    /**
+     * One based line number within the imported document
+     */
+    private int line;
+    @Singular
+    private List<Violation> violations;
+}
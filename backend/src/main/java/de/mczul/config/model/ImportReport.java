@@ -0,0 +1,30 @@
+package de.mczul.config.model;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+@With
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportReport {
+    /**
+     * Number of non blank lines that have been read
+     */
+    private int lines;
+    private int imported;
+    private int failed;
+    private long durationMillis;
+    private double entriesPerSecond;
+    /**
+     * Errors of failed lines in ascending order of their line numbers; limited to the errors detected first
+     */
+    @Singular
+    private List<ImportError> errors;
+    /**
+     * True if more lines have failed than errors are reported
+     */
+    private boolean errorsTruncated;
+}
@@ -1,9 +1,14 @@
 package de.mczul.config.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import de.mczul.config.AppConstants;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 
 @Data
 @Builder
@@ -11,13 +16,18 @@ import java.time.ZonedDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Cacheable
+// Rows are never updated by the application, the cached state is just evicted in case of a rare update
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 @Table(name = "scheduled_config", schema = ScheduledConfigEntry.SCHEMA_NAME)
 public class ScheduledConfigEntry implements ScheduledConfig {
     public static final String SEQ_NAME = "seq_scheduled_config";
     public static final String SCHEMA_NAME = "config";
+    // Has to match the increment of the database sequence, since every sequence value reserves a block of ids
+    public static final int SEQ_ALLOCATION_SIZE = 50;
 
     @Id
-    @SequenceGenerator(name = SEQ_NAME, schema = SCHEMA_NAME)
+    @SequenceGenerator(name = SEQ_NAME, sequenceName = SEQ_NAME, schema = SCHEMA_NAME, allocationSize = SEQ_ALLOCATION_SIZE)
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = SEQ_NAME)
     @Column(name = "id")
     private Integer id;
@@ -25,12 +35,43 @@ public class ScheduledConfigEntry implements ScheduledConfig {
     @Column(name = "key")
     private String key;
 
+    /**
+     * Lower case copy of {@link #key} that is maintained on every write and backs all case insensitive key lookups
+     */
+    @Setter(AccessLevel.NONE)
+    @Column(name = "normalized_key")
+    private String normalizedKey;
+
     @Column(name = "valid_from")
     private ZonedDateTime validFrom;
 
-    @Column(name = "value")
+    /**
+     * Resolved from {@link #content} on load or, for rows that have not been migrated yet, from {@link #legacyValue}
+     */
+    @Transient
     private String value;
 
+    /**
+     * Shared by all entries with the same value; null for null values and for values stored inline. Fetched along with
+     * the entries by all list queries of {@link de.mczul.config.service.ScheduledConfigRepository}, remaining contents
+     * are loaded in batches.
+     */
+    @JsonIgnore
+    @ToString.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "value_hash")
+    private ValueContent content;
+
+    /**
+     * Value stored inline, which applies to rows written before values were deduplicated and to entries saved without
+     * {@link de.mczul.config.service.ValueContentStore}; moved to {@link #content} by
+     * {@link de.mczul.config.service.ValueContentMigration}
+     */
+    @JsonIgnore
+    @Convert(converter = ValueCompressionConverter.class)
+    @Column(name = "value")
+    private String legacyValue;
+
     @Column(name = "created")
     private ZonedDateTime created;
 
@@ -40,6 +81,25 @@ public class ScheduledConfigEntry implements ScheduledConfig {
     @Column(name = "author")
     private String author;
 
+    @PrePersist
+    @PreUpdate
+    void prepareWrite() {
+        normalizedKey = key == null ? null : key.toLowerCase(AppConstants.DEFAULT_LOCALE);
+        // Timestamp columns keep microseconds, so saved entries match loaded ones on clocks with nanosecond precision
+        validFrom = validFrom == null ? null : validFrom.truncatedTo(ChronoUnit.MICROS);
+        created = created == null ? null : created.truncatedTo(ChronoUnit.MICROS);
+        // Content copied along with other fields does not necessarily match the value
+        if (content != null && !content.getHash().equals(ValueContent.hash(value))) {
+            content = null;
+        }
+        legacyValue = content == null ? value : null;
+    }
+
+    @PostLoad
+    void resolveValue() {
+        value = content == null ? legacyValue : content.getValue();
+    }
+
     @Override
     public boolean equals(Object other) {
         return isEqual(other);
@@ -0,0 +1,19 @@
+package de.mczul.config.model;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+@With
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduledConfigSliceResponse {
+    @Singular
+    private List<ScheduledConfigDto> entries;
+    /**
+     * Continuation token for the next slice or null if there are no more entries
+     */
+    private String nextCursor;
+}
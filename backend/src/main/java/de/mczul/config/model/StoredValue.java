@@ -0,0 +1,109 @@
+package de.mczul.config.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Representation of a configuration value in the value columns. Values that reach the compression threshold are
+ * stored gzip compressed and Base64 encoded behind a format marker; all others are stored as they are, hence rows
+ * written before compression had been introduced remain valid. Plain values that start with the marker character are
+ * escaped, so they are never mistaken for compressed ones.
+ */
+@Value
+@AllArgsConstructor
+public class StoredValue {
+    private static final char MARKER = '\u0001';
+    private static final String GZIP_PREFIX = MARKER + "gzip:";
+    private static final String PLAIN_PREFIX = MARKER + "plain:";
+
+    /**
+     * Content of the value column; null for null values
+     */
+    String representation;
+    /**
+     * Hash of the shared {@link ValueContent} or null if the value is stored inline
+     */
+    String hash;
+
+    public StoredValue(String representation) {
+        this(representation, null);
+    }
+
+    /**
+     * @param value     Configuration value or null
+     * @param threshold Minimum number of characters for a value to be compressed
+     */
+    public static StoredValue encode(String value, int threshold) {
+        if (value == null) {
+            return new StoredValue(null);
+        }
+        if (value.length() >= threshold) {
+            String compressed = GZIP_PREFIX + Base64.getEncoder().encodeToString(compress(value));
+            // Random data does not shrink, not even by the Base64 overhead
+            if (compressed.length() < value.length()) {
+                return new StoredValue(compressed);
+            }
+        }
+        if (!value.isEmpty() && value.charAt(0) == MARKER) {
+            return new StoredValue(PLAIN_PREFIX + value);
+        }
+        return new StoredValue(value);
+    }
+
+    public boolean isCompressed() {
+        return representation != null && representation.startsWith(GZIP_PREFIX);
+    }
+
+    /**
+     * @return Value as gzip stream of its UTF-8 bytes; only available for {@link #isCompressed() compressed} values
+     */
+    public byte[] getCompressed() {
+        if (!isCompressed()) {
+            throw new IllegalStateException("Value is not compressed");
+        }
+        return Base64.getDecoder().decode(representation.substring(GZIP_PREFIX.length()));
+    }
+
+    /**
+     * @return Configuration value or null
+     */
+    public String decode() {
+        if (isCompressed()) {
+            return decompress(getCompressed());
+        }
+        if (representation != null && representation.startsWith(PLAIN_PREFIX)) {
+            return representation.substring(PLAIN_PREFIX.length());
+        }
+        // Includes values with a leading marker character that have been written before escaping was introduced
+        return representation;
+    }
+
+    private static byte[] compress(String value) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (OutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(value.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static String decompress(byte[] compressed) {
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Stored value is not a valid gzip stream", e);
+        }
+    }
+}
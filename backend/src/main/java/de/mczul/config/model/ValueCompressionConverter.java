@@ -0,0 +1,34 @@
+package de.mczul.config.model;
+
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * Compresses large configuration values on write and decompresses them on read; see {@link StoredValue}. Instances
+ * are created by Hibernate through the Spring bean container, so the threshold is configurable.
+ */
+@Converter
+public class ValueCompressionConverter implements AttributeConverter<String, String> {
+    public static final int DEFAULT_THRESHOLD = 4_096;
+
+    // Must not be passed to a constructor, since Spring would then resolve it while the entity manager factory is
+    // bootstrapped in the background and block on the singleton lock of the main thread
+    private int threshold = DEFAULT_THRESHOLD;
+
+    @Value("${de.mczul.config.compression.threshold:" + DEFAULT_THRESHOLD + "}")
+    public void setThreshold(int threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public String convertToDatabaseColumn(String value) {
+        return StoredValue.encode(value, threshold).getRepresentation();
+    }
+
+    @Override
+    public String convertToEntityAttribute(String representation) {
+        return new StoredValue(representation).decode();
+    }
+}
@@ -0,0 +1,47 @@
+package de.mczul.config.model;
+
+import com.google.common.hash.Hashing;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Configuration value that is stored once and shared by all entries with the same value. Rows are identified by the
+ * hash of their value, hence they never change; they are written by {@link de.mczul.config.service.ValueContentStore}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Immutable
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
+// Contents of entries loaded without fetching them, e.g. by id, are initialized with one query per batch
+@BatchSize(size = ValueContent.FETCH_BATCH_SIZE)
+@Table(name = "value_content", schema = ScheduledConfigEntry.SCHEMA_NAME)
+public class ValueContent {
+    public static final int FETCH_BATCH_SIZE = 100;
+
+    @Id
+    @Column(name = "hash")
+    private String hash;
+
+    @Convert(converter = ValueCompressionConverter.class)
+    @Column(name = "value")
+    private String value;
+
+    /**
+     * @param value Configuration value or null
+     * @return Hex encoded SHA-256 hash of the UTF-8 representation of the given value or null for null values
+     */
+    public static String hash(String value) {
+        return value == null ? null : Hashing.sha256().hashString(value, StandardCharsets.UTF_8).toString();
+    }
+}
@@ -0,0 +1,28 @@
+package de.mczul.config.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.NotNull;
+import java.nio.file.Path;
+
+@Data
+@Validated
+@Component
+@ConfigurationProperties(prefix = "de.mczul.config.archive")
+public class ArchiveProperties {
+    /**
+     * Directory of the segment files; created on the first archived entry. Has to be shared by all nodes that share the
+     * database, since entries are archived by whichever node runs the cleanup job
+     */
+    @NotNull
+    private Path directory = Path.of("archive");
+    /**
+     * Size after which a new segment is started
+     */
+    @NotNull
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+}
@@ -0,0 +1,75 @@
+package de.mczul.config.service;
+
+import de.mczul.config.model.ScheduledConfigEntry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Publishes hits, misses and the hit ratio of every second-level cache region. The Hibernate metrics of Micrometer
+ * only report totals of all regions, which hides whether entries or query results are served from the cache.
+ */
+@Component
+public class CacheRegionMetrics implements MeterBinder {
+    static final String METRIC_REQUESTS = "config.cache.region.requests";
+    static final String METRIC_PUTS = "config.cache.region.puts";
+    static final String METRIC_HIT_RATIO = "config.cache.region.hit.ratio";
+    static final String TAG_REGION = "region";
+
+    private final Statistics statistics;
+
+    public CacheRegionMetrics(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // Query regions are created on first use, hence their statistics are looked up on every poll
+        Map<String, Function<Statistics, CacheRegionStatistics>> regions = Map.of(
+                ScheduledConfigEntry.class.getName(), stats -> stats.getDomainDataRegionStatistics(ScheduledConfigEntry.class.getName()),
+                ScheduledConfigRepository.HISTORY_CACHE_REGION, stats -> stats.getQueryRegionStatistics(ScheduledConfigRepository.HISTORY_CACHE_REGION),
+                ScheduledConfigRepository.LATEST_CACHE_REGION, stats -> stats.getQueryRegionStatistics(ScheduledConfigRepository.LATEST_CACHE_REGION)
+        );
+        regions.forEach((region, lookup) -> {
+            FunctionCounter.builder(METRIC_REQUESTS, statistics, stats -> count(lookup.apply(stats), CacheRegionStatistics::getHitCount))
+                    .description("Lookups of the region that have been answered from the cache")
+                    .tags(TAG_REGION, region, "result", "hit")
+                    .register(registry);
+            FunctionCounter.builder(METRIC_REQUESTS, statistics, stats -> count(lookup.apply(stats), CacheRegionStatistics::getMissCount))
+                    .description("Lookups of the region that have been answered from the database")
+                    .tags(TAG_REGION, region, "result", "miss")
+                    .register(registry);
+            FunctionCounter.builder(METRIC_PUTS, statistics, stats -> count(lookup.apply(stats), CacheRegionStatistics::getPutCount))
+                    .description("Entries put into the region")
+                    .tags(TAG_REGION, region)
+                    .register(registry);
+            Gauge.builder(METRIC_HIT_RATIO, statistics, stats -> hitRatio(lookup.apply(stats)))
+                    .description("Share of lookups of the region that have been answered from the cache")
+                    .tags(TAG_REGION, region)
+                    .register(registry);
+        });
+    }
+
+    private static double count(CacheRegionStatistics region, ToLongFunction<CacheRegionStatistics> counter) {
+        return region == null ? 0 : counter.applyAsLong(region);
+    }
+
+    private static double hitRatio(CacheRegionStatistics region) {
+        if (region == null) {
+            return 0;
+        }
+        long requests = region.getHitCount() + region.getMissCount();
+        return requests == 0 ? 0 : (double) region.getHitCount() / requests;
+    }
+
+}
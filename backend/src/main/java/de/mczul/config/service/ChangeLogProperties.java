@@ -0,0 +1,42 @@
+package de.mczul.config.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import java.time.Duration;
+
+/**
+ * Settings of the {@link ConfigChangeLog}; the poll interval is read by the scheduler directly.
+ */
+@Data
+@Validated
+@Component
+@ConfigurationProperties(prefix = "de.mczul.config.change-log")
+public class ChangeLogProperties {
+    /**
+     * Delay in milliseconds between polls of the change log
+     */
+    @Positive
+    private long pollInterval = 200;
+    /**
+     * Maximum number of changes that are read per poll
+     */
+    @Positive
+    private int batchSize = 1_000;
+    /**
+     * Time a missing revision is looked up before it is considered to belong to a rolled back transaction; has to
+     * exceed the duration of write transactions
+     */
+    @NotNull
+    private Duration gapTimeout = Duration.ofSeconds(10);
+    /**
+     * Changes are deleted by the cleanup job once they are older than this period, which has to exceed the time any
+     * node may fall behind
+     */
+    @NotNull
+    private Duration retention = Duration.ofHours(1);
+}
@@ -0,0 +1,227 @@
+package de.mczul.config.service;
+
+import com.google.common.collect.Lists;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Propagates writes to the in-process caches of all nodes that share the database. Every transaction that changes
+ * entries appends the affected keys to the config.change_log table, whose revisions are assigned by the database in
+ * ascending order. Every node tails the table with a range query on the primary key and reports the keys that have
+ * been changed by other nodes, so only those are invalidated.
+ * <p>
+ * Revisions are assigned on insert but become visible on commit, hence a revision may show up after greater ones.
+ * Skipped revisions are looked up again on every poll until they show up or de.mczul.config.change-log.gap-timeout has
+ * passed, which is the case for revisions of transactions that have been rolled back. The same applies to revisions
+ * below the latest one on start, which may still be committed by transactions that have been running since before.
+ * <p>
+ * Rows are written with plain JDBC, since Hibernate would invalidate its query cache on every native statement.
+ */
+@Slf4j
+@Component
+public class ConfigChangeLog {
+    static final String METRIC_RECEIVED = "config.changes.received";
+    static final String METRIC_MISSING = "config.changes.missing";
+    static final String METRIC_POLL_AGE = "config.changes.poll.age";
+    // Upper bound for the number of missing revisions that are looked up with a single query
+    static final int LOOKUP_BATCH_SIZE = 500;
+
+    private static final String INSERT = "INSERT INTO config.change_log (key, origin, changed) VALUES (?, ?, ?)";
+    private static final String SELECT_LATEST = "SELECT COALESCE(MAX(revision), 0) FROM config.change_log";
+    private static final String SELECT_SETTLED = "SELECT COALESCE(MAX(revision), 0) FROM config.change_log WHERE changed < ?";
+    private static final String SELECT_REVISIONS_AFTER = "SELECT revision FROM config.change_log WHERE revision > ?";
+    private static final String SELECT_AFTER = "SELECT revision, key, origin FROM config.change_log " +
+            "WHERE revision > ? ORDER BY revision LIMIT ?";
+    private static final String SELECT_MISSING = "SELECT revision, key, origin FROM config.change_log " +
+            "WHERE revision IN (:revisions)";
+    private static final String DELETE_BEFORE = "DELETE FROM config.change_log WHERE changed < ?";
+    private static final RowMapper<Change> CHANGE_MAPPER = (resultSet, row) -> new Change(
+            resultSet.getLong("revision"),
+            resultSet.getString("key"),
+            resultSet.getString("origin")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final SessionFactory sessionFactory;
+    private final ChangeLogProperties properties;
+    // Identifies the changes of this node, which have been applied to its caches on commit already
+    private final String origin = UUID.randomUUID().toString();
+    // Skipped revisions by the time they have been noticed
+    private final ConcurrentMap<Long, Instant> missing = new ConcurrentHashMap<>();
+    private final Counter received;
+    private long lastRevision;
+    // Caches of this node may be stale for at least the time since the last successful poll
+    private volatile long lastPollNanos = System.nanoTime();
+
+    public ConfigChangeLog(
+            JdbcTemplate jdbcTemplate,
+            EntityManagerFactory entityManagerFactory,
+            ChangeLogProperties properties,
+            MeterRegistry meterRegistry
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.properties = properties;
+        this.received = Counter.builder(METRIC_RECEIVED)
+                .description("Changed keys that have been read from the change log of other nodes")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_MISSING, missing, Map::size)
+                .description("Skipped revisions of the change log that are looked up on every poll")
+                .register(meterRegistry);
+        TimeGauge.builder(METRIC_POLL_AGE, this, TimeUnit.NANOSECONDS, changeLog -> System.nanoTime() - changeLog.lastPollNanos)
+                .description("Time since the last successful poll of the change log")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Changes that have been committed before the start are covered by the caches, which are empty by then. Revisions
+     * below the latest one that are not visible yet are looked up like skipped ones, unless they have been assigned
+     * before the gap timeout.
+     */
+    @PostConstruct
+    synchronized void start() {
+        final Instant now = Instant.now();
+        Long latest = jdbcTemplate.queryForObject(SELECT_LATEST, Long.class);
+        Long settled = jdbcTemplate.queryForObject(SELECT_SETTLED, Long.class, Timestamp.from(now.minus(properties.getGapTimeout())));
+        lastRevision = latest == null ? 0 : latest;
+        long from = settled == null ? 0 : settled;
+        Set<Long> visible = new HashSet<>(jdbcTemplate.queryForList(SELECT_REVISIONS_AFTER, Long.class, from));
+        if (from == 0 && !visible.isEmpty()) {
+            // Older changes have been pruned, so the revisions before the first remaining one are unknown
+            from = Collections.min(visible) - 1;
+        }
+        for (long revision = from + 1; revision < lastRevision; revision++) {
+            if (!visible.contains(revision)) {
+                missing.put(revision, now);
+            }
+        }
+        LOG.info("Following the change log from revision {} with {} pending revisions as {}", lastRevision, missing.size(), origin);
+    }
+
+    /**
+     * Appends one change per distinct key in a single JDBC batch; has to be called within the transaction that changes
+     * the entries of the given keys.
+     *
+     * @param keys Normalized keys whose entries have changed
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Collection<String> keys) {
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> parameters = keys.stream()
+                .distinct()
+                .map(key -> new Object[]{key, origin, now})
+                .collect(Collectors.toList());
+        if (!parameters.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT, parameters);
+        }
+    }
+
+    /**
+     * Reads the changes that have been committed since the previous poll. The query cache of Hibernate is invalidated
+     * if other nodes have changed entries, since their statements are unknown to its update timestamps.
+     *
+     * @return Normalized keys that have been changed by other nodes
+     */
+    public synchronized Set<String> poll() {
+        final Instant now = Instant.now();
+        // Both queries run before the state is updated, so failed polls are repeated as a whole
+        final List<Change> found = new ArrayList<>();
+        for (List<Long> revisions : Lists.partition(new ArrayList<>(missing.keySet()), LOOKUP_BATCH_SIZE)) {
+            found.addAll(namedJdbcTemplate.query(SELECT_MISSING, Map.of("revisions", revisions), CHANGE_MAPPER));
+        }
+        final List<Change> changes = jdbcTemplate.query(SELECT_AFTER, CHANGE_MAPPER, lastRevision, properties.getBatchSize());
+
+        final Set<String> keys = new HashSet<>();
+        for (Change change : found) {
+            missing.remove(change.revision);
+            collect(change, keys);
+        }
+        expireMissing(now);
+        for (Change change : changes) {
+            for (long revision = lastRevision + 1; revision < change.revision; revision++) {
+                missing.put(revision, now);
+            }
+            lastRevision = change.revision;
+            collect(change, keys);
+        }
+        if (!keys.isEmpty()) {
+            received.increment(keys.size());
+            sessionFactory.getCache().evictQueryRegions();
+        }
+        lastPollNanos = System.nanoTime();
+        return keys;
+    }
+
+    private void collect(Change change, Set<String> keys) {
+        if (!origin.equals(change.origin)) {
+            keys.add(change.key);
+        }
+    }
+
+    private void expireMissing(Instant now) {
+        final Instant noticedBefore = now.minus(properties.getGapTimeout());
+        missing.entrySet().removeIf(gap -> {
+            if (gap.getValue().isBefore(noticedBefore)) {
+                LOG.debug("Revision {} of the change log has not been committed within the gap timeout", gap.getKey());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Deletes changes that are older than the retention period of the change log.
+     *
+     * @return Number of deleted changes
+     */
+    @Transactional
+    public int prune() {
+        int pruned = jdbcTemplate.update(DELETE_BEFORE, Timestamp.from(Instant.now().minus(properties.getRetention())));
+        if (pruned > 0) {
+            LOG.info("Pruned {} changes from the change log", pruned);
+        }
+        return pruned;
+    }
+
+    private static final class Change {
+        private final long revision;
+        private final String key;
+        private final String origin;
+
+        private Change(long revision, String key, String origin) {
+            this.revision = revision;
+            this.key = key;
+            this.origin = origin;
+        }
+    }
+
+}
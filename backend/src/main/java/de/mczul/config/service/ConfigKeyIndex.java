@@ -0,0 +1,166 @@
+package de.mczul.config.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Radix tree of all normalized configuration keys that supports ordered prefix scans.
+ * <p>
+ * The index is populated from the database on first use and extended by
+ * {@link ScheduledConfigService#set(de.mczul.config.model.ScheduledConfigEntry)}. Scanning a prefix only visits the
+ * subtree below that prefix, hence the cost does not depend on the total number of keys.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConfigKeyIndex {
+    private final ScheduledConfigRepository entryRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node("", false);
+    private volatile boolean loaded;
+
+    /**
+     * @param key Normalized configuration key
+     */
+    public void add(String key) {
+        ensureLoaded();
+        lock.writeLock().lock();
+        try {
+            insert(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param prefix Normalized key prefix; an empty prefix matches all keys
+     * @param after  Exclusive lower bound of the returned keys or null to start with the first key
+     * @param limit  Maximum number of returned keys
+     * @return Keys starting with the given prefix in ascending order
+     */
+    public List<String> find(String prefix, String after, int limit) {
+        ensureLoaded();
+        List<String> result = new ArrayList<>(Math.min(limit, 64));
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            StringBuilder path = new StringBuilder();
+            int matched = 0;
+            while (matched < prefix.length()) {
+                Node child = node.children.get(prefix.charAt(matched));
+                if (child == null) {
+                    return result;
+                }
+                int common = commonPrefixLength(child.label, prefix, matched);
+                if (common < child.label.length() && matched + common < prefix.length()) {
+                    // Prefix diverges within the label of the child
+                    return result;
+                }
+                path.append(child.label);
+                matched += common;
+                node = child;
+            }
+            collect(node, path, after, limit, result);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                List<String> keys = entryRepository.findAllKeys();
+                keys.forEach(this::insert);
+                loaded = true;
+                LOG.info("Indexed {} configuration keys", keys.size());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void insert(String key) {
+        Node node = root;
+        int index = 0;
+        while (index < key.length()) {
+            Node child = node.children.get(key.charAt(index));
+            if (child == null) {
+                node.children.put(key.charAt(index), new Node(key.substring(index), true));
+                return;
+            }
+            int common = commonPrefixLength(child.label, key, index);
+            if (common < child.label.length()) {
+                // Split the child at the end of the common prefix
+                Node split = new Node(child.label.substring(0, common), false);
+                child.label = child.label.substring(common);
+                split.children.put(child.label.charAt(0), child);
+                node.children.put(split.label.charAt(0), split);
+                child = split;
+            }
+            node = child;
+            index += common;
+        }
+        node.terminal = true;
+    }
+
+    /**
+     * Depth first traversal in key order that skips all subtrees that only contain keys not after the given bound.
+     *
+     * @return True if the limit has been reached
+     */
+    private static boolean collect(Node node, StringBuilder path, String after, int limit, List<String> result) {
+        String current = path.toString();
+        if (after != null && !after.startsWith(current) && current.compareTo(after) < 0) {
+            return false;
+        }
+        if (node.terminal && (after == null || current.compareTo(after) > 0)) {
+            result.add(current);
+            if (result.size() >= limit) {
+                return true;
+            }
+        }
+        for (Node child : node.children.values()) {
+            int length = path.length();
+            path.append(child.label);
+            boolean done = collect(child, path, after, limit, result);
+            path.setLength(length);
+            if (done) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int commonPrefixLength(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int length = 0;
+        while (length < max && label.charAt(length) == key.charAt(offset + length)) {
+            length++;
+        }
+        return length;
+    }
+
+    private static final class Node {
+        private final TreeMap<Character, Node> children = new TreeMap<>();
+        private String label;
+        private boolean terminal;
+
+        private Node(String label, boolean terminal) {
+            this.label = label;
+            this.terminal = terminal;
+        }
+    }
+
+}
@@ -0,0 +1,25 @@
+package de.mczul.config.service;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+
+/**
+ * Native statements of {@link CurrentValueRepository}. They are declared to write the current_value table only,
+ * otherwise Hibernate would evict the whole second-level cache on every execution.
+ */
+public interface CurrentValueMerge {
+
+    int refresh(Collection<String> keys, ZonedDateTime now);
+
+    /**
+     * Materializes entries whose valid from timestamp has passed since the given point in time
+     */
+    int activate(ZonedDateTime since, ZonedDateTime now);
+
+    int activateAll(ZonedDateTime now);
+
+    /**
+     * Replaces inline values of the given entries with the content references of the entries
+     */
+    int relink(Collection<Integer> entryIds);
+}
@@ -0,0 +1,58 @@
+package de.mczul.config.service;
+
+import de.mczul.config.model.CurrentValue;
+import org.hibernate.query.NativeQuery;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+
+class CurrentValueMergeImpl implements CurrentValueMerge {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int refresh(Collection<String> keys, ZonedDateTime now) {
+        return merge("s.normalized_key IN (:keys)")
+                .setParameter("keys", keys)
+                .setParameter("now", now)
+                .executeUpdate();
+    }
+
+    @Override
+    public int activate(ZonedDateTime since, ZonedDateTime now) {
+        return merge("s.valid_from > :since")
+                .setParameter("since", since)
+                .setParameter("now", now)
+                .executeUpdate();
+    }
+
+    @Override
+    public int activateAll(ZonedDateTime now) {
+        return merge("1 = 1")
+                .setParameter("now", now)
+                .executeUpdate();
+    }
+
+    @Override
+    public int relink(Collection<Integer> entryIds) {
+        return statement("UPDATE config.current_value c " +
+                "SET value_hash = (SELECT s.value_hash FROM config.scheduled_config s WHERE s.id = c.entry_id), value = NULL " +
+                "WHERE c.entry_id IN (:ids) " +
+                "AND EXISTS (SELECT 'x' FROM config.scheduled_config s WHERE s.id = c.entry_id AND s.value_hash IS NOT NULL)")
+                .setParameter("ids", entryIds)
+                .executeUpdate();
+    }
+
+    private NativeQuery<?> merge(String condition) {
+        return statement(CurrentValueRepository.MERGE_HEAD + condition + CurrentValueRepository.MERGE_TAIL);
+    }
+
+    private NativeQuery<?> statement(String sql) {
+        return entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(CurrentValue.class);
+    }
+
+}
@@ -0,0 +1,66 @@
+package de.mczul.config.service;
+
+import de.mczul.config.model.ConfigValue;
+import de.mczul.config.model.CurrentValue;
+import de.mczul.config.model.ScheduledConfigEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface CurrentValueRepository extends JpaRepository<CurrentValue, String>, CurrentValueMerge {
+    /**
+     * Selects the latest entry per key that is valid at :now and is not older than the materialized one; has to be
+     * completed with a condition on the scheduled_config table aliased as "s" and {@link #MERGE_TAIL}.
+     */
+    String MERGE_HEAD = "MERGE INTO config.current_value c " +
+            "USING ( " +
+            "   SELECT s.normalized_key, s.id, s.value, s.value_hash, s.valid_from, " +
+            "       (SELECT MIN(f.valid_from) FROM config.scheduled_config f WHERE f.normalized_key = s.normalized_key AND f.valid_from > s.valid_from) AS valid_until " +
+            "   FROM config.scheduled_config s " +
+            "   WHERE s.valid_from <= :now " +
+            "   AND NOT EXISTS (SELECT 'x' FROM config.scheduled_config n WHERE n.normalized_key = s.normalized_key AND n.valid_from > s.valid_from AND n.valid_from <= :now) " +
+            "   AND NOT EXISTS (SELECT 'x' FROM config.current_value v WHERE v.key = s.normalized_key AND v.valid_from > s.valid_from) " +
+            "   AND ";
+    String MERGE_TAIL = " ) a ON (c.key = a.normalized_key) " +
+            "WHEN MATCHED THEN UPDATE SET entry_id = a.id, value = a.value, value_hash = a.value_hash, valid_from = a.valid_from, valid_until = a.valid_until " +
+            "WHEN NOT MATCHED THEN INSERT (key, entry_id, value, value_hash, valid_from, valid_until) " +
+            "VALUES (a.normalized_key, a.id, a.value, a.value_hash, a.valid_from, a.valid_until)";
+
+    /**
+     * Two primary key lookups; the result is empty if the materialized entry is outdated or missing.
+     */
+    @Query("SELECT e " +
+            "FROM CurrentValue c, ScheduledConfigEntry e LEFT JOIN FETCH e.content " +
+            "WHERE c.key = ?1 " +
+            "AND e.id = c.entryId " +
+            "AND c.validFrom <= ?2 " +
+            "AND (c.validUntil IS NULL OR c.validUntil > ?2)")
+    Optional<ScheduledConfigEntry> findEffectiveEntry(String key, ZonedDateTime referenceTime);
+
+    /**
+     * Primary key lookup without joining the entry; the shared content is usually served by the second-level cache.
+     * See {@link #findEffectiveEntry(String, ZonedDateTime)}.
+     */
+    @Query("SELECT new de.mczul.config.model.ConfigValue(c.key, v.value, c.legacyValue, c.validFrom) " +
+            "FROM CurrentValue c LEFT JOIN c.content v " +
+            "WHERE c.key = ?1 " +
+            "AND c.validFrom <= ?2 " +
+            "AND (c.validUntil IS NULL OR c.validUntil > ?2)")
+    Optional<ConfigValue> findEffectiveValue(String key, ZonedDateTime referenceTime);
+
+    /**
+     * Content hash and value as they are stored, hence without decompression; see
+     * {@link #findEffectiveValue(String, ZonedDateTime)}
+     *
+     * @return A single row of hash and value, both of which are null for null values, or no row at all
+     */
+    @Query(nativeQuery = true, value = "SELECT c.value_hash, CAST(COALESCE(v.value, c.value) AS VARCHAR) " +
+            "FROM config.current_value c LEFT JOIN config.value_content v ON v.hash = c.value_hash " +
+            "WHERE c.key = ?1 " +
+            "AND c.valid_from <= ?2 " +
+            "AND (c.valid_until IS NULL OR c.valid_until > ?2)")
+    List<Object[]> findEffectiveRepresentation(String key, ZonedDateTime referenceTime);
+}
@@ -0,0 +1,157 @@
+package de.mczul.config.service;
+
+import de.mczul.config.AppConstants;
+import de.mczul.config.model.ConfigValue;
+import de.mczul.config.model.ScheduledConfigEntry;
+import de.mczul.config.model.StoredValue;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Maintains the config.current_value table, which holds the currently effective entry of every key, so reads are
+ * primary key lookups regardless of the state of in-memory caches.
+ * <p>
+ * Rows are refreshed after every write and activated by {@link #activate()} once a scheduled valid from timestamp has
+ * passed. Every row knows the valid from timestamp of the next scheduled entry, so a row that is outdated because the
+ * activation is pending is never used.
+ */
+@Slf4j
+@Component
+public class CurrentValueStore {
+    private final CurrentValueRepository currentValueRepository;
+    private final ScheduledConfigRepository entryRepository;
+    // Commits before it returns, even if called within a transaction
+    private final TransactionTemplate ownTransaction;
+    // Upper bound of the last activation run or null if all rows have to be reconciled with the history
+    private ZonedDateTime lastActivation;
+
+    public CurrentValueStore(
+            CurrentValueRepository currentValueRepository,
+            ScheduledConfigRepository entryRepository,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.currentValueRepository = currentValueRepository;
+        this.entryRepository = entryRepository;
+        this.ownTransaction = new TransactionTemplate(transactionManager);
+        this.ownTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * @param key Normalized configuration key
+     * @return The entry of the given key that is effective right now
+     */
+    @Transactional(readOnly = true)
+    public Optional<ScheduledConfigEntry> find(String key) {
+        Optional<ScheduledConfigEntry> materialized = currentValueRepository.findEffectiveEntry(key, now());
+        if (materialized.isPresent()) {
+            return materialized;
+        }
+        // Either there is no effective entry at all or its activation is pending
+        return entryRepository.findCurrentByKey(key);
+    }
+
+    /**
+     * Lean variant of {@link #find(String)} that reads the value from the materialized row without loading the entry.
+     *
+     * @param key Normalized configuration key
+     * @return The value of the given key that is effective right now
+     */
+    @Transactional(readOnly = true)
+    public Optional<ConfigValue> findValue(String key) {
+        ZonedDateTime now = now();
+        Optional<ConfigValue> materialized = currentValueRepository.findEffectiveValue(key, now);
+        if (materialized.isPresent()) {
+            return materialized;
+        }
+        return entryRepository.findCurrentValue(key, now);
+    }
+
+    /**
+     * Reads the value as it is stored, so compressed values can be passed on without decompression.
+     *
+     * @param key Normalized configuration key
+     * @return The stored value of the given key that is effective right now
+     */
+    @Transactional(readOnly = true)
+    public Optional<StoredValue> findStoredValue(String key) {
+        ZonedDateTime now = now();
+        List<Object[]> rows = currentValueRepository.findEffectiveRepresentation(key, now);
+        if (rows.isEmpty()) {
+            rows = entryRepository.findCurrentRepresentation(key, now);
+        }
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        // Hash and value
+        Object[] row = rows.get(0);
+        return Optional.of(new StoredValue((String) row[1], (String) row[0]));
+    }
+
+    /**
+     * Recalculates the row of the given key in a separate transaction, hence has to be called after the transaction
+     * that added an entry has been committed. Failures are not propagated to the writer; they lead to a full
+     * reconciliation on the next {@link #activate() activation} instead.
+     *
+     * @param key Normalized configuration key
+     */
+    public void refresh(String key) {
+        refresh(List.of(key));
+    }
+
+    /**
+     * Recalculates the rows of multiple keys with a single statement; see {@link #refresh(String)}.
+     *
+     * @param keys Normalized configuration keys
+     */
+    public void refresh(Collection<String> keys) {
+        try {
+            ownTransaction.executeWithoutResult(status -> currentValueRepository.refresh(keys, now()));
+        } catch (DataAccessException | TransactionException e) {
+            LOG.warn("Failed to refresh current values of {} keys; scheduling full reconciliation", keys.size(), e);
+            synchronized (this) {
+                lastActivation = null;
+            }
+        }
+    }
+
+    /**
+     * @return True if the next {@link #activate() activation} reconciles all rows, e.g. after a failed refresh
+     */
+    public synchronized boolean isReconciliationPending() {
+        return lastActivation == null;
+    }
+
+    /**
+     * Activates all entries whose valid from timestamp has passed since the previous run. The first run after startup
+     * reconciles all rows, which covers activations missed while the application was down. The run is committed before
+     * it counts as previous run, so a failed run is repeated by the next one.
+     *
+     * @return Number of updated rows
+     */
+    public synchronized int activate() {
+        ZonedDateTime now = now();
+        ZonedDateTime since = lastActivation;
+        Integer activated = ownTransaction.execute(status -> since == null
+                ? currentValueRepository.activateAll(now)
+                : currentValueRepository.activate(since, now));
+        lastActivation = now;
+        return activated == null ? 0 : activated;
+    }
+
+    private static ZonedDateTime now() {
+        return ZonedDateTime.now(ZoneId.of(AppConstants.DEFAULT_TIMEZONE));
+    }
+
+}
@@ -0,0 +1,27 @@
+package de.mczul.config.service;
+
+import de.mczul.config.AppConstants;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+@Getter
+@RequiredArgsConstructor
+public enum ExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String mediaType;
+    private final String fileExtension;
+
+    /**
+     * @param name Format name in arbitrary case
+     */
+    public static Optional<ExportFormat> of(String name) {
+        return Arrays.stream(values())
+                .filter(format -> format.name().equals(name.toUpperCase(AppConstants.DEFAULT_LOCALE)))
+                .findFirst();
+    }
+}
@@ -0,0 +1,50 @@
+package de.mczul.config.service;
+
+/**
+ * Lease of a scheduled job that has been acquired by this node; see {@link JobLeases}.
+ */
+public final class JobLease {
+    private final JobLeases leases;
+    private final String job;
+    private final long token;
+    private volatile boolean lost;
+
+    JobLease(JobLeases leases, String job, long token) {
+        this.leases = leases;
+        this.job = job;
+        this.token = token;
+    }
+
+    public String getJob() {
+        return job;
+    }
+
+    /**
+     * @return Fencing token, which is greater than the tokens of all previous holders of the lease
+     */
+    public long getToken() {
+        return token;
+    }
+
+    /**
+     * @return False once a renewal has found the lease taken over by another node
+     */
+    public boolean isHeld() {
+        return !lost;
+    }
+
+    /**
+     * Verifies and renews the lease within the current transaction. The lease stays locked until the transaction has
+     * finished, so other nodes cannot take over the job while the changes of this transaction are pending.
+     *
+     * @throws IllegalStateException If the lease has been taken over by another node, which rolls back the transaction
+     */
+    public void fence() {
+        leases.fence(this);
+    }
+
+    void markLost() {
+        lost = true;
+    }
+
+}
@@ -0,0 +1,25 @@
+package de.mczul.config.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.NotNull;
+import java.time.Duration;
+
+/**
+ * Settings of the {@link JobLeases}.
+ */
+@Data
+@Validated
+@Component
+@ConfigurationProperties(prefix = "de.mczul.config.job-lease")
+public class JobLeaseProperties {
+    /**
+     * Time a lease is kept after its last renewal; has to exceed the offset between the ticks of the same job on
+     * different nodes and be shorter than the period of cron jobs. Running jobs renew their lease every third of it.
+     */
+    @NotNull
+    private Duration ttl = Duration.ofSeconds(30);
+}
@@ -0,0 +1,205 @@
+package de.mczul.config.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs every scheduled job on a single node per tick, although all nodes that share the database schedule it. Before a
+ * job runs, its node has to hold the lease of the job, which is a row of the config.job_lease table. The lease is kept
+ * for de.mczul.config.job-lease.ttl after it has been acquired or renewed; running jobs renew it in the background, and
+ * the holder renews it on its next tick, so jobs stay on the same node as long as it is running.
+ * <p>
+ * Another node can only take over an expired lease, which increments its fencing token. Jobs that change data call
+ * {@link JobLease#fence()} within every transaction, so a node that has lost its lease, e.g. while it was paused for
+ * longer than the TTL, cannot commit changes once another node has taken over.
+ * <p>
+ * Expiry timestamps are written and compared with the clock of the database, so leases are not shortened or extended
+ * by clock skew between nodes.
+ */
+@Slf4j
+@Component
+public class JobLeases {
+    static final String METRIC_RUNS = "config.jobs.runs";
+    static final String TAG_JOB = "job";
+    static final String TAG_OUTCOME = "outcome";
+
+    private static final String CREATE = "MERGE INTO config.job_lease l " +
+            "USING (SELECT CAST(? AS VARCHAR(64)) AS name) j ON (l.name = j.name) " +
+            "WHEN NOT MATCHED THEN INSERT (name, owner, token, expires) VALUES (j.name, '', 0, ?)";
+    private static final String ACQUIRE = "UPDATE config.job_lease SET owner = ?, token = token + 1, " +
+            "expires = DATEADD('MILLISECOND', ?, LOCALTIMESTAMP) WHERE name = ? AND expires < LOCALTIMESTAMP";
+    private static final String RENEW = "UPDATE config.job_lease SET expires = DATEADD('MILLISECOND', ?, LOCALTIMESTAMP) " +
+            "WHERE name = ? AND owner = ? AND token = ?";
+    private static final String RELEASE = "UPDATE config.job_lease SET expires = ? WHERE name = ? AND owner = ? AND token = ?";
+    private static final String READ_TOKEN = "SELECT token FROM config.job_lease WHERE name = ? AND owner = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+    private final MeterRegistry meterRegistry;
+    // Identifies the leases held by this node
+    private final String owner = UUID.randomUUID().toString();
+    // Tokens of the leases held by this node by job
+    private final ConcurrentMap<String, Long> tokens = new ConcurrentHashMap<>();
+    private final Set<String> created = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService renewals;
+
+    public JobLeases(JdbcTemplate jdbcTemplate, JobLeaseProperties properties, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = properties.getTtl();
+        this.meterRegistry = meterRegistry;
+        this.renewals = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("job-lease-renewal-%d").setDaemon(true).build()
+        );
+    }
+
+    /**
+     * Runs the given job if this node holds or acquires its lease, which is renewed until the job has finished.
+     *
+     * @param job  Name of the job, which identifies its lease
+     * @param task Job to be run with the acquired lease
+     * @return True if the job has been run by this node
+     */
+    public boolean runExclusively(String job, Consumer<JobLease> task) {
+        JobLease lease;
+        try {
+            lease = acquire(job);
+        } catch (DataAccessException e) {
+            LOG.warn("Failed to acquire lease of job '{}'; skipping it", job, e);
+            lease = null;
+        }
+        if (lease == null) {
+            LOG.trace("Skipping job '{}', whose lease is held by another node", job);
+            runs(job, "skipped").increment();
+            return false;
+        }
+
+        final JobLease acquired = lease;
+        final long renewalPeriod = ttl.toNanos() / 3;
+        final ScheduledFuture<?> renewal = renewals.scheduleAtFixedRate(() -> renewInBackground(acquired), renewalPeriod, renewalPeriod, TimeUnit.NANOSECONDS);
+        try {
+            task.accept(acquired);
+        } finally {
+            renewal.cancel(false);
+        }
+        runs(job, "run").increment();
+        return true;
+    }
+
+    private JobLease acquire(String job) {
+        final Long token = tokens.get(job);
+        if (token != null) {
+            if (renew(job, token)) {
+                return new JobLease(this, job, token);
+            }
+            tokens.remove(job, token);
+            LOG.info("Lease of job '{}' has been taken over by another node", job);
+        }
+
+        create(job);
+        if (jdbcTemplate.update(ACQUIRE, owner, ttl.toMillis(), job) == 0) {
+            return null;
+        }
+        List<Long> acquired = jdbcTemplate.queryForList(READ_TOKEN, Long.class, job, owner);
+        if (acquired.isEmpty()) {
+            // Expired and taken over right away
+            return null;
+        }
+        tokens.put(job, acquired.get(0));
+        LOG.info("Acquired lease of job '{}' with token {}", job, acquired.get(0));
+        return new JobLease(this, job, acquired.get(0));
+    }
+
+    private void create(String job) {
+        if (!created.add(job)) {
+            return;
+        }
+        try {
+            // Expired right away, so the first node that runs the job acquires it
+            jdbcTemplate.update(CREATE, job, Timestamp.from(Instant.EPOCH));
+        } catch (DataIntegrityViolationException e) {
+            LOG.debug("Lease of job '{}' has been created concurrently", job);
+        } catch (DataAccessException e) {
+            created.remove(job);
+            throw e;
+        }
+    }
+
+    private boolean renew(String job, long token) {
+        return jdbcTemplate.update(RENEW, ttl.toMillis(), job, owner, token) == 1;
+    }
+
+    private void renewInBackground(JobLease lease) {
+        try {
+            if (!renew(lease.getJob(), lease.getToken())) {
+                lost(lease);
+            }
+        } catch (DataAccessException e) {
+            // E.g. while the lease is locked by a fenced transaction of the job, which renews it on its own
+            LOG.debug("Failed to renew lease of job '{}'", lease.getJob(), e);
+        }
+    }
+
+    void fence(JobLease lease) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Leases can only be fenced within a transaction");
+        }
+        if (!renew(lease.getJob(), lease.getToken())) {
+            lost(lease);
+            throw new IllegalStateException("Lease of job '" + lease.getJob() + "' has been taken over by another node");
+        }
+    }
+
+    private void lost(JobLease lease) {
+        lease.markLost();
+        if (tokens.remove(lease.getJob(), lease.getToken())) {
+            LOG.warn("Lease of job '{}' has been taken over by another node while the job was running", lease.getJob());
+        }
+    }
+
+    private Counter runs(String job, String outcome) {
+        return Counter.builder(METRIC_RUNS)
+                .description("Ticks of scheduled jobs by whether this node has run them or skipped them")
+                .tag(TAG_JOB, job)
+                .tag(TAG_OUTCOME, outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Lets other nodes take over the jobs of this node right away instead of after the TTL.
+     */
+    @PreDestroy
+    void shutdown() {
+        renewals.shutdownNow();
+        tokens.forEach((job, token) -> {
+            try {
+                jdbcTemplate.update(RELEASE, Timestamp.from(Instant.EPOCH), job, owner, token);
+            } catch (DataAccessException e) {
+                LOG.debug("Failed to release lease of job '{}'", job, e);
+            }
+        });
+        tokens.clear();
+    }
+
+}
@@ -0,0 +1,77 @@
+package de.mczul.config.service;
+
+import com.google.common.collect.Lists;
+import de.mczul.config.AppConstants;
+import de.mczul.config.model.ConfigValue;
+import de.mczul.config.model.StoredValue;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Non-blocking counterpart of the value queries of {@link ScheduledConfigService}, which reads the tables written by
+ * the servlet stack through R2DBC. Values are resolved from the history with one index range scan per key, hence
+ * without depending on the materialized current values or any in-memory cache.
+ * <p>
+ * The H2 driver executes statements synchronously on the subscribing thread, hence queries are subscribed on the
+ * bounded elastic scheduler; they block one of its threads, but neither request threads nor the parallel scheduler.
+ */
+@ConditionalOnProperty(prefix = "de.mczul.config.reactive", name = "enabled", havingValue = "true")
+@Component
+public class ReactiveValueReader {
+    // Upper bound for the number of keys that are bound to a single query
+    static final int QUERY_BATCH_SIZE = 500;
+
+    private static final String SELECT_EFFECTIVE = "SELECT s.normalized_key, s.valid_from, CAST(COALESCE(v.value, s.value) AS VARCHAR) AS value " +
+            "FROM config.scheduled_config s LEFT JOIN config.value_content v ON v.hash = s.value_hash " +
+            "WHERE s.normalized_key IN (:keys) " +
+            "AND s.valid_from <= :referenceTime " +
+            "AND NOT EXISTS (SELECT 'x' FROM config.scheduled_config n WHERE n.normalized_key = s.normalized_key AND n.valid_from > s.valid_from AND n.valid_from <= :referenceTime)";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveValueReader(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * @param keys          Configuration keys
+     * @param referenceTime Time at which the values have to be effective
+     * @return The values of the given keys, in no particular order; keys without an effective entry are omitted. Key
+     * lists that exceed {@value QUERY_BATCH_SIZE} keys are queried in consecutive batches.
+     */
+    public Flux<ConfigValue> findValues(Collection<String> keys, ZonedDateTime referenceTime) {
+        List<String> normalizedKeys = keys.stream()
+                .map(key -> key.toLowerCase(AppConstants.DEFAULT_LOCALE))
+                .distinct()
+                .collect(Collectors.toUnmodifiableList());
+        // Timestamps are stored in the local time of the JVM, like Hibernate does
+        LocalDateTime localReferenceTime = referenceTime.withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        return Flux.concat(Lists.partition(normalizedKeys, QUERY_BATCH_SIZE).stream()
+                        .map(batch -> findValues(batch, localReferenceTime))
+                        .collect(Collectors.toUnmodifiableList()))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Flux<ConfigValue> findValues(List<String> normalizedKeys, LocalDateTime referenceTime) {
+        return databaseClient.sql(SELECT_EFFECTIVE)
+                .bind("keys", normalizedKeys)
+                .bind("referenceTime", referenceTime)
+                .map(row -> new ConfigValue(
+                        row.get("normalized_key", String.class),
+                        new StoredValue(row.get("value", String.class)).decode(),
+                        row.get("valid_from", LocalDateTime.class).atZone(ZoneId.systemDefault())
+                ))
+                .all();
+    }
+
+}
@@ -0,0 +1,57 @@
+package de.mczul.config.service;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Routes connections of read-only transactions to the replica as long as the {@link ReplicaMonitor} considers it
+ * available, all others to the primary database. Has to be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, since transaction managers obtain the
+ * connection before the read-only flag of the transaction is exposed.
+ * <p>
+ * Queries whose results are cached beyond the request, e.g. the timelines of the {@link ScheduledConfigCache}, have to
+ * run in read-write transactions, since the replica may lag behind by up to de.mczul.config.replica.max-staleness.
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource {
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicaMonitor monitor;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReplicaMonitor monitor) {
+        this.primary = primary;
+        this.replica = replica;
+        this.monitor = monitor;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection getConnection(ConnectionFactory factory) throws SQLException {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && monitor.isAvailable()) {
+            try {
+                return factory.connect(replica);
+            } catch (SQLException e) {
+                // No statement has been executed yet, so the transaction can safely continue on the primary
+                monitor.markUnavailable(e);
+            }
+        }
+        return factory.connect(primary);
+    }
+
+    @FunctionalInterface
+    private interface ConnectionFactory {
+        Connection connect(DataSource dataSource) throws SQLException;
+    }
+
+}
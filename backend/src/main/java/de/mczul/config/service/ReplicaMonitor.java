@@ -0,0 +1,92 @@
+package de.mczul.config.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Decides whether the read replica may serve read-only transactions. Every check writes a heartbeat to the primary
+ * database and reads the replicated one from the replica, hence the age of the replicated heartbeat is an upper bound
+ * of the replication lag plus the check interval.
+ */
+@Slf4j
+public class ReplicaMonitor implements MeterBinder {
+    static final String METRIC_AVAILABLE = "config.replica.available";
+
+    private static final String WRITE_HEARTBEAT = "UPDATE config.replica_heartbeat SET beat = ? WHERE id = 1";
+    private static final String READ_HEARTBEAT = "SELECT beat FROM config.replica_heartbeat WHERE id = 1";
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final Duration maxStaleness;
+    private volatile boolean available;
+
+    public ReplicaMonitor(DataSource primary, DataSource replica, ReplicaProperties properties) {
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+        this.maxStaleness = properties.getMaxStaleness();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder(METRIC_AVAILABLE, this, monitor -> monitor.available ? 1 : 0)
+                .description("Whether read-only transactions are routed to the replica")
+                .register(registry);
+    }
+
+    /**
+     * @return True if the replica has been reachable and its replication lag within bounds on the last check
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    @Scheduled(fixedDelayString = "${de.mczul.config.replica.check-interval}")
+    public void check() {
+        Instant now = Instant.now();
+        try {
+            primary.update(WRITE_HEARTBEAT, Timestamp.from(now));
+        } catch (DataAccessException e) {
+            LOG.warn("Failed to write replica heartbeat to primary database", e);
+        }
+        Timestamp beat;
+        try {
+            beat = replica.queryForObject(READ_HEARTBEAT, Timestamp.class);
+        } catch (DataAccessException e) {
+            update(false, "replica is unreachable: " + e.getMessage());
+            return;
+        }
+        if (beat == null) {
+            update(false, "heartbeat has not been replicated yet");
+            return;
+        }
+        Duration lag = Duration.between(beat.toInstant(), now);
+        update(lag.compareTo(maxStaleness) <= 0, "replication lag is " + lag.toMillis() + " ms");
+    }
+
+    /**
+     * Stops routing to the replica until the next successful check
+     *
+     * @param cause Failure of the replica
+     */
+    public void markUnavailable(Exception cause) {
+        update(false, "failed to connect: " + cause.getMessage());
+    }
+
+    private synchronized void update(boolean nowAvailable, String reason) {
+        if (available != nowAvailable) {
+            LOG.info("Routing read-only transactions to the {} database; {}", nowAvailable ? "replica" : "primary", reason);
+        }
+        available = nowAvailable;
+    }
+
+}
@@ -0,0 +1,27 @@
+package de.mczul.config.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.NotNull;
+import java.time.Duration;
+
+@Data
+@Validated
+@Component
+@ConfigurationProperties(prefix = "de.mczul.config.replica")
+public class ReplicaProperties {
+    /**
+     * JDBC URL of the read replica; all transactions use the primary database if not set
+     */
+    private String url;
+    private String username;
+    private String password;
+    /**
+     * Maximum replication lag for read-only transactions to be routed to the replica; has to exceed the check interval
+     */
+    @NotNull
+    private Duration maxStaleness = Duration.ofSeconds(5);
+}
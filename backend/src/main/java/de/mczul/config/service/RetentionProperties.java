@@ -0,0 +1,50 @@
+package de.mczul.config.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.convert.DurationUnit;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Entries are purged once both policies allow it, i.e. entries are kept as long as any policy applies. Nothing is
+ * purged unless a mode other than {@link Mode#KEEP} has been chosen explicitly.
+ */
+@Data
+@Validated
+@Component
+@ConfigurationProperties(prefix = "de.mczul.config.retention")
+public class RetentionProperties {
+    /**
+     * Whether entries are kept, deleted or moved to the {@link ScheduledConfigArchive}
+     */
+    @NotNull
+    private Mode mode = Mode.KEEP;
+    /**
+     * Number of latest effective versions per key that are kept; the current entry is always kept
+     */
+    @Positive
+    private int keepVersions = 10;
+    /**
+     * Entries that have been created within this period are kept
+     */
+    @NotNull
+    @DurationUnit(ChronoUnit.DAYS)
+    private Duration keepYoungerThan = Duration.ofDays(30);
+    /**
+     * Number of entries that are examined per transaction
+     */
+    @Positive
+    private int chunkSize = 1_000;
+
+    public enum Mode {
+        KEEP,
+        PURGE,
+        ARCHIVE
+    }
+}
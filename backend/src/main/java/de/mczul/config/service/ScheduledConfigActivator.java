@@ -0,0 +1,337 @@
+package de.mczul.config.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.mczul.config.model.ConfigValue;
+import de.mczul.config.model.ScheduledConfigEntry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Publishes an immutable snapshot of the entries that are effective right now for all cached keys.
+ * <p>
+ * The snapshot is replaced through a single volatile reference exactly when the next "valid from" timestamp across all
+ * cached {@link ScheduledConfigTimeline timelines} is reached, so reads are plain hash lookups. Keys that have not been
+ * loaded yet are resolved by the {@link CurrentValueStore} while their timeline is loaded in the background, so they
+ * become part of the next snapshot.
+ * <p>
+ * Changes of single keys, e.g. by writes, loads or evictions, are recorded next to the entries of the current snapshot
+ * without copying them or evaluating the timelines of other keys; they are merged into the entries once
+ * {@link #MAX_CHANGES} keys have changed. The snapshot is only rebuilt from all cached timelines when it expires, which
+ * happens on the activator thread. Lookups during a late rebuild are answered from the cached timeline of their key.
+ */
+@Slf4j
+@Component
+public class ScheduledConfigActivator {
+    // Activations far ahead are approached stepwise to prevent overflows of the scheduling delay
+    private static final Duration MAX_ACTIVATION_DELAY = Duration.ofDays(1);
+    // Upper bound for the number of changed keys that are recorded next to the entries of a snapshot
+    static final int MAX_CHANGES = 1_024;
+
+    private final ScheduledConfigCache cache;
+    private final CurrentValueStore currentValues;
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean publishRequested = new AtomicBoolean();
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+    private final Set<String> pendingLoads = ConcurrentHashMap.newKeySet();
+    // Keys whose timelines have changed since the last requested publish
+    private final Set<String> pendingPublishes = ConcurrentHashMap.newKeySet();
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private ScheduledFuture<?> nextActivation;
+
+    public ScheduledConfigActivator(ScheduledConfigCache cache, CurrentValueStore currentValues) {
+        this.cache = cache;
+        this.currentValues = currentValues;
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("config-activator-%d").setDaemon(true).build()
+        );
+        // Evicted timelines must not be kept alive by the snapshot
+        cache.onEviction(key -> requestPublish(List.of(key)));
+    }
+
+    /**
+     * @param key Normalized configuration key
+     * @return The entry of the given key that is effective right now
+     */
+    public Optional<ScheduledConfigEntry> current(String key) {
+        return current(key, Function.identity(), currentValues::find);
+    }
+
+    /**
+     * Same as {@link #current(String)}, but keys that are not part of the snapshot are resolved with a projection
+     * instead of managed entities.
+     *
+     * @param key Normalized configuration key
+     * @return The value of the given key that is effective right now
+     */
+    public Optional<ConfigValue> currentValue(String key) {
+        return current(key, ConfigValue::of, currentValues::findValue);
+    }
+
+    /**
+     * Same as {@link #current(String)}, but keys that are not part of the snapshot are resolved by the given loader,
+     * e.g. to coalesce concurrent lookups.
+     *
+     * @param key    Normalized configuration key
+     * @param loader Resolves keys that are not part of the snapshot
+     * @return The entry of the given key that is effective right now
+     */
+    public Optional<ScheduledConfigEntry> current(String key, Function<String, Optional<ScheduledConfigEntry>> loader) {
+        return current(key, Function.identity(), loader);
+    }
+
+    /**
+     * Same as {@link #currentValue(String)}, but keys that are not part of the snapshot are resolved by the given loader.
+     *
+     * @param key    Normalized configuration key
+     * @param loader Resolves keys that are not part of the snapshot
+     * @return The value of the given key that is effective right now
+     */
+    public Optional<ConfigValue> currentValue(String key, Function<String, Optional<ConfigValue>> loader) {
+        return current(key, ConfigValue::of, loader);
+    }
+
+    private <T> Optional<T> current(String key, Function<ScheduledConfigEntry, T> mapper, Function<String, Optional<T>> fallback) {
+        Snapshot current = snapshot;
+        if (current.isExpired()) {
+            // Activation is late (e.g. due to a busy executor); never answer with an outdated value
+            requestRebuild();
+            Optional<ScheduledConfigTimeline> timeline = cache.cached(key);
+            if (timeline.isPresent()) {
+                return timeline.get().at(Instant.now()).map(mapper);
+            }
+        } else {
+            Optional<ScheduledConfigEntry> entry = current.get(key);
+            if (entry != null) {
+                return entry.map(mapper);
+            }
+        }
+
+        requestLoad(key);
+        return fallback.apply(key);
+    }
+
+    /**
+     * Resolves multiple keys for a single reference time. The snapshot is used as long as it is valid at the given
+     * reference time; all other keys are resolved from their timelines, which are loaded in batches if necessary.
+     *
+     * @param keys          Normalized configuration keys
+     * @param referenceTime Point in time the returned entries have to be valid at
+     * @return Effective entries by key; keys without an effective entry are omitted
+     */
+    public Map<String, ScheduledConfigEntry> at(Collection<String> keys, Instant referenceTime) {
+        Snapshot current = snapshot;
+        boolean snapshotApplies = current.covers(referenceTime);
+        Map<String, ScheduledConfigEntry> result = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String key : keys) {
+            Optional<ScheduledConfigEntry> entry = snapshotApplies ? current.get(key) : null;
+            if (entry != null) {
+                entry.ifPresent(effective -> result.put(key, effective));
+            } else {
+                misses.add(key);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            cache.timelines(misses).forEach((key, timeline) -> timeline.at(referenceTime).ifPresent(entry -> result.put(key, entry)));
+            requestPublish(misses);
+        }
+        return result;
+    }
+
+    /**
+     * Rebuilds the snapshot from all cached timelines and schedules the next rebuild for the earliest upcoming "valid
+     * from" timestamp.
+     */
+    public void publish() {
+        rebuild();
+    }
+
+    /**
+     * Publishes a snapshot in which the given keys are resolved from their cached timelines; keys without cached
+     * timeline are removed, so they are loaded again on their next lookup. Requests a rebuild if the current snapshot
+     * has expired.
+     *
+     * @param keys Normalized keys whose timelines have been changed, loaded or evicted
+     */
+    public void publish(Collection<String> keys) {
+        update(keys);
+    }
+
+    private synchronized void update(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        Snapshot current = snapshot;
+        Instant now = Instant.now();
+        Map<String, Optional<ScheduledConfigEntry>> changes = new HashMap<>(current.changes);
+        Instant validUntil = current.validUntil;
+        for (String key : keys) {
+            Optional<ScheduledConfigTimeline> timeline = cache.cached(key);
+            if (timeline.isEmpty()) {
+                changes.put(key, null);
+                continue;
+            }
+            changes.put(key, timeline.get().at(now));
+            Optional<Instant> nextActivation = timeline.get().nextActivationAfter(now);
+            if (nextActivation.isPresent() && nextActivation.get().isBefore(validUntil)) {
+                validUntil = nextActivation.get();
+            }
+        }
+
+        // Updated keys are only known to be valid since now
+        snapshot = Snapshot.of(current.entries, changes, now, validUntil);
+        if (current.isExpired()) {
+            requestRebuild();
+        } else if (!validUntil.equals(current.validUntil)) {
+            scheduleActivation(now, validUntil);
+        }
+        LOG.debug("Published {} changed keys valid until {}", keys.size(), validUntil);
+    }
+
+    private synchronized void rebuildIfExpired() {
+        // Concurrent requests might have been served by a single rebuild already
+        if (snapshot.isExpired()) {
+            rebuild();
+        }
+    }
+
+    private synchronized void rebuild() {
+        Instant now = Instant.now();
+        Map<String, Optional<ScheduledConfigEntry>> entries = new HashMap<>();
+        Instant validUntil = Instant.MAX;
+        for (ScheduledConfigTimeline timeline : cache.timelines()) {
+            entries.put(timeline.getKey(), timeline.at(now));
+            Optional<Instant> nextActivation = timeline.nextActivationAfter(now);
+            if (nextActivation.isPresent() && nextActivation.get().isBefore(validUntil)) {
+                validUntil = nextActivation.get();
+            }
+        }
+
+        snapshot = new Snapshot(Collections.unmodifiableMap(entries), Collections.emptyMap(), now, validUntil);
+        scheduleActivation(now, validUntil);
+        LOG.debug("Published snapshot of {} keys valid until {}", entries.size(), validUntil);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void requestPublish(Collection<String> keys) {
+        pendingPublishes.addAll(keys);
+        if (publishRequested.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                publishRequested.set(false);
+                List<String> changed = new ArrayList<>();
+                for (Iterator<String> pending = pendingPublishes.iterator(); pending.hasNext(); ) {
+                    changed.add(pending.next());
+                    pending.remove();
+                }
+                publish(changed);
+            });
+        }
+    }
+
+    private void requestRebuild() {
+        if (rebuildRequested.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                rebuildRequested.set(false);
+                rebuildIfExpired();
+            });
+        }
+    }
+
+    private void requestLoad(String key) {
+        if (pendingLoads.add(key)) {
+            executor.execute(() -> {
+                try {
+                    cache.timeline(key);
+                } catch (RuntimeException e) {
+                    LOG.warn("Failed to load timeline of key '{}'", key, e);
+                } finally {
+                    pendingLoads.remove(key);
+                }
+                requestPublish(List.of(key));
+            });
+        }
+    }
+
+    private void scheduleActivation(Instant now, Instant validUntil) {
+        if (nextActivation != null) {
+            nextActivation.cancel(false);
+            nextActivation = null;
+        }
+        if (!Instant.MAX.equals(validUntil)) {
+            Duration delay = Duration.between(now, validUntil);
+            if (delay.compareTo(MAX_ACTIVATION_DELAY) > 0) {
+                delay = MAX_ACTIVATION_DELAY;
+            }
+            nextActivation = executor.schedule(() -> publish(), delay.toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Effective entries by key, where keys without effective entry map to an empty optional. Changes since the entries
+     * have been evaluated are kept apart, so publishing a changed key does not copy all entries; removed keys map to
+     * {@code null} within the changes.
+     */
+    private static final class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(Collections.emptyMap(), Collections.emptyMap(), Instant.MIN, Instant.MAX);
+
+        private final Map<String, Optional<ScheduledConfigEntry>> entries;
+        private final Map<String, Optional<ScheduledConfigEntry>> changes;
+        private final Instant validSince;
+        private final Instant validUntil;
+
+        private Snapshot(Map<String, Optional<ScheduledConfigEntry>> entries, Map<String, Optional<ScheduledConfigEntry>> changes, Instant validSince, Instant validUntil) {
+            this.entries = entries;
+            this.changes = changes;
+            this.validSince = validSince;
+            this.validUntil = validUntil;
+        }
+
+        private static Snapshot of(Map<String, Optional<ScheduledConfigEntry>> entries, Map<String, Optional<ScheduledConfigEntry>> changes, Instant validSince, Instant validUntil) {
+            if (changes.size() <= MAX_CHANGES) {
+                return new Snapshot(entries, Collections.unmodifiableMap(changes), validSince, validUntil);
+            }
+            Map<String, Optional<ScheduledConfigEntry>> merged = new HashMap<>(entries);
+            changes.forEach((key, entry) -> {
+                if (entry == null) {
+                    merged.remove(key);
+                } else {
+                    merged.put(key, entry);
+                }
+            });
+            return new Snapshot(Collections.unmodifiableMap(merged), Collections.emptyMap(), validSince, validUntil);
+        }
+
+        /**
+         * @return The effective entry of the given key; {@code null} if the key is not part of this snapshot
+         */
+        private Optional<ScheduledConfigEntry> get(String key) {
+            return changes.containsKey(key) ? changes.get(key) : entries.get(key);
+        }
+
+        private boolean covers(Instant referenceTime) {
+            return !referenceTime.isBefore(validSince) && referenceTime.isBefore(validUntil);
+        }
+
+        private boolean isExpired() {
+            return !Instant.now().isBefore(validUntil);
+        }
+    }
+
+}
@@ -0,0 +1,291 @@
+package de.mczul.config.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.mczul.config.AppConstants;
+import de.mczul.config.model.ScheduledConfigEntry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Append-only cold storage for entries that have been removed from the scheduled_config table.
+ * <p>
+ * Entries are stored in segments, each consisting of a data file and an index file. The data file is a sequence of
+ * gzip compressed blocks, each holding the entries of a single key as newline delimited JSON. The index file has one
+ * line per block with the normalized key, the offset and the length of the block. Blocks are written before their
+ * index lines, so a block is only visible once it is complete; segments are never modified once a new one has been
+ * started. The index of all segments is kept in memory, hence looking up keys without archived entries does not touch
+ * the disk.
+ * <p>
+ * Entries are archived by whichever node runs the cleanup job, so nodes that share the database have to share the
+ * directory as well, e.g. on a network file system. Index lines that have been appended by other nodes are loaded
+ * before every lookup and append, which costs one check of the size of the latest index file if nothing has changed;
+ * appends of different nodes are serialized by the lease of the cleanup job.
+ */
+@Slf4j
+@Component
+public class ScheduledConfigArchive {
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d{6})\\.index");
+    private static final String DATA_SUFFIX = ".data";
+    private static final String INDEX_SUFFIX = ".index";
+
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final long segmentSize;
+    // Blocks by normalized key in the order they have been appended
+    private final Map<String, List<Block>> index = new ConcurrentHashMap<>();
+    // Latest segment and the number of bytes of its index file that have been loaded
+    private volatile int segment;
+    private volatile long indexed;
+
+    public ScheduledConfigArchive(ObjectMapper objectMapper, ArchiveProperties properties) throws IOException {
+        this.objectMapper = objectMapper;
+        this.directory = properties.getDirectory();
+        this.segmentSize = properties.getSegmentSize().toBytes();
+        load();
+    }
+
+    private void load() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<Integer> segments;
+        try (Stream<Path> files = Files.list(directory)) {
+            segments = files
+                    .map(file -> SEGMENT_NAME.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Integer.parseInt(matcher.group(1)))
+                    .sorted()
+                    .collect(Collectors.toUnmodifiableList());
+        }
+        int blocks = 0;
+        for (int loaded : segments) {
+            segment = loaded;
+            indexed = 0;
+            blocks += readIndex();
+        }
+        LOG.info("Loaded {} blocks of {} keys from {} archive segments", blocks, index.size(), segments.size());
+    }
+
+    /**
+     * Loads the index lines that have been appended, e.g. by other nodes, since the previous call.
+     */
+    private synchronized void refresh() {
+        try {
+            int blocks = readIndex();
+            while (Files.exists(indexFile(segment + 1))) {
+                segment++;
+                indexed = 0;
+                blocks += readIndex();
+            }
+            if (blocks > 0) {
+                LOG.debug("Loaded {} blocks that have been appended to the archive", blocks);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load the index of archive segment " + segment, e);
+        }
+    }
+
+    private boolean isModified() {
+        try {
+            Path file = indexFile(segment);
+            return (Files.exists(file) && Files.size(file) != indexed) || Files.exists(indexFile(segment + 1));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to check the index of archive segment " + segment, e);
+        }
+    }
+
+    /**
+     * Loads the complete lines of the index file of the latest segment that follow the loaded ones.
+     *
+     * @return Number of loaded blocks
+     */
+    private int readIndex() throws IOException {
+        Path file = indexFile(segment);
+        if (!Files.exists(file) || Files.size(file) <= indexed) {
+            return 0;
+        }
+        byte[] appended;
+        try (FileChannel indexChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(indexChannel.size() - indexed));
+            int read = 0;
+            while (buffer.hasRemaining() && read >= 0) {
+                read = indexChannel.read(buffer, indexed + buffer.position());
+            }
+            appended = Arrays.copyOf(buffer.array(), buffer.position());
+        }
+        // Lines without line break are still being appended
+        int length = appended.length;
+        while (length > 0 && appended[length - 1] != '\n') {
+            length--;
+        }
+        if (length == 0) {
+            return 0;
+        }
+        long dataSize = Files.size(dataFile(segment));
+        int blocks = 0;
+        for (String line : new String(appended, 0, length, StandardCharsets.UTF_8).split("\n")) {
+            String[] fields = line.split("\t");
+            // Lines of an interrupted append are incomplete or point beyond the end of the data file
+            if (fields.length != 3 || Long.parseLong(fields[1]) + Integer.parseInt(fields[2]) > dataSize) {
+                LOG.warn("Skipping incomplete index line of archive segment {}", segment);
+                continue;
+            }
+            addToIndex(fields[0], new Block(segment, Long.parseLong(fields[1]), Integer.parseInt(fields[2])));
+            blocks++;
+        }
+        indexed += length;
+        return blocks;
+    }
+
+    /**
+     * Appends the given entries as one block per key and forces them to disk.
+     *
+     * @param entries Entries to be archived
+     */
+    public synchronized void append(Collection<ScheduledConfigEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Map<String, List<ScheduledConfigEntry>> entriesByKey = entries.stream()
+                .collect(Collectors.groupingBy(entry -> entry.getKey().toLowerCase(AppConstants.DEFAULT_LOCALE), TreeMap::new, Collectors.toList()));
+        try {
+            Files.createDirectories(directory);
+            refresh();
+            if (Files.exists(dataFile(segment)) && Files.size(dataFile(segment)) >= segmentSize) {
+                segment++;
+                indexed = 0;
+            }
+            StringBuilder indexLines = new StringBuilder();
+            try (FileChannel data = FileChannel.open(dataFile(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                long offset = data.size();
+                for (Map.Entry<String, List<ScheduledConfigEntry>> keyEntries : entriesByKey.entrySet()) {
+                    byte[] block = compress(keyEntries.getValue());
+                    data.write(ByteBuffer.wrap(block));
+                    indexLines.append(keyEntries.getKey()).append('\t').append(offset).append('\t').append(block.length).append('\n');
+                    offset += block.length;
+                }
+                data.force(false);
+            }
+            try (FileChannel indexChannel = FileChannel.open(indexFile(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                indexChannel.write(ByteBuffer.wrap(indexLines.toString().getBytes(StandardCharsets.UTF_8)));
+                indexChannel.force(false);
+            }
+            refresh();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to archive segment " + segment, e);
+        }
+    }
+
+    /**
+     * @param key Configuration key in arbitrary representation
+     * @return Archived entries of the given key in the order they have been archived
+     */
+    public List<ScheduledConfigEntry> find(String key) {
+        if (isModified()) {
+            refresh();
+        }
+        List<Block> blocks = index.getOrDefault(key.toLowerCase(AppConstants.DEFAULT_LOCALE), List.of());
+        if (blocks.isEmpty()) {
+            return List.of();
+        }
+        List<ScheduledConfigEntry> entries = new ArrayList<>();
+        try {
+            for (Block block : blocks) {
+                entries.addAll(decompress(read(block)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read archived entries of key " + key, e);
+        }
+        return entries;
+    }
+
+    private void addToIndex(String key, Block block) {
+        index.compute(key, (ignored, blocks) -> {
+            List<Block> result = blocks == null ? new ArrayList<>() : new ArrayList<>(blocks);
+            result.add(block);
+            return Collections.unmodifiableList(result);
+        });
+    }
+
+    private byte[] compress(List<ScheduledConfigEntry> entries) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(buffer), StandardCharsets.UTF_8)) {
+            for (ScheduledConfigEntry entry : entries) {
+                writer.write(objectMapper.writeValueAsString(entry));
+                writer.write('\n');
+            }
+        }
+        return buffer.toByteArray();
+    }
+
+    private List<ScheduledConfigEntry> decompress(byte[] block) throws IOException {
+        List<ScheduledConfigEntry> entries = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(block)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                entries.add(objectMapper.readValue(line, ScheduledConfigEntry.class));
+            }
+        }
+        return entries;
+    }
+
+    private byte[] read(Block block) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(block.length);
+        try (FileChannel data = FileChannel.open(dataFile(block.segment), StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (data.read(buffer, block.offset + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of archive segment " + block.segment);
+                }
+            }
+        }
+        return buffer.array();
+    }
+
+    private Path dataFile(int segment) {
+        return directory.resolve(segmentName(segment) + DATA_SUFFIX);
+    }
+
+    private Path indexFile(int segment) {
+        return directory.resolve(segmentName(segment) + INDEX_SUFFIX);
+    }
+
+    private static String segmentName(int segment) {
+        return String.format(AppConstants.DEFAULT_LOCALE, "segment-%06d", segment);
+    }
+
+    private static final class Block {
+        private final int segment;
+        private final long offset;
+        private final int length;
+
+        private Block(int segment, long offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+}
@@ -0,0 +1,263 @@
+package de.mczul.config.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import de.mczul.config.AppConstants;
+import de.mczul.config.model.ScheduledConfigEntry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * In-process cache of {@link ScheduledConfigTimeline timelines} keyed by the normalized configuration key.
+ * <p>
+ * Timelines are loaded on first access and kept coherent by {@link ScheduledConfigService#set(ScheduledConfigEntry)}.
+ * Queries run outside of any lock, and concurrent misses of the same key share a single query. Keys without any entry
+ * are cached as empty timelines, so repeated queries for unknown keys do not hit the database. At most
+ * {@link #EMPTY_TIMELINES_LIMIT} of them are kept, so queries for arbitrary keys cannot grow the cache without bounds;
+ * the least recently queried ones are evicted first. Timelines with entries are evicted once all cached timelines
+ * together hold more than {@link #CACHED_ENTRIES_LIMIT} entries. Listeners registered by {@link #onEviction(Consumer)}
+ * are notified about timelines that have been evicted due to these bounds.
+ */
+@Slf4j
+@Component
+public class ScheduledConfigCache {
+    // Upper bound for the number of keys that are loaded with a single query
+    static final int LOAD_BATCH_SIZE = 500;
+    // Upper bound for the number of cached timelines of keys without any entry
+    static final int EMPTY_TIMELINES_LIMIT = 10_000;
+    // Upper bound for the number of entries of all cached timelines
+    static final int CACHED_ENTRIES_LIMIT = 100_000;
+
+    private final ScheduledConfigRepository entryRepository;
+    private final List<Consumer<String>> evictionListeners = new CopyOnWriteArrayList<>();
+    // Weighed by their number of entries, hence empty timelines are only evicted along with their emptyKeys
+    private final Cache<String, ScheduledConfigTimeline> timelines = CacheBuilder.newBuilder()
+            .maximumWeight(CACHED_ENTRIES_LIMIT)
+            .<String, ScheduledConfigTimeline>weigher((key, timeline) -> timeline.size())
+            .<String, ScheduledConfigTimeline>removalListener(removal -> {
+                if (removal.wasEvicted()) {
+                    evicted(removal.getKey());
+                }
+            })
+            .build();
+    // Keys of cached empty timelines; evicted keys are removed from the timelines unless entries have been added since
+    private final Cache<String, Boolean> emptyKeys = CacheBuilder.newBuilder()
+            .maximumSize(EMPTY_TIMELINES_LIMIT)
+            .<String, Boolean>removalListener(removal -> {
+                if (removal.wasEvicted()) {
+                    timelines.asMap().computeIfPresent(removal.getKey(), (key, timeline) -> timeline.isEmpty() ? null : timeline);
+                    evicted(removal.getKey());
+                }
+            })
+            .build();
+    private final SingleFlight<String, ScheduledConfigTimeline> loads;
+    // Loads whose query is running; guarded by this
+    private final List<BatchLoad> runningLoads = new ArrayList<>();
+
+    public ScheduledConfigCache(ScheduledConfigRepository entryRepository, MeterRegistry meterRegistry) {
+        this.entryRepository = entryRepository;
+        this.loads = new SingleFlight<>(Counter.builder(ScheduledConfigService.METRIC_COALESCED)
+                .description("Lookups that shared the database query of a concurrent lookup of the same key")
+                .tag(ScheduledConfigService.TAG_QUERY, "timeline")
+                .register(meterRegistry));
+    }
+
+    /**
+     * @param key Normalized configuration key
+     * @return The cached timeline of the given key; loaded from the database on cache misses
+     */
+    public ScheduledConfigTimeline timeline(String key) {
+        ScheduledConfigTimeline timeline = timelines.getIfPresent(key);
+        if (timeline == null) {
+            timeline = loads.load(key, this::load);
+        }
+        if (timeline.isEmpty()) {
+            emptyKeys.put(key, Boolean.TRUE);
+        }
+        return timeline;
+    }
+
+    /**
+     * Resolves multiple timelines at once. Missing timelines are loaded in batches of at most {@link #LOAD_BATCH_SIZE}
+     * keys per query.
+     *
+     * @param keys Normalized configuration keys
+     * @return The cached timelines of the given keys
+     */
+    public Map<String, ScheduledConfigTimeline> timelines(Collection<String> keys) {
+        Map<String, ScheduledConfigTimeline> result = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String key : keys) {
+            ScheduledConfigTimeline timeline = timelines.getIfPresent(key);
+            if (timeline == null) {
+                missing.add(key);
+            } else {
+                result.put(key, timeline);
+            }
+        }
+
+        for (List<String> batch : Lists.partition(missing, LOAD_BATCH_SIZE)) {
+            LOG.debug("Loading timelines of {} keys", batch.size());
+            result.putAll(load(batch, entryRepository::findTimelines));
+        }
+        result.forEach((key, timeline) -> {
+            if (timeline.isEmpty()) {
+                emptyKeys.put(key, Boolean.TRUE);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Adds a saved entry to the timeline of its key. Keys that have not been loaded yet are left untouched since their
+     * timeline will contain the entry as soon as it is loaded.
+     *
+     * @param entry Entry that has been saved successfully
+     */
+    public synchronized void add(ScheduledConfigEntry entry) {
+        for (BatchLoad load : runningLoads) {
+            load.added(entry);
+        }
+        timelines.asMap().computeIfPresent(entry.getKey(), (key, timeline) -> timeline.with(entry));
+    }
+
+    /**
+     * @param key Normalized configuration key
+     * @return The cached timeline of the given key; empty if it has not been loaded yet or has been evicted
+     */
+    public Optional<ScheduledConfigTimeline> cached(String key) {
+        return Optional.ofNullable(timelines.getIfPresent(key));
+    }
+
+    /**
+     * @return A weakly consistent view of all timelines loaded so far
+     */
+    public Collection<ScheduledConfigTimeline> timelines() {
+        return Collections.unmodifiableCollection(timelines.asMap().values());
+    }
+
+    /**
+     * Registers a listener for timelines that are evicted due to the bounds of this cache. It is called on the thread
+     * that caused the eviction, possibly while holding locks of this cache, hence it must neither block nor call back.
+     * Notifications might be spurious, e.g. if an empty timeline has received entries meanwhile.
+     *
+     * @param listener Called with the normalized key of each evicted timeline
+     */
+    public void onEviction(Consumer<String> listener) {
+        evictionListeners.add(listener);
+    }
+
+    public void evict(String key) {
+        synchronized (this) {
+            for (BatchLoad load : runningLoads) {
+                load.evicted(key);
+            }
+        }
+        // Later lookups must not share a load that may have been read before the change
+        loads.forget(List.of(key));
+        timelines.invalidate(key);
+        emptyKeys.invalidate(key);
+    }
+
+    public void clear() {
+        synchronized (this) {
+            runningLoads.forEach(BatchLoad::evictedAll);
+        }
+        timelines.invalidateAll();
+        emptyKeys.invalidateAll();
+    }
+
+    private void evicted(String key) {
+        for (Consumer<String> listener : evictionListeners) {
+            listener.accept(key);
+        }
+    }
+
+    private ScheduledConfigTimeline load(String key) {
+        LOG.debug("Loading timeline of key '{}'", key);
+        return load(List.of(key), keys -> entryRepository.findTimeline(key)).get(key);
+    }
+
+    /**
+     * Entries that are added while the query of a load is running might be missing in its result. Instead of repeating
+     * the query, they are applied to the loaded timelines, which is idempotent for entries that have been loaded
+     * already. Timelines of keys that have been evicted meanwhile are returned but not cached.
+     */
+    private Map<String, ScheduledConfigTimeline> load(List<String> keys, Function<List<String>, List<ScheduledConfigEntry>> query) {
+        BatchLoad load = new BatchLoad(keys);
+        synchronized (this) {
+            runningLoads.add(load);
+        }
+        Map<String, List<ScheduledConfigEntry>> entriesByKey;
+        try {
+            entriesByKey = query.apply(keys).stream()
+                    .collect(Collectors.groupingBy(entry -> entry.getKey().toLowerCase(AppConstants.DEFAULT_LOCALE)));
+        } finally {
+            synchronized (this) {
+                runningLoads.remove(load);
+            }
+        }
+
+        synchronized (this) {
+            Map<String, ScheduledConfigTimeline> result = new HashMap<>();
+            for (String key : keys) {
+                ScheduledConfigTimeline loaded = load.reconcile(ScheduledConfigTimeline.of(key, entriesByKey.getOrDefault(key, List.of())));
+                if (load.evicted.contains(key)) {
+                    result.put(key, loaded);
+                } else {
+                    ScheduledConfigTimeline cached = timelines.asMap().putIfAbsent(key, loaded);
+                    result.put(key, cached == null ? loaded : cached);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Changes of the keys of a load that happen while its query is running
+     */
+    private static final class BatchLoad {
+        private final Set<String> keys;
+        // Added entries by key in the order they have been added
+        private final Map<String, List<ScheduledConfigEntry>> added = new HashMap<>();
+        private final Set<String> evicted = new HashSet<>();
+
+        private BatchLoad(List<String> keys) {
+            this.keys = new HashSet<>(keys);
+        }
+
+        private void added(ScheduledConfigEntry entry) {
+            if (keys.contains(entry.getKey())) {
+                added.computeIfAbsent(entry.getKey(), key -> new ArrayList<>()).add(entry);
+            }
+        }
+
+        private ScheduledConfigTimeline reconcile(ScheduledConfigTimeline loaded) {
+            ScheduledConfigTimeline result = loaded;
+            for (ScheduledConfigEntry entry : added.getOrDefault(loaded.getKey(), List.of())) {
+                result = result.with(entry);
+            }
+            return result;
+        }
+
+        private void evicted(String key) {
+            if (keys.contains(key)) {
+                evicted.add(key);
+            }
+        }
+
+        private void evictedAll() {
+            evicted.addAll(keys);
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+package de.mczul.config.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.mczul.config.AppConstants;
+import de.mczul.config.model.ScheduledConfigEntry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes all entries including their history to a stream. Entries are read with a forward-only cursor and detached
+ * once they have been written, hence heap usage does not depend on the number of exported entries.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ScheduledConfigExporter {
+    static final String CSV_HEADER = "id,key,valid_from,value,created,comment,author";
+
+    private final ScheduledConfigRepository entryRepository;
+    private final ScheduledConfigMapper mapper;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+
+    /**
+     * @param format       Output format
+     * @param prefix       Key prefix in arbitrary representation; empty for all keys
+     * @param createdFrom  Inclusive lower bound of the created timestamp or null
+     * @param createdUntil Exclusive upper bound of the created timestamp or null
+     * @param target       Stream the entries are written to; is flushed but not closed
+     * @return Number of exported entries
+     * @throws IOException If the target could not be written
+     */
+    @Transactional(readOnly = true)
+    public long export(ExportFormat format, String prefix, ZonedDateTime createdFrom, ZonedDateTime createdUntil, OutputStream target) throws IOException {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8));
+        if (format == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        long count = 0;
+        try (Stream<ScheduledConfigEntry> entries = entryRepository.streamAll(toKeyPattern(prefix), createdFrom, createdUntil)) {
+            Iterator<ScheduledConfigEntry> iterator = entries.iterator();
+            while (iterator.hasNext()) {
+                ScheduledConfigEntry entry = iterator.next();
+                if (format == ExportFormat.CSV) {
+                    writeCsv(writer, entry);
+                } else {
+                    writer.write(objectMapper.writeValueAsString(mapper.toPast(entry)));
+                }
+                writer.write('\n');
+                entityManager.detach(entry);
+                if (entry.getContent() != null) {
+                    // Shared contents are not detached along with the entry; the next use is served by the cache
+                    entityManager.detach(entry.getContent());
+                }
+                count++;
+            }
+        }
+        writer.flush();
+        LOG.info("Exported {} entries as {}", count, format);
+        return count;
+    }
+
+    static String toKeyPattern(String prefix) {
+        return prefix.toLowerCase(AppConstants.DEFAULT_LOCALE)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+    }
+
+    private static void writeCsv(Writer writer, ScheduledConfigEntry entry) throws IOException {
+        writer.write(String.valueOf(entry.getId()));
+        for (String field : new String[]{
+                entry.getKey(),
+                format(entry.getValidFrom()),
+                entry.getValue(),
+                format(entry.getCreated()),
+                entry.getComment(),
+                entry.getAuthor()
+        }) {
+            writer.write(',');
+            writer.write(escapeCsv(field));
+        }
+    }
+
+    private static String format(ZonedDateTime timestamp) {
+        return timestamp == null ? null : DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(timestamp);
+    }
+
+    /**
+     * Quotes fields according to RFC 4180; null is represented by an empty field and an empty string by a quoted one
+     */
+    static String escapeCsv(String field) {
+        if (field == null) {
+            return "";
+        }
+        if (field.isEmpty()) {
+            return "\"\"";
+        }
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+            return field;
+        }
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+
+}
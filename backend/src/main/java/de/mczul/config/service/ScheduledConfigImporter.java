@@ -0,0 +1,157 @@
+package de.mczul.config.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.mczul.config.model.ImportError;
+import de.mczul.config.model.ImportReport;
+import de.mczul.config.model.ScheduledConfigDto;
+import de.mczul.config.model.ScheduledConfigEntry;
+import de.mczul.config.model.Violation;
+import de.mczul.config.validation.ValidationGroups.OnCreate;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import javax.validation.groups.Default;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports newline delimited JSON documents with one {@link ScheduledConfigDto} per line. The document is read line by
+ * line and written in chunks of {@link #CHUNK_SIZE} entries, hence memory consumption does not depend on its size.
+ * <p>
+ * Every chunk is saved in its own transaction, so lines that have been imported before a failure are kept. If a chunk
+ * is rejected by the database, its entries are saved one by one in order to attribute the failure to the causing
+ * lines.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ScheduledConfigImporter {
+    // Number of entries per transaction; a multiple of the JDBC batch size
+    static final int CHUNK_SIZE = 1_000;
+    // Upper bound for the number of errors that are part of the report
+    static final int MAX_REPORTED_ERRORS = 100;
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ScheduledConfigMapper mapper;
+    private final ScheduledConfigService service;
+
+    /**
+     * @param source Newline delimited JSON document; blank lines are skipped
+     * @return Report with the outcome of all lines
+     * @throws IOException If the document could not be read
+     */
+    public ImportReport importEntries(BufferedReader source) throws IOException {
+        final long start = System.nanoTime();
+        final Run run = new Run();
+
+        String line;
+        int lineNumber = 0;
+        while ((line = source.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            run.lines++;
+            parse(run, lineNumber, line);
+            if (run.chunk.size() == CHUNK_SIZE) {
+                save(run);
+            }
+        }
+        save(run);
+        run.errors.sort(Comparator.comparingInt(ImportError::getLine));
+
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        double entriesPerSecond = durationMillis == 0 ? run.imported : run.imported * 1_000d / durationMillis;
+        LOG.info("Imported {} of {} lines in {} ms ({} entries/s)", run.imported, run.lines, durationMillis, Math.round(entriesPerSecond));
+        return ImportReport.builder()
+                .lines(run.lines)
+                .imported(run.imported)
+                .failed(run.failed)
+                .durationMillis(durationMillis)
+                .entriesPerSecond(entriesPerSecond)
+                .errors(run.errors)
+                .errorsTruncated(run.failed > run.errors.size())
+                .build();
+    }
+
+    private void parse(Run run, int lineNumber, String line) {
+        ScheduledConfigDto dto;
+        try {
+            dto = objectMapper.readValue(line, ScheduledConfigDto.class);
+        } catch (JsonProcessingException e) {
+            run.fail(lineNumber, List.of(Violation.builder().message(e.getOriginalMessage()).build()));
+            return;
+        }
+        if (dto.getHistory() == null) {
+            // The history is never imported, hence may be omitted
+            dto = dto.withHistory(List.of());
+        }
+
+        // Same constraints as for entries posted one by one
+        Set<ConstraintViolation<ScheduledConfigDto>> constraintViolations = validator.validate(dto, Default.class, OnCreate.class);
+        if (!constraintViolations.isEmpty()) {
+            List<Violation> violations = new ArrayList<>();
+            for (ConstraintViolation<ScheduledConfigDto> violation : constraintViolations) {
+                violations.add(Violation.builder()
+                        .fieldName(violation.getPropertyPath().toString())
+                        .message(violation.getMessage())
+                        .build());
+            }
+            run.fail(lineNumber, violations);
+            return;
+        }
+
+        run.chunk.add(mapper.toEntry(dto));
+        run.chunkLines.add(lineNumber);
+    }
+
+    private void save(Run run) {
+        if (run.chunk.isEmpty()) {
+            return;
+        }
+        try {
+            service.setAll(run.chunk);
+            run.imported += run.chunk.size();
+        } catch (DataAccessException e) {
+            LOG.debug("Chunk ending with line {} has been rejected; saving its entries one by one", run.chunkLines.get(run.chunkLines.size() - 1), e);
+            for (int i = 0; i < run.chunk.size(); i++) {
+                try {
+                    service.set(run.chunk.get(i));
+                    run.imported++;
+                } catch (DataAccessException entryException) {
+                    run.fail(run.chunkLines.get(i), List.of(Violation.builder().message(entryException.getMostSpecificCause().getMessage()).build()));
+                }
+            }
+        }
+        run.chunk.clear();
+        run.chunkLines.clear();
+    }
+
+    private static class Run {
+        private final List<ScheduledConfigEntry> chunk = new ArrayList<>(CHUNK_SIZE);
+        private final List<Integer> chunkLines = new ArrayList<>(CHUNK_SIZE);
+        private final List<ImportError> errors = new ArrayList<>();
+        private int lines;
+        private int imported;
+        private int failed;
+
+        private void fail(int line, List<Violation> violations) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(ImportError.builder().line(line).violations(violations).build());
+            }
+        }
+    }
+
+}
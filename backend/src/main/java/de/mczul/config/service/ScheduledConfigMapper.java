@@ -1,37 +1,154 @@
 package de.mczul.config.service;
 
-import de.mczul.config.model.ScheduledConfig;
+import com.google.common.collect.Lists;
+import de.mczul.config.AppConstants;
 import de.mczul.config.model.ScheduledConfigDto;
 import de.mczul.config.model.ScheduledConfigEntry;
 import de.mczul.config.model.ScheduledConfigPast;
 import org.mapstruct.*;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Mapper
 public abstract class ScheduledConfigMapper {
+    // Upper bound for the number of keys whose history is loaded with a single query
+    static final int HISTORY_BATCH_SIZE = 500;
+
     @Autowired
     protected ScheduledConfigRepository scheduledConfigRepository;
+    @Autowired
+    protected ScheduledConfigArchive scheduledConfigArchive;
 
     @Mappings({
             @Mapping(target = "history", ignore = true),
             @Mapping(target = "historyEntry", ignore = true),
     })
-    public abstract ScheduledConfigDto toDto(ScheduledConfigEntry entry);
+    protected abstract ScheduledConfigDto toDtoWithoutHistory(ScheduledConfigEntry entry);
 
-    @InheritInverseConfiguration
+    @InheritInverseConfiguration(name = "toDtoWithoutHistory")
+    @Mappings({
+            @Mapping(target = "normalizedKey", ignore = true),
+            @Mapping(target = "content", ignore = true),
+            @Mapping(target = "legacyValue", ignore = true),
+    })
     public abstract ScheduledConfigEntry toEntry(ScheduledConfigDto dto);
 
     public abstract ScheduledConfigPast toPast(ScheduledConfigEntry entry);
 
-    @AfterMapping
-    public void enrich(ScheduledConfig source, @MappingTarget ScheduledConfigDto.ScheduledConfigDtoBuilder dtoBuilder) {
-        // history
-        List<ScheduledConfigEntry> entries = scheduledConfigRepository.findHistory(source.getKey(), source.getCreated());
-        List<ScheduledConfigPast> history = entries.stream().map(this::toPast).collect(Collectors.toUnmodifiableList());
-        dtoBuilder.history(history);
+    public ScheduledConfigDto toDto(ScheduledConfigEntry entry) {
+        return toDto(entry, null);
+    }
+
+    /**
+     * @param entry        Entry to be mapped
+     * @param historyLimit Maximum number of history entries; null for the complete history and 0 to skip loading it
+     * @return DTO with the history of entries that have been created before the given one; limited histories are
+     * limited by the database like those of {@link #toDtos(List, Integer)}, and archived entries are only read if the
+     * entries of the scheduled_config table do not satisfy the limit
+     */
+    public ScheduledConfigDto toDto(ScheduledConfigEntry entry, Integer historyLimit) {
+        if (historyLimit != null) {
+            return toDtos(List.of(entry), historyLimit).get(0);
+        }
+        ScheduledConfigDto dto = toDtoWithoutHistory(entry);
+        List<ScheduledConfigEntry> history = scheduledConfigRepository.findHistory(entry.getKey(), entry.getCreated());
+        return dto.withHistory(toHistory(withArchived(entry, history, historyLimit, scheduledConfigArchive::find), historyLimit));
+    }
+
+    /**
+     * Maps multiple entries and loads their history with one query per {@link #HISTORY_BATCH_SIZE} distinct keys
+     * instead of one query per entry. Limited histories are limited by the database, so keys with a long history do not
+     * load all of it.
+     *
+     * @param entries      Entries to be mapped
+     * @param historyLimit Maximum number of history entries per entry; null for the complete history and 0 to skip
+     *                     loading it
+     * @return DTOs in the order of the given entries
+     */
+    public List<ScheduledConfigDto> toDtos(List<ScheduledConfigEntry> entries, Integer historyLimit) {
+        if (historyLimit != null && historyLimit == 0) {
+            return entries.stream()
+                    .map(entry -> toDtoWithoutHistory(entry).withHistory(List.of()))
+                    .collect(Collectors.toUnmodifiableList());
+        }
+
+        Map<String, List<Integer>> idsByKey = entries.stream()
+                .collect(Collectors.groupingBy(ScheduledConfigMapper::normalizedKey, LinkedHashMap::new, Collectors.mapping(ScheduledConfigEntry::getId, Collectors.toList())));
+        List<String> keys = List.copyOf(idsByKey.keySet());
+        List<ScheduledConfigEntry> candidates = new ArrayList<>();
+        for (List<String> batch : Lists.partition(keys, HISTORY_BATCH_SIZE)) {
+            if (historyLimit == null) {
+                candidates.addAll(scheduledConfigRepository.findHistories(batch));
+            } else {
+                List<Integer> ids = batch.stream().flatMap(key -> idsByKey.get(key).stream()).collect(Collectors.toUnmodifiableList());
+                candidates.addAll(scheduledConfigRepository.findHistories(batch, ids, historyLimit));
+            }
+        }
+        // Query result is ordered by creation timestamp (descending), which is preserved by grouping
+        Map<String, List<ScheduledConfigEntry>> candidatesByKey = candidates.stream()
+                .collect(Collectors.groupingBy(ScheduledConfigMapper::normalizedKey));
+
+        // Archived entries are read at most once per key
+        Map<String, List<ScheduledConfigEntry>> archivedByKey = new HashMap<>();
+        return entries.stream()
+                .map(entry -> {
+                    List<ScheduledConfigEntry> history = candidatesByKey.getOrDefault(normalizedKey(entry), List.of()).stream()
+                            .filter(candidate -> candidate.getCreated().isBefore(entry.getCreated()))
+                            .collect(Collectors.toUnmodifiableList());
+                    Stream<ScheduledConfigEntry> merged = withArchived(entry, history, historyLimit,
+                            key -> archivedByKey.computeIfAbsent(key, scheduledConfigArchive::find));
+                    return toDtoWithoutHistory(entry).withHistory(toHistory(merged, historyLimit));
+                })
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    /**
+     * @param history Entries of the scheduled_config table in descending order of their creation timestamps
+     * @param archive Reads the archived entries of a normalized key
+     * @return The given history completed with archived entries in descending order of their creation timestamps
+     */
+    private static Stream<ScheduledConfigEntry> withArchived(
+            ScheduledConfigEntry entry,
+            List<ScheduledConfigEntry> history,
+            Integer historyLimit,
+            Function<String, List<ScheduledConfigEntry>> archive
+    ) {
+        if (historyLimit != null && history.size() >= historyLimit) {
+            return history.stream();
+        }
+        Set<Integer> ids = history.stream().map(ScheduledConfigEntry::getId).collect(Collectors.toCollection(HashSet::new));
+        List<ScheduledConfigEntry> archived = archive.apply(normalizedKey(entry)).stream()
+                // Same criteria as for the entries of the scheduled_config table
+                .filter(candidate -> normalizedKey(candidate).equals(normalizedKey(entry)))
+                .filter(candidate -> candidate.getCreated().isBefore(entry.getCreated()))
+                // Copies of entries whose deletion has been rolled back, which are archived again by a later cleanup
+                .filter(candidate -> ids.add(candidate.getId()))
+                .collect(Collectors.toUnmodifiableList());
+        if (archived.isEmpty()) {
+            return history.stream();
+        }
+        return Stream.concat(history.stream(), archived.stream())
+                .sorted(Comparator.comparing(ScheduledConfigEntry::getCreated).reversed());
+    }
+
+    private static String normalizedKey(ScheduledConfigEntry entry) {
+        return entry.getKey().toLowerCase(AppConstants.DEFAULT_LOCALE);
+    }
+
+    private List<ScheduledConfigPast> toHistory(Stream<ScheduledConfigEntry> entries, Integer historyLimit) {
+        Stream<ScheduledConfigEntry> limited = historyLimit == null ? entries : entries.limit(historyLimit);
+        return limited.map(this::toPast).collect(Collectors.toUnmodifiableList());
     }
 
 }
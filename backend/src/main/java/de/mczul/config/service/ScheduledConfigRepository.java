@@ -1,55 +1,287 @@
 package de.mczul.config.service;
 
+import de.mczul.config.AppConstants;
+import de.mczul.config.model.ConfigValue;
 import de.mczul.config.model.ScheduledConfigEntry;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ScheduledConfigRepository extends JpaRepository<ScheduledConfigEntry, Integer> {
+    int EXPORT_FETCH_SIZE = 500;
+    // Query cache regions; cached results are invalidated by Hibernate whenever the scheduled_config table is written
+    String HISTORY_CACHE_REGION = "scheduled-config-history";
+    String LATEST_CACHE_REGION = "scheduled-config-latest";
 
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHE_REGION, value = HISTORY_CACHE_REGION),
+    })
     List<ScheduledConfigEntry> findByKey(String key);
 
-    @Query("SELECT e1 " +
-            "FROM ScheduledConfigEntry e1 " +
-            "WHERE lower(e1.key) = lower(?1) " +
-            "AND e1.validFrom <= current_timestamp " +
-            "AND NOT EXISTS( " +
-            "   SELECT 'x' " +
-            "   FROM ScheduledConfigEntry e2 " +
-            "   WHERE lower(e1.key) = lower(e2.key) " +
-            "   AND e2.validFrom <= current_timestamp " +
-            "   AND e2.validFrom > e1.validFrom " +
-            ")")
-    Optional<ScheduledConfigEntry> findCurrentByKey(String key);
+    Optional<ScheduledConfigEntry> findFirstByNormalizedKeyAndValidFromLessThanEqualOrderByValidFromDesc(String normalizedKey, ZonedDateTime referenceTime);
+
+    /**
+     * Top-1 seek on the (normalized_key, valid_from DESC) index
+     */
+    default Optional<ScheduledConfigEntry> findCurrentByKey(String key) {
+        return findFirstByNormalizedKeyAndValidFromLessThanEqualOrderByValidFromDesc(key.toLowerCase(AppConstants.DEFAULT_LOCALE), ZonedDateTime.now(ZoneId.of(AppConstants.DEFAULT_TIMEZONE)));
+    }
+
+    @Query("SELECT new de.mczul.config.model.ConfigValue(e.normalizedKey, v.value, e.legacyValue, e.validFrom) " +
+            "FROM ScheduledConfigEntry e LEFT JOIN e.content v " +
+            "WHERE e.normalizedKey = ?1 " +
+            "AND e.validFrom <= ?2 " +
+            "ORDER BY e.validFrom DESC")
+    List<ConfigValue> findCurrentValues(String normalizedKey, ZonedDateTime referenceTime, Pageable pageable);
 
+    /**
+     * Projection variant of {@link #findCurrentByKey(String)} with the same index seek
+     *
+     * @param normalizedKey Normalized configuration key
+     * @param referenceTime Point in time the value has to be valid at
+     */
+    default Optional<ConfigValue> findCurrentValue(String normalizedKey, ZonedDateTime referenceTime) {
+        return findCurrentValues(normalizedKey, referenceTime, PageRequest.of(0, 1)).stream().findFirst();
+    }
+
+    /**
+     * Content hash and value of the current entry as they are stored; see
+     * {@link CurrentValueRepository#findEffectiveRepresentation(String, ZonedDateTime)}
+     */
+    @Query(nativeQuery = true, value = "SELECT s.value_hash, CAST(COALESCE(v.value, s.value) AS VARCHAR) " +
+            "FROM config.scheduled_config s LEFT JOIN config.value_content v ON v.hash = s.value_hash " +
+            "WHERE s.normalized_key = ?1 " +
+            "AND s.valid_from <= ?2 " +
+            "ORDER BY s.valid_from DESC " +
+            "LIMIT 1")
+    List<Object[]> findCurrentRepresentation(String normalizedKey, ZonedDateTime referenceTime);
+
+    /**
+     * Populates the {@link ScheduledConfigCache}, whose timelines are kept until the key changes again, hence runs in a
+     * read-write transaction that is never routed to a lagging replica; see {@link ReadWriteRoutingDataSource}
+     */
+    @Transactional
+    @Query("SELECT e " +
+            "FROM ScheduledConfigEntry e LEFT JOIN FETCH e.content " +
+            "WHERE e.normalizedKey = lower(?1) " +
+            "ORDER BY e.validFrom")
+    List<ScheduledConfigEntry> findTimeline(String key);
+
+    /**
+     * Batch variant of {@link #findTimeline(String)}, which is never routed to the replica either
+     */
+    @Transactional
+    @Query("SELECT e " +
+            "FROM ScheduledConfigEntry e LEFT JOIN FETCH e.content " +
+            "WHERE e.normalizedKey IN ?1 " +
+            "ORDER BY e.normalizedKey, e.validFrom")
+    List<ScheduledConfigEntry> findTimelines(Collection<String> keys);
+
+    /**
+     * Valid from timestamps of a key starting at the given one with a seek on the (normalized_key, valid_from DESC)
+     * index, so conflicts of writes can be detected without loading the timeline. Never routed to the replica, since
+     * writes have to see the entries that have just been committed.
+     *
+     * @param normalizedKey Normalized configuration key
+     * @param validFrom     Earliest valid from timestamp (inclusive)
+     * @param pageable      Unsorted page request whose offset is always 0
+     */
+    @Transactional
+    @Query("SELECT e.validFrom " +
+            "FROM ScheduledConfigEntry e " +
+            "WHERE e.normalizedKey = ?1 " +
+            "AND e.validFrom >= ?2 " +
+            "ORDER BY e.validFrom")
+    List<ZonedDateTime> findValidFromsSince(String normalizedKey, ZonedDateTime validFrom, Pageable pageable);
+
+    @Query("SELECT DISTINCT e.normalizedKey FROM ScheduledConfigEntry e")
+    List<String> findAllKeys();
+
+    /**
+     * Probes for a newer entry that is already valid with a seek on the (normalized_key, valid_from DESC) index
+     */
     @Query("SELECT e1 " +
-            "FROM ScheduledConfigEntry e1 " +
+            "FROM ScheduledConfigEntry e1 LEFT JOIN FETCH e1.content " +
             "WHERE e1.validFrom <= current_timestamp " +
             "AND EXISTS( " +
             "   SELECT 'x' " +
             "   FROM ScheduledConfigEntry e2 " +
-            "   WHERE e1.key = e2.key " +
+            "   WHERE e1.normalizedKey = e2.normalizedKey " +
             "   AND e2.validFrom <= current_timestamp " +
             "   AND e2.validFrom > e1.validFrom " +
             ")")
     List<ScheduledConfigEntry> findOutdated();
 
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHE_REGION, value = HISTORY_CACHE_REGION),
+    })
     @Query("SELECT e " +
-            "FROM ScheduledConfigEntry e " +
-            "WHERE e.key = ?1 " +
+            "FROM ScheduledConfigEntry e LEFT JOIN FETCH e.content " +
+            "WHERE e.normalizedKey = lower(?1) " +
             "AND e.created < ?2 " +
             "ORDER BY e.created DESC")
     List<ScheduledConfigEntry> findHistory(String key, ZonedDateTime limit);
 
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHE_REGION, value = HISTORY_CACHE_REGION),
+    })
+    @Query("SELECT e " +
+            "FROM ScheduledConfigEntry e LEFT JOIN FETCH e.content " +
+            "WHERE e.normalizedKey IN ?1 " +
+            "ORDER BY e.normalizedKey, e.created DESC")
+    List<ScheduledConfigEntry> findHistories(Collection<String> normalizedKeys);
+
+    /**
+     * Same as {@link #findHistories(Collection)}, but limited by the database to the entries that can be part of a
+     * history of at most the given number of entries for any of the given entries. Entries are ranked per key by their
+     * creation timestamp; the history of an entry starts after all entries of its key that have been created at the same
+     * time or later. The result is not cached, since Hibernate does not know the tables of native queries.
+     *
+     * @param normalizedKeys Normalized keys of the given entries
+     * @param ids            Ids of the entries whose history is loaded
+     * @param historyLimit   Maximum number of history entries per entry
+     */
+    @Query(nativeQuery = true, value = "SELECT h.id, h.key, h.normalized_key, h.valid_from, h.value_hash, h.value, h.created, h.comment, h.author " +
+            "FROM (SELECT r.*, MAX(CASE WHEN r.id IN ?2 THEN r.history_position END) OVER (PARTITION BY r.normalized_key) AS history_start " +
+            "FROM (SELECT s.*, " +
+            "ROW_NUMBER() OVER (PARTITION BY s.normalized_key ORDER BY s.created DESC) AS history_rank, " +
+            "COUNT(*) OVER (PARTITION BY s.normalized_key ORDER BY s.created DESC) AS history_position " +
+            "FROM config.scheduled_config s WHERE s.normalized_key IN ?1) r) h " +
+            "WHERE h.history_rank <= h.history_start + ?3 " +
+            "ORDER BY h.normalized_key, h.created DESC")
+    List<ScheduledConfigEntry> findHistories(Collection<String> normalizedKeys, Collection<Integer> ids, int historyLimit);
+
+    /**
+     * Probes for a newer entry with a seek on the (normalized_key, created DESC) index
+     */
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHE_REGION, value = LATEST_CACHE_REGION),
+    })
     @Query("SELECT e1 " +
             "FROM ScheduledConfigEntry e1 " +
             "WHERE NOT EXISTS (" +
-            "   SELECT 'X' FROM ScheduledConfigEntry e2 WHERE e2.key = e1.key AND e2.created > e1.created" +
+            "   SELECT 'X' FROM ScheduledConfigEntry e2 WHERE e2.normalizedKey = e1.normalizedKey AND e2.created > e1.created" +
             ")")
     Page<ScheduledConfigEntry> findAllLatest(Pageable pageable);
+
+    /**
+     * First slice of {@link #findAllLatest(Pageable)} ordered by key and validFrom without an additional count query.
+     *
+     * @param pageable Unsorted page request whose offset is always 0
+     */
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHE_REGION, value = LATEST_CACHE_REGION),
+    })
+    @Query("SELECT e1 " +
+            "FROM ScheduledConfigEntry e1 LEFT JOIN FETCH e1.content " +
+            "WHERE NOT EXISTS (" +
+            "   SELECT 'X' FROM ScheduledConfigEntry e2 WHERE e2.normalizedKey = e1.normalizedKey AND e2.created > e1.created" +
+            ") " +
+            "ORDER BY e1.key, e1.validFrom")
+    Slice<ScheduledConfigEntry> findLatestSlice(Pageable pageable);
+
+    /**
+     * Continues {@link #findLatestSlice(Pageable)} after the given position (exclusive), hence the cost of a slice does
+     * not depend on the number of preceding entries.
+     *
+     * @param key       Key of the last entry of the previous slice
+     * @param validFrom Valid from timestamp of the last entry of the previous slice
+     * @param pageable  Unsorted page request whose offset is always 0
+     */
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHE_REGION, value = LATEST_CACHE_REGION),
+    })
+    @Query("SELECT e1 " +
+            "FROM ScheduledConfigEntry e1 LEFT JOIN FETCH e1.content " +
+            "WHERE e1.key >= ?1 " +
+            "AND (e1.key > ?1 OR e1.validFrom > ?2) " +
+            "AND NOT EXISTS (" +
+            "   SELECT 'X' FROM ScheduledConfigEntry e2 WHERE e2.normalizedKey = e1.normalizedKey AND e2.created > e1.created" +
+            ") " +
+            "ORDER BY e1.key, e1.validFrom")
+    Slice<ScheduledConfigEntry> findLatestSliceAfter(String key, ZonedDateTime validFrom, Pageable pageable);
+
+    /**
+     * Entries after the given id (exclusive) whose value is stored inline; see
+     * {@link de.mczul.config.model.ScheduledConfigEntry#getLegacyValue()}
+     */
+    @Query("SELECT e " +
+            "FROM ScheduledConfigEntry e " +
+            "WHERE e.id > ?1 " +
+            "AND e.content IS NULL " +
+            "AND e.legacyValue IS NOT NULL " +
+            "ORDER BY e.id")
+    List<ScheduledConfigEntry> findInlineValuesAfter(int after, Pageable pageable);
+
+    @Query("SELECT e.id FROM ScheduledConfigEntry e WHERE e.id > ?1 ORDER BY e.id")
+    List<Integer> findIdsAfter(int after, Pageable pageable);
+
+    /**
+     * Selects entries of an id range that have been created before the given timestamp and have been superseded by at
+     * least the given number of entries that are effective by now. Successors are counted with a range scan on the
+     * (normalized_key, valid_from DESC) index.
+     *
+     * @param after         Exclusive lower bound of the id range
+     * @param upTo          Inclusive upper bound of the id range
+     * @param createdBefore Exclusive upper bound of the created timestamp
+     * @param now           Reference time for successors to be effective
+     * @param successors    Minimum number of effective successors
+     */
+    @Query("SELECT e.id " +
+            "FROM ScheduledConfigEntry e " +
+            "WHERE e.id > ?1 " +
+            "AND e.id <= ?2 " +
+            "AND e.created < ?3 " +
+            "AND (" +
+            "   SELECT COUNT(n) FROM ScheduledConfigEntry n " +
+            "   WHERE n.normalizedKey = e.normalizedKey AND n.validFrom > e.validFrom AND n.validFrom <= ?4" +
+            ") >= ?5")
+    List<Integer> findPurgeable(int after, int upTo, ZonedDateTime createdBefore, ZonedDateTime now, long successors);
+
+    @Query("SELECT DISTINCT e.normalizedKey FROM ScheduledConfigEntry e WHERE e.id IN ?1")
+    List<String> findKeysByIds(Collection<Integer> ids);
+
+    @Modifying
+    @Query("DELETE FROM ScheduledConfigEntry e WHERE e.id IN ?1")
+    int deleteByIds(Collection<Integer> ids);
+
+    /**
+     * Forward-only cursor over all entries including their history; has to be consumed and closed within a transaction.
+     *
+     * @param keyPattern   LIKE pattern for normalized keys with backslash as escape character
+     * @param createdFrom  Inclusive lower bound of the created timestamp or null
+     * @param createdUntil Exclusive upper bound of the created timestamp or null
+     */
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true"),
+    })
+    @Query("SELECT e " +
+            "FROM ScheduledConfigEntry e LEFT JOIN FETCH e.content " +
+            "WHERE e.normalizedKey LIKE ?1 ESCAPE '\\' " +
+            "AND (?2 IS NULL OR e.created >= ?2) " +
+            "AND (?3 IS NULL OR e.created < ?3) " +
+            "ORDER BY e.normalizedKey, e.created")
+    Stream<ScheduledConfigEntry> streamAll(String keyPattern, ZonedDateTime createdFrom, ZonedDateTime createdUntil);
 }
@@ -0,0 +1,177 @@
+package de.mczul.config.service;
+
+import de.mczul.config.AppConstants;
+import de.mczul.config.model.ScheduledConfigEntry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Purges or archives entries according to the {@link RetentionProperties}, if enabled. The table is traversed in chunks of ascending ids and
+ * every chunk is processed in its own transaction, so neither result sets nor locks grow with the table.
+ */
+@Slf4j
+@Component
+public class ScheduledConfigRetention {
+    static final String METRIC_ROWS_SCANNED = "config.retention.rows.scanned";
+    static final String METRIC_ROWS_PURGED = "config.retention.rows.purged";
+    static final String METRIC_ROWS_ARCHIVED = "config.retention.rows.archived";
+    static final String METRIC_CHUNK_DURATION = "config.retention.chunk";
+
+    private final ScheduledConfigRepository entryRepository;
+    private final ScheduledConfigCache cache;
+    private final ScheduledConfigActivator activator;
+    private final ScheduledConfigArchive archive;
+    private final ValueContentStore valueContents;
+    private final ConfigChangeLog changeLog;
+    private final RetentionProperties properties;
+    private final TransactionTemplate chunkTransaction;
+    private final Counter rowsScanned;
+    private final Counter rowsPurged;
+    private final Counter rowsArchived;
+    private final Timer chunkDuration;
+
+    public ScheduledConfigRetention(
+            ScheduledConfigRepository entryRepository,
+            ScheduledConfigCache cache,
+            ScheduledConfigActivator activator,
+            ScheduledConfigArchive archive,
+            ValueContentStore valueContents,
+            ConfigChangeLog changeLog,
+            RetentionProperties properties,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry
+    ) {
+        this.entryRepository = entryRepository;
+        this.cache = cache;
+        this.activator = activator;
+        this.archive = archive;
+        this.valueContents = valueContents;
+        this.changeLog = changeLog;
+        this.properties = properties;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.rowsScanned = Counter.builder(METRIC_ROWS_SCANNED)
+                .description("Entries examined by the retention job")
+                .register(meterRegistry);
+        this.rowsPurged = Counter.builder(METRIC_ROWS_PURGED)
+                .description("Entries deleted by the retention job")
+                .register(meterRegistry);
+        this.rowsArchived = Counter.builder(METRIC_ROWS_ARCHIVED)
+                .description("Entries moved to the archive by the retention job")
+                .register(meterRegistry);
+        this.chunkDuration = Timer.builder(METRIC_CHUNK_DURATION)
+                .description("Time per chunk of the retention job")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return Number of purged entries
+     */
+    public int purge() {
+        return purge(() -> {
+        });
+    }
+
+    /**
+     * Variant of {@link #purge()} for the cleanup job; every chunk is only committed while the job holds its lease.
+     *
+     * @param lease Lease of the cleanup job
+     * @return Number of purged entries
+     */
+    public int purge(JobLease lease) {
+        return purge(lease::fence);
+    }
+
+    private int purge(Runnable fence) {
+        if (properties.getMode() == RetentionProperties.Mode.KEEP) {
+            LOG.debug("Retention is disabled; keeping all entries");
+            return 0;
+        }
+        final ZonedDateTime now = ZonedDateTime.now(ZoneId.of(AppConstants.DEFAULT_TIMEZONE));
+        final ZonedDateTime createdBefore = now.minus(properties.getKeepYoungerThan());
+        int scanned = 0;
+        int purged = 0;
+        int after = 0;
+        while (true) {
+            final int lowerBound = after;
+            Chunk chunk = chunkDuration.record(() -> chunkTransaction.execute(status -> {
+                fence.run();
+                return purgeChunk(lowerBound, createdBefore, now);
+            }));
+            if (chunk == null || chunk.scanned == 0) {
+                break;
+            }
+            scanned += chunk.scanned;
+            purged += chunk.purged;
+            after = chunk.upTo;
+        }
+        if (purged > 0) {
+            // Timelines of affected keys have been evicted
+            activator.publish();
+        }
+        // Includes contents of entries purged by previous runs that have been reused within the grace period
+        valueContents.purgeUnused();
+        LOG.info("Scanned {} entries and purged {} of them", scanned, purged);
+        return purged;
+    }
+
+    private Chunk purgeChunk(int after, ZonedDateTime createdBefore, ZonedDateTime now) {
+        List<Integer> ids = entryRepository.findIdsAfter(after, PageRequest.of(0, properties.getChunkSize()));
+        if (ids.isEmpty()) {
+            return new Chunk(0, 0, after);
+        }
+        final int upTo = ids.get(ids.size() - 1);
+        rowsScanned.increment(ids.size());
+
+        List<Integer> purgeable = entryRepository.findPurgeable(after, upTo, createdBefore, now, properties.getKeepVersions());
+        if (purgeable.isEmpty()) {
+            return new Chunk(ids.size(), 0, upTo);
+        }
+        List<String> keys;
+        if (properties.getMode() == RetentionProperties.Mode.ARCHIVE) {
+            List<ScheduledConfigEntry> archived = entryRepository.findAllById(purgeable);
+            // Written before the rows are deleted; a rollback leaves copies in the archive, which are ignored on read
+            archive.append(archived);
+            rowsArchived.increment(archived.size());
+            keys = archived.stream().map(ScheduledConfigEntry::getNormalizedKey).distinct().collect(Collectors.toUnmodifiableList());
+        } else {
+            keys = entryRepository.findKeysByIds(purgeable);
+        }
+        int purged = entryRepository.deleteByIds(purgeable);
+        rowsPurged.increment(purged);
+        // Other nodes evict the keys once the chunk has been committed, and so does this one
+        changeLog.record(keys);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                keys.forEach(cache::evict);
+            }
+        });
+        return new Chunk(ids.size(), purged, upTo);
+    }
+
+    private static final class Chunk {
+        private final int scanned;
+        private final int purged;
+        private final int upTo;
+
+        private Chunk(int scanned, int purged, int upTo) {
+            this.scanned = scanned;
+            this.purged = purged;
+            this.upTo = upTo;
+        }
+    }
+
+}
@@ -1,46 +1,285 @@
 package de.mczul.config.service;
 
 import de.mczul.config.AppConstants;
+import de.mczul.config.model.ConfigValue;
 import de.mczul.config.model.ScheduledConfigEntry;
-import lombok.RequiredArgsConstructor;
+import de.mczul.config.model.StoredValue;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.validation.annotation.Validated;
 
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.util.List;
-import java.util.Optional;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Slf4j
 @Validated
 @Service
-@RequiredArgsConstructor
 public class ScheduledConfigService {
+    static final String METRIC_COALESCED = "config.read.coalesced";
+    static final String TAG_QUERY = "query";
+    static final String JOB_CLEANUP = "cleanup";
+    static final String JOB_ACTIVATION = "activation";
+
     private final ScheduledConfigRepository entryRepository;
+    private final ScheduledConfigCache cache;
+    private final ScheduledConfigActivator activator;
+    private final ConfigKeyIndex keyIndex;
+    private final CurrentValueStore currentValues;
+    private final ScheduledConfigRetention retention;
+    private final ValueContentStore valueContents;
+    private final ConfigChangeLog changeLog;
+    private final JobLeases leases;
+    // Concurrent lookups of keys that are answered by the database share a single query per key
+    private final SingleFlight<String, Optional<ScheduledConfigEntry>> entryLoads;
+    private final SingleFlight<String, Optional<ConfigValue>> valueLoads;
+    private final SingleFlight<String, Optional<StoredValue>> storedValueLoads;
+
+    public ScheduledConfigService(
+            ScheduledConfigRepository entryRepository,
+            ScheduledConfigCache cache,
+            ScheduledConfigActivator activator,
+            ConfigKeyIndex keyIndex,
+            CurrentValueStore currentValues,
+            ScheduledConfigRetention retention,
+            ValueContentStore valueContents,
+            ConfigChangeLog changeLog,
+            JobLeases leases,
+            MeterRegistry meterRegistry
+    ) {
+        this.entryRepository = entryRepository;
+        this.cache = cache;
+        this.activator = activator;
+        this.keyIndex = keyIndex;
+        this.currentValues = currentValues;
+        this.retention = retention;
+        this.valueContents = valueContents;
+        this.changeLog = changeLog;
+        this.leases = leases;
+        this.entryLoads = new SingleFlight<>(coalescedCounter(meterRegistry, "entry"));
+        this.valueLoads = new SingleFlight<>(coalescedCounter(meterRegistry, "value"));
+        this.storedValueLoads = new SingleFlight<>(coalescedCounter(meterRegistry, "stored-value"));
+    }
+
+    private static Counter coalescedCounter(MeterRegistry meterRegistry, String query) {
+        return Counter.builder(METRIC_COALESCED)
+                .description("Lookups that shared the database query of a concurrent lookup of the same key")
+                .tag(TAG_QUERY, query)
+                .register(meterRegistry);
+    }
 
     @Transactional
     public ScheduledConfigEntry set(ScheduledConfigEntry entry) {
-        return entryRepository.save(
-                entry
-                        // Assure uniform key representation
-                        .withKey(entry.getKey().toLowerCase(AppConstants.DEFAULT_LOCALE))
-                        // Set created timestamp
-                        .withCreated(ZonedDateTime.now(ZoneId.of(AppConstants.DEFAULT_TIMEZONE)))
-        );
+        ScheduledConfigEntry saved = entryRepository.save(valueContents.attach(List.of(prepare(entry, now()))).get(0));
+        changeLog.record(List.of(saved.getKey()));
+        afterCommit(() -> published(List.of(saved)));
+        return saved;
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Saves multiple entries within a single transaction, so they are inserted in JDBC batches. Entries are normalized
+     * the same way as by {@link #set(ScheduledConfigEntry)}. Their created timestamps increase by one microsecond in
+     * the order of the given entries and end at the current time, so versions of the same key remain distinguishable.
+     *
+     * @param entries Entries to be saved
+     * @return Saved entries in the order of the given ones
+     */
+    @Transactional
+    public List<ScheduledConfigEntry> setAll(List<ScheduledConfigEntry> entries) {
+        final ZonedDateTime first = now().truncatedTo(ChronoUnit.MICROS).minus(entries.size() - 1L, ChronoUnit.MICROS);
+        List<ScheduledConfigEntry> saved = entryRepository.saveAll(valueContents.attach(
+                IntStream.range(0, entries.size())
+                        .mapToObj(i -> prepare(entries.get(i), first.plus(i, ChronoUnit.MICROS)))
+                        .collect(Collectors.toUnmodifiableList())
+        ));
+        // Surface constraint violations here instead of on commit
+        entryRepository.flush();
+        changeLog.record(saved.stream().map(ScheduledConfigEntry::getKey).collect(Collectors.toList()));
+        afterCommit(() -> published(saved));
+        return saved;
+    }
+
+    private static ScheduledConfigEntry prepare(ScheduledConfigEntry entry, ZonedDateTime created) {
+        return entry
+                // Assure uniform key representation
+                .withKey(entry.getKey().toLowerCase(AppConstants.DEFAULT_LOCALE))
+                // Set created timestamp
+                .withCreated(created);
+    }
+
+    private void published(List<ScheduledConfigEntry> saved) {
+        Set<String> keys = saved.stream().map(ScheduledConfigEntry::getKey).collect(Collectors.toSet());
+        currentValues.refresh(keys);
+        // Lookups that started before the write must not be shared with later ones
+        entryLoads.forget(keys);
+        valueLoads.forget(keys);
+        storedValueLoads.forget(keys);
+        for (ScheduledConfigEntry entry : saved) {
+            cache.add(entry);
+            keyIndex.add(entry.getKey());
+        }
+        activator.publish(keys);
+    }
+
+    /**
+     * Applies the changes of other nodes that share the database; see {@link ConfigChangeLog}. Timelines of changed
+     * keys are evicted instead of being reloaded, so only keys that are still queried are loaded again.
+     */
+    @Scheduled(fixedDelayString = "${de.mczul.config.change-log.poll-interval}")
+    void followChanges() {
+        Set<String> keys = changeLog.poll();
+        if (keys.isEmpty()) {
+            return;
+        }
+        LOG.debug("Invalidating {} keys changed by other nodes", keys.size());
+        entryLoads.forget(keys);
+        valueLoads.forget(keys);
+        storedValueLoads.forget(keys);
+        for (String key : keys) {
+            cache.evict(key);
+            keyIndex.add(key);
+        }
+        activator.publish(keys);
+    }
+
+    /**
+     * Answered from the snapshot published by {@link ScheduledConfigActivator}, hence there is no surrounding
+     * transaction; keys that are not part of the snapshot yet are resolved by a primary key lookup in the
+     * {@link CurrentValueStore}. Concurrent lookups of such a key share a single lookup.
+     */
     public Optional<ScheduledConfigEntry> get(String key) {
-        return entryRepository.findCurrentByKey(key.toLowerCase(AppConstants.DEFAULT_LOCALE));
+        return activator.current(key.toLowerCase(AppConstants.DEFAULT_LOCALE), normalizedKey -> entryLoads.load(normalizedKey, currentValues::find));
     }
 
-    @Transactional
+    /**
+     * Lean variant of {@link #get(String)} for callers that only need the value; keys that are not part of the
+     * snapshot are resolved with a projection, so no entity is loaded into a persistence context.
+     */
+    public Optional<ConfigValue> getValue(String key) {
+        return activator.currentValue(key.toLowerCase(AppConstants.DEFAULT_LOCALE), normalizedKey -> valueLoads.load(normalizedKey, currentValues::findValue));
+    }
+
+    /**
+     * Resolves the value that is effective right now as it is stored, so compressed values can be passed on to clients
+     * without being decompressed; always answered by the database, with a single query for concurrent lookups of the
+     * same key.
+     */
+    public Optional<StoredValue> getStoredValue(String key) {
+        return storedValueLoads.load(key.toLowerCase(AppConstants.DEFAULT_LOCALE), currentValues::findStoredValue);
+    }
+
+    /**
+     * Resolves the entry that is, was or will be effective at the given point in time. Lookups are answered with a
+     * binary search on the cached timeline of the key.
+     *
+     * @param key           Configuration key in arbitrary representation
+     * @param referenceTime Point in time the returned entry has to be valid at
+     * @return The entry of the given key that is effective at the reference time
+     */
+    public Optional<ScheduledConfigEntry> get(String key, ZonedDateTime referenceTime) {
+        return cache.timeline(key.toLowerCase(AppConstants.DEFAULT_LOCALE)).at(referenceTime);
+    }
+
+    /**
+     * Resolves multiple keys for a single reference time, so the result represents a consistent state.
+     *
+     * @param keys          Configuration keys in arbitrary representation
+     * @param referenceTime Point in time the returned entries have to be valid at
+     * @return Effective entries by normalized key; keys without an effective entry are omitted
+     */
+    public Map<String, ScheduledConfigEntry> getAll(Collection<String> keys, ZonedDateTime referenceTime) {
+        Set<String> normalizedKeys = keys.stream()
+                .map(key -> key.toLowerCase(AppConstants.DEFAULT_LOCALE))
+                .collect(Collectors.toSet());
+        return activator.at(normalizedKeys, referenceTime.toInstant());
+    }
+
+    /**
+     * Resolves the keys of a namespace in ascending order. Keys without an effective entry at the given reference time
+     * are skipped.
+     *
+     * @param prefix        Key prefix in arbitrary representation
+     * @param after         Exclusive lower bound of the returned keys or null to start with the first key
+     * @param limit         Maximum number of returned entries
+     * @param referenceTime Point in time the returned entries have to be valid at
+     * @return Effective entries in ascending order of their keys
+     */
+    public List<ScheduledConfigEntry> getByPrefix(String prefix, String after, int limit, ZonedDateTime referenceTime) {
+        String normalizedPrefix = prefix.toLowerCase(AppConstants.DEFAULT_LOCALE);
+        List<ScheduledConfigEntry> result = new ArrayList<>();
+        String lowerBound = after;
+        while (result.size() < limit) {
+            List<String> keys = keyIndex.find(normalizedPrefix, lowerBound, limit - result.size());
+            if (keys.isEmpty()) {
+                break;
+            }
+            Map<String, ScheduledConfigEntry> entries = activator.at(keys, referenceTime.toInstant());
+            for (String key : keys) {
+                ScheduledConfigEntry entry = entries.get(key);
+                if (entry != null) {
+                    result.add(entry);
+                }
+            }
+            lowerBound = keys.get(keys.size() - 1);
+        }
+        return result;
+    }
+
+    /**
+     * Purges entries that are no longer covered by the retention policies; see {@link ScheduledConfigRetention}. Run by
+     * a single node per tick, see {@link JobLeases}.
+     */
     @Scheduled(cron = "${de.mczul.config.cleanup.cron}")
     void cleanup() {
-        List<ScheduledConfigEntry> obsolete = entryRepository.findOutdated();
-        LOG.info("Found {} entries that are obsolete", obsolete.size());
+        leases.runExclusively(JOB_CLEANUP, lease -> {
+            retention.purge(lease);
+            changeLog.prune();
+        });
+    }
+
+    /**
+     * Run by a single node per tick, see {@link JobLeases}, except for reconciliations, which repair rows that this
+     * node has failed to refresh.
+     */
+    @Scheduled(fixedDelayString = "${de.mczul.config.activation.interval}")
+    void activate() {
+        if (currentValues.isReconciliationPending()) {
+            activateCurrentValues();
+        } else {
+            leases.runExclusively(JOB_ACTIVATION, lease -> activateCurrentValues());
+        }
+    }
+
+    private void activateCurrentValues() {
+        int activated = currentValues.activate();
+        if (activated > 0) {
+            LOG.info("Activated {} current values", activated);
+        }
+    }
+
+    private static ZonedDateTime now() {
+        return ZonedDateTime.now(ZoneId.of(AppConstants.DEFAULT_TIMEZONE));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
@@ -0,0 +1,108 @@
+package de.mczul.config.service;
+
+import de.mczul.config.model.ScheduledConfigEntry;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Immutable sequence of all entries of a single configuration key in ascending order of their "valid from" timestamps.
+ * <p>
+ * Lookups for a reference time are answered with a binary search, so resolving the effective entry does not require
+ * any database access once a timeline has been loaded.
+ */
+public final class ScheduledConfigTimeline {
+    private static final Comparator<ScheduledConfigEntry> VALID_FROM_ORDER = Comparator.comparing(entry -> entry.getValidFrom().toInstant());
+
+    @Getter
+    private final String key;
+    private final ScheduledConfigEntry[] entries;
+    private final Instant[] validFroms;
+
+    private ScheduledConfigTimeline(String key, ScheduledConfigEntry[] entries) {
+        this.key = key;
+        this.entries = entries;
+        this.validFroms = Arrays.stream(entries).map(entry -> entry.getValidFrom().toInstant()).toArray(Instant[]::new);
+    }
+
+    public static ScheduledConfigTimeline of(String key, Collection<ScheduledConfigEntry> entries) {
+        ScheduledConfigEntry[] sorted = entries.toArray(ScheduledConfigEntry[]::new);
+        Arrays.sort(sorted, VALID_FROM_ORDER);
+        return new ScheduledConfigTimeline(key, sorted);
+    }
+
+    /**
+     * @param referenceTime Point in time the returned entry has to be valid at
+     * @return The entry with the latest "valid from" timestamp that is not after the given reference time
+     */
+    public Optional<ScheduledConfigEntry> at(ZonedDateTime referenceTime) {
+        return at(referenceTime.toInstant());
+    }
+
+    public Optional<ScheduledConfigEntry> at(Instant referenceTime) {
+        int index = floorIndex(referenceTime);
+        return index < 0 ? Optional.empty() : Optional.of(entries[index]);
+    }
+
+    /**
+     * @param referenceTime Point in time after which the next entry becomes valid
+     * @return The earliest "valid from" timestamp after the given reference time, if any
+     */
+    public Optional<Instant> nextActivationAfter(Instant referenceTime) {
+        int index = floorIndex(referenceTime) + 1;
+        return index < validFroms.length ? Optional.of(validFroms[index]) : Optional.empty();
+    }
+
+    /**
+     * @param entry Entry to be added; an existing entry with the same "valid from" timestamp will be replaced
+     * @return New timeline that contains the given entry
+     */
+    public ScheduledConfigTimeline with(ScheduledConfigEntry entry) {
+        Instant validFrom = entry.getValidFrom().toInstant();
+        int index = Arrays.binarySearch(validFroms, validFrom);
+        ScheduledConfigEntry[] result;
+        if (index >= 0) {
+            result = entries.clone();
+            result[index] = entry;
+        } else {
+            int insertionPoint = -index - 1;
+            result = new ScheduledConfigEntry[entries.length + 1];
+            System.arraycopy(entries, 0, result, 0, insertionPoint);
+            result[insertionPoint] = entry;
+            System.arraycopy(entries, insertionPoint, result, insertionPoint + 1, entries.length - insertionPoint);
+        }
+        return new ScheduledConfigTimeline(key, result);
+    }
+
+    /**
+     * @param validFrom Point in time to be checked
+     * @return Whether an entry becomes valid at exactly the given point in time
+     */
+    public boolean hasEntryValidFrom(Instant validFrom) {
+        return Arrays.binarySearch(validFroms, validFrom) >= 0;
+    }
+
+    public List<ScheduledConfigEntry> getEntries() {
+        return List.of(entries);
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    public boolean isEmpty() {
+        return entries.length == 0;
+    }
+
+    private int floorIndex(Instant referenceTime) {
+        int index = Arrays.binarySearch(validFroms, referenceTime);
+        return index >= 0 ? index : -index - 2;
+    }
+
+}
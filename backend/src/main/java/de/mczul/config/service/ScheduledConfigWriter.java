@@ -0,0 +1,368 @@
+package de.mczul.config.service;
+
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import de.mczul.config.AppConstants;
+import de.mczul.config.model.ScheduledConfigEntry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Saves entries that are posted one by one. In {@link WriteProperties.Mode#GROUP group} mode, concurrent writes are
+ * gathered in a bounded queue and saved by a single thread with one transaction per group, so the commit latency is
+ * shared by all writes of a group. A group is saved as soon as it holds de.mczul.config.write.max-group-size entries
+ * or de.mczul.config.write.max-group-delay has passed since its first entry.
+ * <p>
+ * Every caller still receives its own saved entry or exception: if a group is rejected by the database, its entries
+ * are saved one by one in order to attribute the failure to the causing writes. Writes that find the queue full for
+ * longer than de.mczul.config.write.enqueue-timeout are rejected with a {@link RejectedExecutionException}, since they
+ * have not been attempted. Writes that have been queued wait for the outcome of their group, which is never in doubt:
+ * answering before the commit would leave clients unable to tell whether a retry creates a duplicate.
+ * <p>
+ * Writes of the same key are serialized by striped locks, which are held until the entry has been committed and added
+ * to the {@link ScheduledConfigCache}. Hence an entry whose key already has an entry with the same valid from timestamp
+ * is detected by its cached timeline, or by probing the valid from timestamps of the key if its timeline has not been
+ * loaded, instead of the unique constraint of the database, and handled according to
+ * de.mczul.config.write.conflict-policy: it is either rejected with a {@link DuplicateKeyException} or moved to the
+ * next free microsecond. Writes that bypass this class, e.g. imports, are still guarded by the unique constraint.
+ */
+@Slf4j
+@Component
+public class ScheduledConfigWriter {
+    static final String METRIC_GROUP_SIZE = "config.write.group.size";
+    static final String METRIC_QUEUE_SIZE = "config.write.queue.size";
+    static final String METRIC_REJECTED = "config.write.rejected";
+    static final String METRIC_CONFLICTS = "config.write.conflicts";
+    static final String TAG_RESOLUTION = "resolution";
+    // Interval in which the group commit thread checks for shutdown while the queue is empty
+    private static final long IDLE_POLL_MILLIS = 100;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+    // Number of valid from timestamps that are read per probe of a key whose timeline has not been loaded
+    static final int CONFLICT_PROBE_SIZE = 16;
+
+    private final ScheduledConfigService service;
+    private final ScheduledConfigCache cache;
+    private final ScheduledConfigRepository entryRepository;
+    private final WriteProperties properties;
+    private final Striped<Lock> locks;
+    private final Counter conflictsRejected;
+    private final Counter conflictsResolved;
+    private final BlockingQueue<PendingWrite> queue;
+    private final ExecutorService executor;
+    private final DistributionSummary groupSize;
+    private final Counter rejected;
+    private volatile boolean running = true;
+
+    public ScheduledConfigWriter(
+            ScheduledConfigService service,
+            ScheduledConfigCache cache,
+            ScheduledConfigRepository entryRepository,
+            WriteProperties properties,
+            MeterRegistry meterRegistry
+    ) {
+        this.service = service;
+        this.cache = cache;
+        this.entryRepository = entryRepository;
+        this.properties = properties;
+        this.locks = Striped.lock(properties.getLockStripes());
+        this.conflictsRejected = Counter.builder(METRIC_CONFLICTS)
+                .description("Writes that conflicted with an existing entry and have been rejected")
+                .tag(TAG_RESOLUTION, "rejected")
+                .register(meterRegistry);
+        this.conflictsResolved = Counter.builder(METRIC_CONFLICTS)
+                .description("Writes that conflicted with an existing entry and have been moved to the next free microsecond")
+                .tag(TAG_RESOLUTION, "moved")
+                .register(meterRegistry);
+        if (properties.getMode() != WriteProperties.Mode.GROUP) {
+            this.queue = null;
+            this.executor = null;
+            this.groupSize = null;
+            this.rejected = null;
+            return;
+        }
+
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.groupSize = DistributionSummary.builder(METRIC_GROUP_SIZE)
+                .description("Entries saved per group commit")
+                .register(meterRegistry);
+        this.rejected = Counter.builder(METRIC_REJECTED)
+                .description("Writes rejected since the write queue was full")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_QUEUE_SIZE, queue, BlockingQueue::size)
+                .description("Writes waiting for their group commit")
+                .register(meterRegistry);
+        this.executor = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("config-group-commit-%d").setDaemon(true).build()
+        );
+        this.executor.execute(this::commitGroups);
+    }
+
+    /**
+     * Same contract as {@link ScheduledConfigService#set(ScheduledConfigEntry)}; waits until the entry is committed.
+     *
+     * @param entry Entry to be saved
+     * @return Saved entry, whose valid from timestamp may have been moved according to the conflict policy
+     * @throws RejectedExecutionException If the write queue has been full for the enqueue timeout, so the entry has not
+     *                                    been saved
+     * @throws DuplicateKeyException      If the entry conflicts with an existing one and conflicts are rejected
+     */
+    public ScheduledConfigEntry set(ScheduledConfigEntry entry) {
+        if (queue == null) {
+            final Lock lock = locks.get(normalizedKey(entry));
+            lock.lock();
+            try {
+                return service.set(resolve(entry, new HashMap<>()));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        final PendingWrite write = new PendingWrite(entry);
+        if (!enqueue(write)) {
+            rejected.increment();
+            throw new RejectedExecutionException("Write queue is full");
+        }
+        try {
+            // Every queued write is completed by the group commit thread, even if its group fails or the writer shuts down
+            return Uninterruptibles.getUninterruptibly(write.result);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                // Rethrown as if the entry had been saved by the calling thread
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    private boolean enqueue(PendingWrite write) {
+        if (!running) {
+            return false;
+        }
+        try {
+            if (!queue.offer(write, properties.getEnqueueTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+            // The group commit thread may have drained the queue for the last time in the meantime
+            return running || !queue.remove(write);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void commitGroups() {
+        final List<PendingWrite> group = new ArrayList<>(properties.getMaxGroupSize());
+        try {
+            // Writes that have been accepted before the shutdown are still saved
+            while (running || !queue.isEmpty()) {
+                PendingWrite first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                final long deadline = System.nanoTime() + properties.getMaxGroupDelay().toNanos();
+                while (group.size() < properties.getMaxGroupSize()) {
+                    PendingWrite next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+                try {
+                    commit(group);
+                } catch (Throwable e) {
+                    // Includes errors, which would otherwise end this thread and leave all later writes waiting
+                    LOG.error("Failed to commit group of {} entries", group.size(), e);
+                    group.forEach(write -> write.result.completeExceptionally(e));
+                }
+                group.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queue.drainTo(group);
+            group.forEach(write -> write.result.completeExceptionally(new RejectedExecutionException("Writer has been shut down")));
+        }
+    }
+
+    private void commit(List<PendingWrite> group) {
+        groupSize.record(group.size());
+        final Iterable<Lock> groupLocks = locks.bulkGet(group.stream().map(write -> normalizedKey(write.entry)).collect(Collectors.toSet()));
+        // Acquired in the order of their stripes, hence without deadlocks between groups and single writes
+        groupLocks.forEach(Lock::lock);
+        try {
+            List<PendingWrite> accepted = resolve(group);
+            if (!accepted.isEmpty()) {
+                save(accepted);
+            }
+        } finally {
+            groupLocks.forEach(Lock::unlock);
+        }
+    }
+
+    private List<PendingWrite> resolve(List<PendingWrite> group) {
+        final Map<String, Set<Instant>> pending = new HashMap<>();
+        final List<PendingWrite> accepted = new ArrayList<>(group.size());
+        for (PendingWrite write : group) {
+            try {
+                write.entry = resolve(write.entry, pending);
+                accepted.add(write);
+            } catch (RuntimeException e) {
+                write.result.completeExceptionally(e);
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Applies the conflict policy to an entry whose key is locked.
+     *
+     * @param entry   Entry to be saved
+     * @param pending Valid from timestamps by normalized key of the entries that are saved along with the given one
+     * @return Entry to be saved instead of the given one
+     */
+    private ScheduledConfigEntry resolve(ScheduledConfigEntry entry, Map<String, Set<Instant>> pending) {
+        final String key = normalizedKey(entry);
+        final Set<Instant> taken = pending.computeIfAbsent(key, k -> new HashSet<>());
+        // Same precision as the database, which decides whether timestamps are equal
+        ZonedDateTime validFrom = entry.getValidFrom().truncatedTo(ChronoUnit.MICROS);
+        final Predicate<ZonedDateTime> existing = existingValidFroms(key);
+        boolean moved = false;
+        while (taken.contains(validFrom.toInstant()) || existing.test(validFrom)) {
+            if (properties.getConflictPolicy() == WriteProperties.ConflictPolicy.REJECT) {
+                conflictsRejected.increment();
+                throw new DuplicateKeyException("Key '" + key + "' already has an entry valid from " + validFrom);
+            }
+            validFrom = validFrom.plus(1, ChronoUnit.MICROS);
+            moved = true;
+        }
+        if (moved) {
+            conflictsResolved.increment();
+            LOG.debug("Moved conflicting entry of key '{}' from {} to {}", key, entry.getValidFrom(), validFrom);
+        }
+        taken.add(validFrom.toInstant());
+        return entry.withValidFrom(validFrom);
+    }
+
+    /**
+     * @return Tests whether the given key has an entry valid from a given timestamp; answered by the cached timeline if
+     * the key has been loaded and by probes of the database otherwise, since a cold timeline would be loaded completely
+     */
+    private Predicate<ZonedDateTime> existingValidFroms(String key) {
+        final Optional<ScheduledConfigTimeline> timeline = cache.cached(key);
+        if (timeline.isPresent()) {
+            return validFrom -> timeline.get().hasEntryValidFrom(validFrom.toInstant());
+        }
+        return new ValidFromProbe(entryRepository, key);
+    }
+
+    private void save(List<PendingWrite> group) {
+        try {
+            List<ScheduledConfigEntry> saved = service.setAll(group.stream().map(write -> write.entry).collect(Collectors.toList()));
+            for (int i = 0; i < group.size(); i++) {
+                group.get(i).result.complete(saved.get(i));
+            }
+        } catch (DataAccessException e) {
+            LOG.debug("Group of {} entries has been rejected; saving its entries one by one", group.size(), e);
+            for (PendingWrite write : group) {
+                try {
+                    write.result.complete(service.set(write.entry));
+                } catch (RuntimeException entryException) {
+                    write.result.completeExceptionally(entryException);
+                }
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to save group of {} entries", group.size(), e);
+            group.forEach(write -> write.result.completeExceptionally(e));
+        }
+    }
+
+    private static String normalizedKey(ScheduledConfigEntry entry) {
+        return entry.getKey().toLowerCase(AppConstants.DEFAULT_LOCALE);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        if (executor == null) {
+            return;
+        }
+        running = false;
+        executor.shutdown();
+        if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    private static class PendingWrite {
+        private ScheduledConfigEntry entry;
+        private final CompletableFuture<ScheduledConfigEntry> result = new CompletableFuture<>();
+
+        private PendingWrite(ScheduledConfigEntry entry) {
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * Valid from timestamps of a key whose timeline has not been loaded, which are read in probes of at most
+     * {@link #CONFLICT_PROBE_SIZE} timestamps. Has to be tested with ascending timestamps.
+     */
+    private static final class ValidFromProbe implements Predicate<ZonedDateTime> {
+        private final ScheduledConfigRepository entryRepository;
+        private final String key;
+        private final Set<Instant> found = new HashSet<>();
+        // Timestamps after the last probed one are unknown unless the last probe has found less than a full page
+        private ZonedDateTime probedUntil;
+        private boolean complete;
+
+        private ValidFromProbe(ScheduledConfigRepository entryRepository, String key) {
+            this.entryRepository = entryRepository;
+            this.key = key;
+        }
+
+        @Override
+        public boolean test(ZonedDateTime validFrom) {
+            if (!complete && (probedUntil == null || validFrom.isAfter(probedUntil))) {
+                List<ZonedDateTime> probe = entryRepository.findValidFromsSince(key, validFrom, PageRequest.of(0, CONFLICT_PROBE_SIZE));
+                probe.forEach(existing -> found.add(existing.toInstant()));
+                complete = probe.size() < CONFLICT_PROBE_SIZE;
+                probedUntil = probe.isEmpty() ? validFrom : probe.get(probe.size() - 1);
+            }
+            return found.contains(validFrom.toInstant());
+        }
+    }
+
+}
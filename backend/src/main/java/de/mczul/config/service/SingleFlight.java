@@ -0,0 +1,79 @@
+package de.mczul.config.service;
+
+import io.micrometer.core.instrument.Counter;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller runs the loader, while callers that arrive in the
+ * meantime wait for its result instead of running the loader themselves. Results are not cached beyond the load.
+ *
+ * @param <K> Type of the keys
+ * @param <V> Type of the loaded values
+ */
+class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    /**
+     * @param coalesced Incremented for every caller that shares the result of another caller's load
+     */
+    SingleFlight(Counter coalesced) {
+        this.coalesced = coalesced;
+    }
+
+    /**
+     * @param key    Key to be loaded
+     * @param loader Loads the value of a key; exceptions are passed on to all callers that wait for the load
+     * @return The value of the given key
+     */
+    V load(K key, Function<K, V> loader) {
+        final CompletableFuture<V> own = new CompletableFuture<>();
+        final CompletableFuture<V> running = inFlight.putIfAbsent(key, own);
+        if (running != null) {
+            coalesced.increment();
+            return join(running);
+        }
+        try {
+            V value = loader.apply(key);
+            own.complete(value);
+            return value;
+        } catch (Throwable e) {
+            // Includes errors, which would leave waiting callers blocked forever
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    /**
+     * Detaches running loads of the given keys, so later callers start a new load instead of sharing a result that may
+     * have been read before a write.
+     *
+     * @param keys Keys whose values have changed
+     */
+    void forget(Collection<K> keys) {
+        keys.forEach(inFlight::remove);
+    }
+
+    private static <V> V join(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+package de.mczul.config.service;
+
+import de.mczul.config.model.ScheduledConfigEntry;
+import de.mczul.config.model.ValueContent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Moves inline values of the scheduled_config and current_value tables to the {@link ValueContentStore} while the
+ * application is running. Every run migrates a single chunk of ascending ids in its own transaction, so the table is
+ * neither locked nor scanned as a whole. Reads do not depend on the progress, since entries resolve inline values as
+ * well as shared contents.
+ */
+@Slf4j
+@Component
+public class ValueContentMigration {
+    static final String JOB_DEDUPLICATION = "deduplication";
+
+    private final ScheduledConfigRepository entryRepository;
+    private final CurrentValueRepository currentValueRepository;
+    private final ValueContentStore valueContents;
+    private final TransactionTemplate chunkTransaction;
+    private final JobLeases leases;
+    private final int chunkSize;
+    // Exclusive lower bound of the next chunk
+    private int after;
+    private int migrated;
+    private boolean completed;
+
+    public ValueContentMigration(
+            ScheduledConfigRepository entryRepository,
+            CurrentValueRepository currentValueRepository,
+            ValueContentStore valueContents,
+            PlatformTransactionManager transactionManager,
+            JobLeases leases,
+            @Value("${de.mczul.config.deduplication.chunk-size}") int chunkSize
+    ) {
+        this.entryRepository = entryRepository;
+        this.currentValueRepository = currentValueRepository;
+        this.valueContents = valueContents;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.leases = leases;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Run by a single node per tick, see {@link JobLeases}; chunks are idempotent, so a node that takes over the job
+     * starts over with the first chunk.
+     */
+    @Scheduled(fixedDelayString = "${de.mczul.config.deduplication.interval}")
+    void migrate() {
+        if (!completed) {
+            leases.runExclusively(JOB_DEDUPLICATION, lease -> migrateChunk());
+        }
+    }
+
+    /**
+     * Migrates the entries of the next chunk. Once the end of the table has been reached, the table is traversed once
+     * more in order to pick up entries that have been saved inline in the meantime; the migration is completed after a
+     * traversal without any inline value.
+     *
+     * @return Number of migrated entries
+     */
+    synchronized int migrateChunk() {
+        Integer count = chunkTransaction.execute(status -> {
+            List<ScheduledConfigEntry> entries = entryRepository.findInlineValuesAfter(after, PageRequest.of(0, chunkSize));
+            if (entries.isEmpty()) {
+                return 0;
+            }
+            Map<String, ValueContent> contents = valueContents.store(entries.stream()
+                    .map(ScheduledConfigEntry::getValue)
+                    .collect(Collectors.toList()));
+            // Managed entries drop their inline value on flush; see ScheduledConfigEntry#prepareWrite
+            entries.forEach(entry -> entry.setContent(contents.get(ValueContent.hash(entry.getValue()))));
+            entryRepository.flush();
+            List<Integer> ids = entries.stream().map(ScheduledConfigEntry::getId).collect(Collectors.toUnmodifiableList());
+            currentValueRepository.relink(ids);
+            after = ids.get(ids.size() - 1);
+            return entries.size();
+        });
+        int chunk = count == null ? 0 : count;
+        if (chunk > 0) {
+            migrated += chunk;
+            LOG.debug("Moved {} inline values to shared contents", chunk);
+        } else if (after == 0) {
+            completed = true;
+            LOG.info("Value deduplication completed; {} inline values have been moved to shared contents", migrated);
+        } else {
+            after = 0;
+        }
+        return chunk;
+    }
+
+}
@@ -0,0 +1,130 @@
+package de.mczul.config.service;
+
+import de.mczul.config.AppConstants;
+import de.mczul.config.model.ScheduledConfigEntry;
+import de.mczul.config.model.StoredValue;
+import de.mczul.config.model.ValueContent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the content-addressed config.value_content table. Every distinct value is stored, compressed and cached once,
+ * regardless of the number of entries and keys that reference it.
+ * <p>
+ * Rows are written with plain JDBC, since Hibernate would evict the whole cache region of {@link ValueContent} on every
+ * native statement. This is safe because the content of a hash never changes, so cached contents cannot be stale.
+ */
+@Slf4j
+@Component
+public class ValueContentStore {
+    /**
+     * Contents are reused by writers without locking them, so unreferenced contents are only deleted once they have not
+     * been used for this period, which exceeds the duration of any write transaction by far.
+     */
+    static final Duration UNUSED_GRACE_PERIOD = Duration.ofHours(1);
+
+    private static final String MERGE = "MERGE INTO config.value_content c " +
+            "USING (SELECT CAST(? AS VARCHAR(64)) AS hash) a ON (c.hash = a.hash) " +
+            "WHEN MATCHED THEN UPDATE SET last_used = ? " +
+            "WHEN NOT MATCHED THEN INSERT (hash, value, last_used) VALUES (a.hash, ?, ?)";
+    private static final String DELETE_UNUSED = "DELETE FROM config.value_content v " +
+            "WHERE v.last_used < ? " +
+            "AND NOT EXISTS (SELECT 'x' FROM config.scheduled_config s WHERE s.value_hash = v.hash) " +
+            "AND NOT EXISTS (SELECT 'x' FROM config.current_value c WHERE c.value_hash = v.hash)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final int compressionThreshold;
+
+    public ValueContentStore(
+            JdbcTemplate jdbcTemplate,
+            EntityManager entityManager,
+            @Value("${de.mczul.config.compression.threshold}") int compressionThreshold
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /**
+     * Stores the values of the given entries and lets the entries reference them; has to be called within the
+     * transaction that saves the entries.
+     *
+     * @param entries Entries to be saved
+     * @return Copies of the given entries that reference the stored contents, in the order of the given ones
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<ScheduledConfigEntry> attach(List<ScheduledConfigEntry> entries) {
+        Map<String, ValueContent> contents = store(entries.stream()
+                .map(ScheduledConfigEntry::getValue)
+                .collect(Collectors.toList()));
+        return entries.stream()
+                .map(entry -> entry.withContent(contents.get(ValueContent.hash(entry.getValue()))))
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    /**
+     * Stores the given values with one statement per distinct value, all of which are sent in a single JDBC batch.
+     *
+     * @param values Configuration values; null values are skipped
+     * @return References to the stored contents by hash
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<String, ValueContent> store(Collection<String> values) {
+        Map<String, String> valuesByHash = new HashMap<>();
+        values.stream()
+                .filter(Objects::nonNull)
+                .forEach(value -> valuesByHash.putIfAbsent(ValueContent.hash(value), value));
+        if (valuesByHash.isEmpty()) {
+            return Map.of();
+        }
+
+        Timestamp now = Timestamp.from(now().toInstant());
+        List<Object[]> parameters = new ArrayList<>(valuesByHash.size());
+        valuesByHash.forEach((hash, value) ->
+                parameters.add(new Object[]{hash, now, StoredValue.encode(value, compressionThreshold).getRepresentation(), now}));
+        jdbcTemplate.batchUpdate(MERGE, parameters);
+
+        Map<String, ValueContent> references = new HashMap<>();
+        for (String hash : valuesByHash.keySet()) {
+            references.put(hash, entityManager.getReference(ValueContent.class, hash));
+        }
+        return references;
+    }
+
+    /**
+     * Deletes contents that are no longer referenced, e.g. after their entries have been purged.
+     *
+     * @return Number of deleted contents
+     */
+    @Transactional
+    public int purgeUnused() {
+        int purged = jdbcTemplate.update(DELETE_UNUSED, Timestamp.from(now().minus(UNUSED_GRACE_PERIOD).toInstant()));
+        if (purged > 0) {
+            LOG.info("Purged {} unused value contents", purged);
+        }
+        return purged;
+    }
+
+    private static ZonedDateTime now() {
+        return ZonedDateTime.now(ZoneId.of(AppConstants.DEFAULT_TIMEZONE));
+    }
+
+}
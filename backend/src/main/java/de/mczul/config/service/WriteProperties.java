@@ -0,0 +1,71 @@
+package de.mczul.config.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import java.time.Duration;
+
+/**
+ * Settings of the {@link ScheduledConfigWriter}; the group settings only apply to group commits.
+ */
+@Data
+@Validated
+@Component
+@ConfigurationProperties(prefix = "de.mczul.config.write")
+public class WriteProperties {
+    /**
+     * Whether every write is saved in its own transaction or gathered with concurrent writes
+     */
+    @NotNull
+    private Mode mode = Mode.DIRECT;
+    /**
+     * Handling of entries whose key already has an entry with the same valid from timestamp
+     */
+    @NotNull
+    private ConflictPolicy conflictPolicy = ConflictPolicy.REJECT;
+    /**
+     * Number of locks that serialize writes of the same key; keys that share a lock are written one after another
+     */
+    @Positive
+    private int lockStripes = 64;
+    /**
+     * Maximum number of entries per transaction
+     */
+    @Positive
+    private int maxGroupSize = 100;
+    /**
+     * Time a group waits for further entries after its first one
+     */
+    @NotNull
+    private Duration maxGroupDelay = Duration.ofMillis(5);
+    /**
+     * Number of writes that may wait for their group
+     */
+    @Positive
+    private int queueCapacity = 1_000;
+    /**
+     * Time a write waits for space in the queue before it is rejected
+     */
+    @NotNull
+    private Duration enqueueTimeout = Duration.ofMillis(100);
+
+    public enum Mode {
+        DIRECT,
+        GROUP
+    }
+
+    public enum ConflictPolicy {
+        /**
+         * Conflicting entries are rejected
+         */
+        REJECT,
+        /**
+         * Conflicting entries are moved to the next free microsecond, so they supersede the existing entry from then on
+         */
+        LAST_WRITER_WINS
+    }
+}
@@ -0,0 +1,44 @@
+package de.mczul.config.web;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.regex.Pattern;
+
+/**
+ * Encodes the position of the last returned element as opaque continuation token for cursor based paging.
+ */
+public class CursorCodec {
+    private static final String SEPARATOR = "\n";
+    private static final Pattern SEPARATOR_PATTERN = Pattern.compile(SEPARATOR);
+
+    private CursorCodec() {
+    }
+
+    public static String encode(String... parts) {
+        byte[] raw = String.join(SEPARATOR, parts).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    /**
+     * @param cursor        Continuation token as returned by {@link #encode(String...)}
+     * @param expectedParts Number of parts the cursor must consist of
+     * @return Decoded parts
+     * @throws ResponseStatusException if the cursor is malformed
+     */
+    public static String[] decode(String cursor, int expectedParts) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = SEPARATOR_PATTERN.split(raw, -1);
+            if (parts.length == expectedParts) {
+                return parts;
+            }
+        } catch (IllegalArgumentException e) {
+            // Handled below
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed cursor");
+    }
+
+}
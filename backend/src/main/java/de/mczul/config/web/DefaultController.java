@@ -1,28 +1,58 @@
 package de.mczul.config.web;
 
 import de.mczul.config.AppConstants;
+import de.mczul.config.model.ConfigBulkQueryResponse;
+import de.mczul.config.model.ConfigPrefixQueryResponse;
 import de.mczul.config.model.ConfigQueryResponse;
+import de.mczul.config.model.ConfigValue;
+import de.mczul.config.model.ImportReport;
 import de.mczul.config.model.ScheduledConfigDto;
 import de.mczul.config.model.ScheduledConfigEntry;
+import de.mczul.config.model.ScheduledConfigSliceResponse;
+import de.mczul.config.model.StoredValue;
+import de.mczul.config.service.ExportFormat;
+import de.mczul.config.service.ScheduledConfigExporter;
+import de.mczul.config.service.ScheduledConfigImporter;
 import de.mczul.config.service.ScheduledConfigMapper;
 import de.mczul.config.service.ScheduledConfigRepository;
 import de.mczul.config.service.ScheduledConfigService;
+import de.mczul.config.service.ScheduledConfigWriter;
 import de.mczul.config.validation.ValidationGroups.OnCreate;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
 import javax.validation.groups.Default;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -34,46 +64,223 @@ import java.util.stream.Collectors;
 public class DefaultController {
     final ScheduledConfigRepository scheduledConfigRepository;
     final ScheduledConfigService scheduledConfigService;
+    final ScheduledConfigWriter scheduledConfigWriter;
     final ScheduledConfigMapper scheduledConfigMapper;
+    final ScheduledConfigImporter scheduledConfigImporter;
+    final ScheduledConfigExporter scheduledConfigExporter;
 
     @GetMapping
     public ResponseEntity<List<ScheduledConfigDto>> getScheduledConfigs(
             @RequestParam(name = RestConstants.QUERY_PARAM_PAGE_INDEX, required = false, defaultValue = "0") int pageIndex,
-            @RequestParam(name = RestConstants.QUERY_PARAM_PAGE_SIZE, required = false, defaultValue = "10") int pageSize
+            @RequestParam(name = RestConstants.QUERY_PARAM_PAGE_SIZE, required = false, defaultValue = "10") int pageSize,
+            @PositiveOrZero @RequestParam(name = RestConstants.QUERY_PARAM_HISTORY_LIMIT, required = false) Integer historyLimit
     ) {
         PageRequest pageRequest = PageRequest.of(pageIndex, pageSize, Sort.by("key", "validFrom"));
         Page<ScheduledConfigEntry> domainPage = scheduledConfigRepository.findAllLatest(pageRequest);
 
-        List<ScheduledConfigDto> dtos = domainPage.stream().map(scheduledConfigMapper::toDto).collect(Collectors.toUnmodifiableList());
+        List<ScheduledConfigDto> dtos = scheduledConfigMapper.toDtos(domainPage.getContent(), historyLimit);
         return ResponseEntity.ok(dtos);
     }
 
+    @GetMapping(path = RestConstants.PATH_SLICE)
+    public ResponseEntity<ScheduledConfigSliceResponse> getScheduledConfigSlice(
+            @Positive @Max(RestConstants.MAX_PAGE_SIZE) @RequestParam(name = RestConstants.QUERY_PARAM_PAGE_SIZE, required = false, defaultValue = "10") int pageSize,
+            @RequestParam(name = RestConstants.QUERY_PARAM_CURSOR, required = false) String cursor,
+            @PositiveOrZero @RequestParam(name = RestConstants.QUERY_PARAM_HISTORY_LIMIT, required = false) Integer historyLimit
+    ) {
+        PageRequest pageRequest = PageRequest.of(0, pageSize);
+        Slice<ScheduledConfigEntry> domainSlice;
+        if (cursor == null) {
+            domainSlice = scheduledConfigRepository.findLatestSlice(pageRequest);
+        } else {
+            String[] position = CursorCodec.decode(cursor, 2);
+            domainSlice = scheduledConfigRepository.findLatestSliceAfter(position[0], parseCursorTimestamp(position[1]), pageRequest);
+        }
+
+        var builder = ScheduledConfigSliceResponse.builder()
+                .entries(scheduledConfigMapper.toDtos(domainSlice.getContent(), historyLimit));
+        if (domainSlice.hasNext()) {
+            ScheduledConfigEntry last = domainSlice.getContent().get(domainSlice.getNumberOfElements() - 1);
+            builder.nextCursor(CursorCodec.encode(last.getKey(), last.getValidFrom().toInstant().toString()));
+        }
+        return ResponseEntity.ok(builder.build());
+    }
+
+    private static ZonedDateTime parseCursorTimestamp(String value) {
+        try {
+            return Instant.parse(value).atZone(ZoneOffset.UTC);
+        } catch (DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed cursor", e);
+        }
+    }
+
+    /**
+     * Saves the entry in its own transaction or as part of a group commit, depending on de.mczul.config.write.mode.
+     */
     @Validated({Default.class, OnCreate.class})
     @PostMapping
-    public ResponseEntity<ScheduledConfigDto> postScheduledConfig(@Valid @RequestBody ScheduledConfigDto dto) {
+    public ResponseEntity<ScheduledConfigDto> postScheduledConfig(
+            @Valid @RequestBody ScheduledConfigDto dto,
+            @PositiveOrZero @RequestParam(name = RestConstants.QUERY_PARAM_HISTORY_LIMIT, required = false) Integer historyLimit
+    ) {
         ScheduledConfigEntry submittedEntry = scheduledConfigMapper.toEntry(dto);
-        ScheduledConfigEntry savedEntry = scheduledConfigService.set(submittedEntry);
-        ScheduledConfigDto result = scheduledConfigMapper.toDto(savedEntry);
+        ScheduledConfigEntry savedEntry = scheduledConfigWriter.set(submittedEntry);
+        ScheduledConfigDto result = scheduledConfigMapper.toDto(savedEntry, historyLimit);
 
         return ResponseEntity.status(HttpStatus.CREATED).body(result);
     }
 
+    /**
+     * Imports one entry per line; the request body is consumed as a stream, hence its size is not limited by memory.
+     */
+    @PostMapping(path = RestConstants.PATH_IMPORT, consumes = RestConstants.MEDIA_TYPE_NDJSON)
+    public ResponseEntity<ImportReport> importScheduledConfigs(InputStream body) throws IOException {
+        ImportReport report = scheduledConfigImporter.importEntries(
+                new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))
+        );
+        return ResponseEntity.ok(report);
+    }
+
+    /**
+     * Streams all entries including their history; the response is written while the entries are read.
+     */
+    @GetMapping(path = RestConstants.PATH_EXPORT)
+    public ResponseEntity<StreamingResponseBody> exportScheduledConfigs(
+            @RequestParam(name = RestConstants.QUERY_PARAM_FORMAT, required = false, defaultValue = "ndjson") String formatName,
+            @RequestParam(name = RestConstants.QUERY_PARAM_PREFIX, required = false, defaultValue = "") String prefix,
+            @DateTimeFormat(iso = ISO.DATE_TIME) @RequestParam(name = RestConstants.QUERY_PARAM_CREATED_FROM, required = false) ZonedDateTime createdFrom,
+            @DateTimeFormat(iso = ISO.DATE_TIME) @RequestParam(name = RestConstants.QUERY_PARAM_CREATED_UNTIL, required = false) ZonedDateTime createdUntil
+    ) {
+        final ExportFormat format = ExportFormat.of(formatName)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported export format"));
+        StreamingResponseBody body = target -> scheduledConfigExporter.export(format, prefix, createdFrom, createdUntil, target);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"scheduled-config." + format.getFileExtension() + "\"")
+                .body(body);
+    }
+
     @GetMapping(path = "{" + RestConstants.PATH_VARIABLE_KEY + "}")
     public ResponseEntity<ConfigQueryResponse> queryByKey(
-            @NotBlank(message = "{NotBlank.scheduledConfig.key.message}") @PathVariable(name = RestConstants.PATH_VARIABLE_KEY) String key
+            @NotBlank(message = "{NotBlank.scheduledConfig.key.message}") @PathVariable(name = RestConstants.PATH_VARIABLE_KEY) String key,
+            @DateTimeFormat(iso = ISO.DATE_TIME) @RequestParam(name = RestConstants.QUERY_PARAM_REFERENCE_TIME, required = false) ZonedDateTime referenceTime
     ) {
-        Optional<ScheduledConfigEntry> entryOptional = scheduledConfigService.get(key);
+        // Only the value is part of the response, hence the current value is resolved without loading the entry
+        Optional<String> value = referenceTime == null
+                ? scheduledConfigService.getValue(key).map(ConfigValue::getValue)
+                : scheduledConfigService.get(key, referenceTime).map(ScheduledConfigEntry::getValue);
         var queryResponse = ConfigQueryResponse.builder()
                 .key(key.toLowerCase(AppConstants.DEFAULT_LOCALE))
-                .referenceTime(ZonedDateTime.now())
+                .referenceTime(referenceTime == null ? ZonedDateTime.now() : referenceTime)
+                .value(value.orElse(null))
                 .build();
-        if (entryOptional.isEmpty()) {
-            queryResponse.setValue(null);
-        } else {
-            queryResponse.setValue(entryOptional.get().getValue());
-        }
 
         return ResponseEntity.ok(queryResponse);
     }
 
+    /**
+     * Answers with the plain value that is effective right now. Compressed values are passed on as they are stored if
+     * the client accepts gzip, hence they are neither decompressed nor compressed again. Shared contents are tagged with
+     * their hash, so clients that already know a content receive 304 (Not Modified) without a body.
+     */
+    @GetMapping(path = "{" + RestConstants.PATH_VARIABLE_KEY + "}/" + RestConstants.PATH_VALUE)
+    public ResponseEntity<byte[]> queryValueByKey(
+            @NotBlank(message = "{NotBlank.scheduledConfig.key.message}") @PathVariable(name = RestConstants.PATH_VARIABLE_KEY) String key,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        Optional<StoredValue> storedValue = scheduledConfigService.getStoredValue(key);
+        if (storedValue.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        StoredValue value = storedValue.get();
+        if (value.getRepresentation() == null) {
+            return ResponseEntity.noContent().build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (value.getHash() != null) {
+            // Weak, since the tag does not depend on the content coding
+            response.eTag("W/\"" + value.getHash() + "\"");
+        }
+        if (value.isCompressed() && acceptsGzip(acceptEncoding)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, RestConstants.CONTENT_ENCODING_GZIP).body(value.getCompressed());
+        }
+        return response.body(value.decode().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Evaluates an Accept-Encoding header according to RFC 7231; an explicit gzip coding takes precedence over "*"
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim().toLowerCase(AppConstants.DEFAULT_LOCALE);
+            boolean accepted = parameters.length < 2 || !parameters[1].replace(" ", "").matches("[qQ]=0(\\.0{0,3})?");
+            if (RestConstants.CONTENT_ENCODING_GZIP.equals(name)) {
+                return accepted;
+            }
+            if ("*".equals(name)) {
+                wildcard = accepted;
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    @PostMapping(path = RestConstants.PATH_BULK_QUERY)
+    public ResponseEntity<ConfigBulkQueryResponse> queryByKeys(
+            @NotEmpty @RequestBody List<@NotBlank(message = "{ScheduledConfig.key.NotBlank.message}") String> keys,
+            @DateTimeFormat(iso = ISO.DATE_TIME) @RequestParam(name = RestConstants.QUERY_PARAM_REFERENCE_TIME, required = false) ZonedDateTime requestedReferenceTime
+    ) {
+        final ZonedDateTime referenceTime = requestedReferenceTime == null ? ZonedDateTime.now() : requestedReferenceTime;
+        Map<String, ScheduledConfigEntry> entries = scheduledConfigService.getAll(keys, referenceTime);
+
+        var builder = ConfigBulkQueryResponse.builder().referenceTime(referenceTime);
+        keys.stream()
+                .map(key -> key.toLowerCase(AppConstants.DEFAULT_LOCALE))
+                .distinct()
+                .map(key -> ConfigQueryResponse.builder()
+                        .key(key)
+                        .referenceTime(referenceTime)
+                        .value(Optional.ofNullable(entries.get(key)).map(ScheduledConfigEntry::getValue).orElse(null))
+                        .build())
+                .forEach(builder::value);
+
+        return ResponseEntity.ok(builder.build());
+    }
+
+    @GetMapping(path = RestConstants.PATH_PREFIX_QUERY)
+    public ResponseEntity<ConfigPrefixQueryResponse> queryByPrefix(
+            @RequestParam(name = RestConstants.QUERY_PARAM_PREFIX, required = false, defaultValue = "") String prefix,
+            @Positive @Max(RestConstants.MAX_PAGE_SIZE) @RequestParam(name = RestConstants.QUERY_PARAM_PAGE_SIZE, required = false, defaultValue = "10") int pageSize,
+            @RequestParam(name = RestConstants.QUERY_PARAM_CURSOR, required = false) String cursor,
+            @DateTimeFormat(iso = ISO.DATE_TIME) @RequestParam(name = RestConstants.QUERY_PARAM_REFERENCE_TIME, required = false) ZonedDateTime requestedReferenceTime
+    ) {
+        final ZonedDateTime referenceTime = requestedReferenceTime == null ? ZonedDateTime.now() : requestedReferenceTime;
+        final String after = cursor == null ? null : CursorCodec.decode(cursor, 1)[0];
+        List<ScheduledConfigEntry> entries = scheduledConfigService.getByPrefix(prefix, after, pageSize, referenceTime);
+
+        var builder = ConfigPrefixQueryResponse.builder()
+                .referenceTime(referenceTime)
+                .prefix(prefix.toLowerCase(AppConstants.DEFAULT_LOCALE));
+        for (ScheduledConfigEntry entry : entries) {
+            builder.value(ConfigQueryResponse.builder()
+                    .key(entry.getKey().toLowerCase(AppConstants.DEFAULT_LOCALE))
+                    .referenceTime(referenceTime)
+                    .value(entry.getValue())
+                    .build());
+        }
+        if (entries.size() == pageSize) {
+            builder.nextCursor(CursorCodec.encode(entries.get(entries.size() - 1).getKey().toLowerCase(AppConstants.DEFAULT_LOCALE)));
+        }
+
+        return ResponseEntity.ok(builder.build());
+    }
+
 }
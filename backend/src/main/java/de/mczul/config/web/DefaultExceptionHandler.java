@@ -5,7 +5,11 @@ import de.mczul.config.model.ValidationErrorResponse.ValidationErrorResponseBuil
 import de.mczul.config.model.Violation;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -14,10 +18,18 @@ import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 import javax.validation.ConstraintViolationException;
+import java.sql.SQLException;
+import java.util.concurrent.RejectedExecutionException;
 
 @Order(Ordered.HIGHEST_PRECEDENCE)
 @ControllerAdvice
 public class DefaultExceptionHandler {
+    private static final String RETRY_AFTER_SECONDS = "1";
+    private static final String FIELD_VALID_FROM = "validFrom";
+    private static final String CONFLICT_MESSAGE = "Key already has an entry with the same valid from timestamp";
+    private static final String INTEGRITY_MESSAGE = "Entry violates a constraint of the database";
+    // SQL standard state of unique constraint violations
+    private static final String SQL_STATE_UNIQUE_VIOLATION = "23505";
 
     @ExceptionHandler(ConstraintViolationException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
@@ -48,5 +60,53 @@ public class DefaultExceptionHandler {
         }
         return builder.build();
     }
-    
+
+    /**
+     * Entries that conflict with an existing entry of the same key and valid from timestamp are answered with 409;
+     * conflicts detected before the database has been touched carry a message for the client, others have been raised
+     * by the unique constraint. All other integrity violations, e.g. values that exceed their column, are bad requests.
+     */
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    ResponseEntity<ValidationErrorResponse> onDataIntegrityViolationException(DataIntegrityViolationException e) {
+        if (!isUniqueViolation(e)) {
+            return ResponseEntity.badRequest().body(ValidationErrorResponse.builder()
+                    .violation(Violation.builder()
+                            .message(INTEGRITY_MESSAGE)
+                            .build())
+                    .build());
+        }
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ValidationErrorResponse.builder()
+                .violation(Violation.builder()
+                        .fieldName(FIELD_VALID_FROM)
+                        .message(e instanceof DuplicateKeyException ? e.getMessage() : CONFLICT_MESSAGE)
+                        .build())
+                .build());
+    }
+
+    /**
+     * The unique constraint on key and valid from is the only one of scheduled_config besides its primary key
+     */
+    private static boolean isUniqueViolation(DataIntegrityViolationException e) {
+        if (e instanceof DuplicateKeyException) {
+            return true;
+        }
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException && SQL_STATE_UNIQUE_VIOLATION.equals(((SQLException) cause).getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes are rejected without being saved while the write queue is full; clients are asked to retry instead of piling
+     * up
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    ResponseEntity<Void> onRejectedExecutionException(RejectedExecutionException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .build();
+    }
+
 }
@@ -0,0 +1,257 @@
+package de.mczul.config.web;
+
+import de.mczul.config.AppConstants;
+import de.mczul.config.model.ConfigBulkQueryResponse;
+import de.mczul.config.model.ConfigQueryResponse;
+import de.mczul.config.model.ConfigValue;
+import de.mczul.config.model.ScheduledConfigDto;
+import de.mczul.config.model.ValidationErrorResponse;
+import de.mczul.config.model.ValidationErrorResponse.ValidationErrorResponseBuilder;
+import de.mczul.config.model.Violation;
+import de.mczul.config.service.ReactiveValueReader;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import javax.validation.constraints.NotEmpty;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Handlers of the reactive read API, which answer with the same responses as the corresponding queries of
+ * {@link DefaultController}. Keys are validated with the constraints of {@link ScheduledConfigDto#getKey()}, hence keys
+ * that cannot have been written are rejected before any statement is executed.
+ */
+@Slf4j
+@ConditionalOnProperty(prefix = "de.mczul.config.reactive", name = "enabled", havingValue = "true")
+@Component
+public class ReactiveQueryHandler {
+    private static final ParameterizedTypeReference<List<String>> KEYS = new ParameterizedTypeReference<>() {
+    };
+
+    private final ReactiveValueReader reader;
+    private final Validator validator;
+    // Keys of all open change streams by the number of streams that follow them
+    private final ConcurrentMap<String, Integer> followed = new ConcurrentHashMap<>();
+    // Polls the keys of all open change streams at once; started by the first stream and stopped after the last one
+    private final Flux<Poll> polls;
+
+    public ReactiveQueryHandler(
+            ReactiveValueReader reader,
+            Validator validator,
+            @Value("${de.mczul.config.reactive.poll-interval}") Duration pollInterval
+    ) {
+        this.reader = reader;
+        this.validator = validator;
+        this.polls = Flux.interval(pollInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> poll(List.copyOf(followed.keySet())))
+                .publish()
+                .refCount();
+    }
+
+    public Mono<ServerResponse> queryByKey(ServerRequest request) {
+        final String key = request.pathVariable(RestConstants.PATH_VARIABLE_KEY);
+        final ValidationErrorResponse errors = validate(RestConstants.PATH_VARIABLE_KEY, key);
+        if (!errors.getViolations().isEmpty()) {
+            return ServerResponse.badRequest().bodyValue(errors);
+        }
+
+        final ZonedDateTime referenceTime = referenceTime(request);
+        return reader.findValues(List.of(key), referenceTime)
+                .next()
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(value -> ServerResponse.ok().bodyValue(response(key, value.orElse(null), referenceTime)));
+    }
+
+    public Mono<ServerResponse> queryByKeys(ServerRequest request) {
+        final ZonedDateTime referenceTime = referenceTime(request);
+        return request.bodyToMono(KEYS)
+                .defaultIfEmpty(List.of())
+                .flatMap(keys -> {
+                    final ValidationErrorResponse errors = validate("keys", keys);
+                    if (!errors.getViolations().isEmpty()) {
+                        return ServerResponse.badRequest().bodyValue(errors);
+                    }
+                    return reader.findValues(keys, referenceTime)
+                            .collectMap(ConfigValue::getKey)
+                            .flatMap(values -> {
+                                var builder = ConfigBulkQueryResponse.builder().referenceTime(referenceTime);
+                                normalize(keys).forEach(key -> builder.value(response(key, values.get(key), referenceTime)));
+                                return ServerResponse.ok().bodyValue(builder.build());
+                            });
+                });
+    }
+
+    /**
+     * Streams the values of the requested keys as server-sent events: the values that are effective right now, followed
+     * by every change of a value, e.g. by a write or by the activation of a scheduled entry, which are detected by
+     * polling every de.mczul.config.reactive.poll-interval. The current values are queried per stream, whereas changes
+     * are detected by a single poll that is shared by all streams, so the load on the database does not grow with the
+     * number of subscribers.
+     */
+    public Mono<ServerResponse> streamChanges(ServerRequest request) {
+        final List<String> keys = request.queryParams().getOrDefault(RestConstants.QUERY_PARAM_KEY, List.of());
+        final ValidationErrorResponse errors = validate(RestConstants.QUERY_PARAM_KEY, keys);
+        if (!errors.getViolations().isEmpty()) {
+            return ServerResponse.badRequest().bodyValue(errors);
+        }
+
+        final List<String> normalizedKeys = normalize(keys);
+        final Flux<ConfigQueryResponse> changes = Flux.defer(() -> {
+            final Follower follower = new Follower(normalizedKeys);
+            normalizedKeys.forEach(key -> followed.merge(key, 1, Integer::sum));
+            return Flux.concat(poll(normalizedKeys), polls)
+                    .concatMapIterable(follower::changes)
+                    .doFinally(signal -> normalizedKeys.forEach(key -> followed.computeIfPresent(key, (k, streams) -> streams == 1 ? null : streams - 1)));
+        });
+        return ServerResponse.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(changes, ConfigQueryResponse.class);
+    }
+
+    private Mono<Poll> poll(List<String> keys) {
+        if (keys.isEmpty()) {
+            return Mono.empty();
+        }
+        final ZonedDateTime referenceTime = ZonedDateTime.now();
+        return reader.findValues(keys, referenceTime)
+                .collectMap(ConfigValue::getKey)
+                .map(values -> new Poll(referenceTime, Set.copyOf(keys), values))
+                .onErrorResume(e -> {
+                    // Streams are kept open, since the next poll may succeed
+                    LOG.warn("Failed to poll the values of {} keys", keys.size(), e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * @param name Name of the key parameter, which is reported as field of the violations
+     */
+    private ValidationErrorResponse validate(String name, String key) {
+        ValidationErrorResponseBuilder builder = ValidationErrorResponse.builder();
+        addViolations(builder, name, validator.validateValue(ScheduledConfigDto.class, "key", key));
+        return builder.build();
+    }
+
+    /**
+     * @param name Name of the key list parameter, which is reported as field of the violations
+     */
+    private ValidationErrorResponse validate(String name, List<String> keys) {
+        ValidationErrorResponseBuilder builder = ValidationErrorResponse.builder();
+        addViolations(builder, name, validator.validateValue(KeysParameter.class, "keys", keys));
+        for (int i = 0; i < keys.size(); i++) {
+            addViolations(builder, name + "[" + i + "]", validator.validateValue(ScheduledConfigDto.class, "key", keys.get(i)));
+        }
+        return builder.build();
+    }
+
+    private static void addViolations(ValidationErrorResponseBuilder builder, String fieldName, Set<? extends ConstraintViolation<?>> violations) {
+        violations.forEach(violation -> builder.violation(Violation.builder()
+                .fieldName(fieldName)
+                .message(violation.getMessage())
+                .build()));
+    }
+
+    private static List<String> normalize(List<String> keys) {
+        return keys.stream()
+                .map(key -> key.toLowerCase(AppConstants.DEFAULT_LOCALE))
+                .distinct()
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    private static ZonedDateTime referenceTime(ServerRequest request) {
+        try {
+            return request.queryParam(RestConstants.QUERY_PARAM_REFERENCE_TIME)
+                    .map(ZonedDateTime::parse)
+                    .orElseGet(ZonedDateTime::now);
+        } catch (DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed reference time", e);
+        }
+    }
+
+    private static ConfigQueryResponse response(String key, ConfigValue value, ZonedDateTime referenceTime) {
+        return ConfigQueryResponse.builder()
+                .key(key.toLowerCase(AppConstants.DEFAULT_LOCALE))
+                .referenceTime(referenceTime)
+                .value(value == null ? null : value.getValue())
+                .build();
+    }
+
+    /**
+     * Values of the polled keys at the reference time of the poll
+     */
+    private static final class Poll {
+        private final ZonedDateTime referenceTime;
+        private final Set<String> keys;
+        private final Map<String, ConfigValue> values;
+
+        private Poll(ZonedDateTime referenceTime, Set<String> keys, Map<String, ConfigValue> values) {
+            this.referenceTime = referenceTime;
+            this.keys = keys;
+            this.values = values;
+        }
+    }
+
+    /**
+     * State of a single change stream; accessed sequentially, since polls are concatenated
+     */
+    private static final class Follower {
+        private final List<String> keys;
+        // Values that have been sent to the subscriber
+        private final Map<String, Optional<ConfigValue>> sent = new HashMap<>();
+        private ZonedDateTime referenceTime;
+
+        private Follower(List<String> keys) {
+            this.keys = keys;
+        }
+
+        private List<ConfigQueryResponse> changes(Poll poll) {
+            // Shared polls that have been started before the current values were queried may report older values
+            if (referenceTime != null && poll.referenceTime.isBefore(referenceTime)) {
+                return List.of();
+            }
+            referenceTime = poll.referenceTime;
+            return keys.stream()
+                    .filter(poll.keys::contains)
+                    .filter(key -> {
+                        Optional<ConfigValue> value = Optional.ofNullable(poll.values.get(key));
+                        return !value.equals(sent.put(key, value));
+                    })
+                    .map(key -> response(key, poll.values.get(key), poll.referenceTime))
+                    .collect(Collectors.toUnmodifiableList());
+        }
+    }
+
+    /**
+     * Constraints of key lists that are not covered by the constraints of single keys
+     */
+    @Data
+    static class KeysParameter {
+        @NotEmpty
+        private List<String> keys;
+    }
+
+}
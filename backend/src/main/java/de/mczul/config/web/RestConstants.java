@@ -3,10 +3,34 @@ package de.mczul.config.web;
 public class RestConstants {
 
     public static final String PATH_PREFIX_API = "/api/v1";
+    // Valid config keys never start with an underscore, hence the following paths cannot collide with key queries
+    public static final String PATH_BULK_QUERY = "_query";
+    public static final String PATH_PREFIX_QUERY = "_prefix";
+    public static final String PATH_SLICE = "_slice";
+    public static final String PATH_IMPORT = "_import";
+    public static final String PATH_EXPORT = "_export";
+    public static final String PATH_VALUE = "_value";
+    // Read API of the reactive stack; paths of its routes are relative to this prefix
+    public static final String PATH_PREFIX_REACTIVE_API = PATH_PREFIX_API + "/_reactive";
+    public static final String PATH_CHANGES = "_changes";
+
+    public static final String MEDIA_TYPE_NDJSON = "application/x-ndjson";
+    public static final String CONTENT_ENCODING_GZIP = "gzip";
 
     public static final String QUERY_PARAM_PAGE_INDEX = "pageIndex";
     public static final String QUERY_PARAM_PAGE_SIZE = "pageSize";
+    public static final String QUERY_PARAM_CURSOR = "cursor";
+    public static final String QUERY_PARAM_PREFIX = "prefix";
+    public static final String QUERY_PARAM_REFERENCE_TIME = "referenceTime";
+    public static final String QUERY_PARAM_HISTORY_LIMIT = "historyLimit";
+    public static final String QUERY_PARAM_FORMAT = "format";
+    public static final String QUERY_PARAM_CREATED_FROM = "createdFrom";
+    public static final String QUERY_PARAM_CREATED_UNTIL = "createdUntil";
+    public static final String QUERY_PARAM_KEY = "key";
 
     public static final String PATH_VARIABLE_KEY = "key";
 
+    // Upper bound for the page size of keyset paginated queries
+    public static final int MAX_PAGE_SIZE = 1_000;
+
 }
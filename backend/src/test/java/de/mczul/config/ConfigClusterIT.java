@@ -0,0 +1,107 @@
+package de.mczul.config;
+
+import de.mczul.config.model.ScheduledConfigEntry;
+import de.mczul.config.service.ScheduledConfigService;
+import de.mczul.config.testing.TestTags;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs two nodes with the default profile, hence with scheduled jobs, against one H2 file database and verifies that
+ * writes of one node become visible on the other one, whose caches hold the previous state.
+ */
+@DisplayName("Cluster integration tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+@Tag(TestTags.INTEGRATION_TEST)
+class ConfigClusterIT {
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @TempDir
+    Path databaseDirectory;
+
+    private ConfigurableApplicationContext nodeA;
+    private ConfigurableApplicationContext nodeB;
+
+    private ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(ScheduledConfigApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:file:" + databaseDirectory.resolve("config").toAbsolutePath() + ";DB_CLOSE_DELAY=-1",
+                "--spring.jpa.show-sql=false",
+                "--de.mczul.config.change-log.poll-interval=50"
+        );
+    }
+
+    @BeforeEach
+    void beforeEach() {
+        nodeA = start();
+        nodeB = start();
+    }
+
+    @AfterEach
+    void afterEach() {
+        nodeB.close();
+        nodeA.close();
+    }
+
+    private static ScheduledConfigEntry entry(String key, ZonedDateTime validFrom, String value) {
+        return ScheduledConfigEntry.builder()
+                .key(key)
+                .validFrom(validFrom)
+                .value(value)
+                .author("A")
+                .build();
+    }
+
+    private static <T> T await(Supplier<T> query, T expected) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        T actual = query.get();
+        while (!expected.equals(actual) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            actual = query.get();
+        }
+        return actual;
+    }
+
+    @Test
+    void propagate_writes_to_the_caches_of_other_nodes() throws InterruptedException {
+        final ScheduledConfigService serviceA = nodeA.getBean(ScheduledConfigService.class);
+        final ScheduledConfigService serviceB = nodeB.getBean(ScheduledConfigService.class);
+        final ZonedDateTime now = ZonedDateTime.now();
+        serviceA.set(entry("CLUSTER.KEY", now.minusMinutes(2), "1"));
+
+        // Loads the key into the timeline cache and the snapshot of node B
+        assertThat(serviceB.get("cluster.key", ZonedDateTime.now())).map(ScheduledConfigEntry::getValue).contains("1");
+        assertThat(await(() -> serviceB.get("cluster.key").map(ScheduledConfigEntry::getValue), Optional.of("1"))).contains("1");
+        assertThat(serviceB.getByPrefix("cluster.", null, 10, ZonedDateTime.now())).extracting(ScheduledConfigEntry::getKey).containsExactly("cluster.key");
+
+        serviceA.set(entry("CLUSTER.KEY", now.minusMinutes(1), "2"));
+        serviceA.set(entry("CLUSTER.OTHER_KEY", now.minusMinutes(1), "3"));
+
+        assertThat(await(() -> serviceB.get("cluster.key").map(ScheduledConfigEntry::getValue), Optional.of("2"))).contains("2");
+        assertThat(serviceB.get("cluster.key", ZonedDateTime.now())).map(ScheduledConfigEntry::getValue).contains("2");
+        assertThat(serviceB.get("cluster.key", now.minusSeconds(90))).map(ScheduledConfigEntry::getValue).contains("1");
+        final Supplier<List<String>> keysB = () -> serviceB.getByPrefix("cluster.", null, 10, ZonedDateTime.now()).stream()
+                .map(ScheduledConfigEntry::getKey)
+                .collect(Collectors.toList());
+        assertThat(await(keysB, List.of("cluster.key", "cluster.other_key"))).containsExactly("cluster.key", "cluster.other_key");
+    }
+
+}
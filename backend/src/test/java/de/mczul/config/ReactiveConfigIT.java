@@ -0,0 +1,31 @@
+package de.mczul.config;
+
+import de.mczul.config.testing.IntegrationTest;
+import de.mczul.config.web.ReactiveQueryHandler;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Disabled reactive read API integration tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+@IntegrationTest
+class ReactiveConfigIT {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Test
+    void start_without_reactive_read_api_by_default() {
+        assertThat(context.getBeansOfType(ReactiveConfig.class)).isEmpty();
+        assertThat(context.getBeansOfType(ReactiveQueryHandler.class)).isEmpty();
+        assertThat(context.getBeansOfType(DatabaseClient.class)).isEmpty();
+        assertThat(context.containsBean("reactiveServlet")).isFalse();
+    }
+
+}
@@ -0,0 +1,253 @@
+package de.mczul.config;
+
+import de.mczul.config.model.ScheduledConfigEntry;
+import de.mczul.config.service.ScheduledConfigService;
+import de.mczul.config.testing.TestTags;
+import de.mczul.config.web.RestConstants;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares throughput and memory of serving requests on platform threads and on virtual threads (see
+ * {@link VirtualThreadConfig}). Every level keeps the given number of keep-alive connections busy with queries of
+ * {@code GET /api/v1/{key}/_value}, which resolve the stored value with a native query, hence block on JDBC.
+ * <p>
+ * Clients run on virtual threads in the same JVM, so reported heap includes the clients in both modes; peak threads
+ * are the live platform threads. Every connection takes two file descriptors of this JVM, levels that exceed the file
+ * descriptor limit are skipped.
+ * <p>
+ * Disabled by default, run with {@code mvn verify -Dit.test=RequestThreadBenchmarkIT -Dbenchmark=true}; levels can be
+ * set with {@code -Dbenchmark.connections=1000,5000,10000}.
+ */
+@Slf4j
+@DisplayName("Request thread benchmark")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+@Tag(TestTags.INTEGRATION_TEST)
+@Tag(TestTags.BENCHMARK)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class RequestThreadBenchmarkIT {
+    private static final String LEVELS = System.getProperty("benchmark.connections", "1000,5000,10000");
+    private static final int NUMBER_OF_KEYS = 1_000;
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+    private static final Duration MEASUREMENT = Duration.ofSeconds(15);
+    // File descriptors that are taken regardless of the level, e.g. by jars and the connection pool
+    private static final long RESERVED_FILE_DESCRIPTORS = 1_000;
+
+    private final List<String> keys = IntStream.range(0, NUMBER_OF_KEYS)
+            .mapToObj(i -> String.format(Locale.ROOT, "benchmark.threads_%04d", i))
+            .collect(Collectors.toUnmodifiableList());
+
+    private static long maxFileDescriptors() throws JMException {
+        return (Long) ManagementFactory.getPlatformMBeanServer().getAttribute(
+                new ObjectName("java.lang:type=OperatingSystem"),
+                "MaxFileDescriptorCount"
+        );
+    }
+
+    private static ConfigurableApplicationContext start(String threads) {
+        return new SpringApplicationBuilder(ScheduledConfigApplication.class)
+                .profiles(AppConstants.PROFILES_TEST)
+                // Arguments, since default properties do not override application.properties
+                .run(
+                        "--de.mczul.config.threads=" + threads,
+                        "--server.port=0",
+                        "--server.tomcat.max-connections=20000",
+                        "--server.tomcat.accept-count=10000",
+                        "--server.tomcat.max-keep-alive-requests=-1",
+                        "--spring.datasource.url=jdbc:h2:mem:threads-" + threads + ";DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.show-sql=false"
+                );
+    }
+
+    private void seed(ConfigurableApplicationContext context) {
+        final ZonedDateTime now = ZonedDateTime.now();
+        context.getBean(ScheduledConfigService.class).setAll(keys.stream()
+                .map(key -> ScheduledConfigEntry.builder()
+                        .key(key)
+                        .validFrom(now.minusHours(1))
+                        .value(key.toUpperCase(Locale.ROOT))
+                        .created(now.minusHours(2))
+                        .author("benchmark")
+                        .build())
+                .collect(Collectors.toUnmodifiableList()));
+    }
+
+    private Result measure(String threads, int port, int connections) throws InterruptedException {
+        final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+        final LongAdder requests = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final long measureFrom = System.nanoTime() + WARMUP.toNanos();
+        final long measureUntil = measureFrom + MEASUREMENT.toNanos();
+        final AtomicLong peakHeap = new AtomicLong();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < connections; i++) {
+                final String key = keys.get(i % NUMBER_OF_KEYS);
+                clients.execute(() -> {
+                    try {
+                        new Client(port, key).run(measureFrom, measureUntil, requests);
+                    } catch (IOException e) {
+                        errors.increment();
+                        LOG.debug("Client of {} failed", key, e);
+                    }
+                });
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.max(0, measureFrom - System.nanoTime()));
+            threadBean.resetPeakThreadCount();
+            while (System.nanoTime() < measureUntil) {
+                peakHeap.accumulateAndGet(memoryBean.getHeapMemoryUsage().getUsed(), Math::max);
+                TimeUnit.MILLISECONDS.sleep(100);
+            }
+        }
+
+        final Result result = new Result(
+                requests.sum() / (double) MEASUREMENT.toSeconds(),
+                errors.sum(),
+                threadBean.getPeakThreadCount(),
+                peakHeap.get()
+        );
+        LOG.info(String.format(Locale.ROOT, "%-8s %6d connections %10.0f requests/s %6d errors %6d peak threads %8d MB peak heap",
+                threads, connections, result.throughput, result.errors, result.peakThreads, result.peakHeap >> 20));
+        return result;
+    }
+
+    @Test
+    void compare_platform_and_virtual_threads() throws InterruptedException, JMException {
+        final long maxFileDescriptors = maxFileDescriptors();
+        final List<Integer> levels = Arrays.stream(LEVELS.split(","))
+                .map(String::trim)
+                .map(Integer::valueOf)
+                .collect(Collectors.toUnmodifiableList());
+
+        final List<Result> results = new ArrayList<>();
+        for (String threads : List.of("platform", "virtual")) {
+            try (ConfigurableApplicationContext context = start(threads)) {
+                seed(context);
+                final int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                for (int connections : levels) {
+                    if (2L * connections + RESERVED_FILE_DESCRIPTORS > maxFileDescriptors) {
+                        LOG.warn("Skipping {} connections, since the file descriptor limit is {}", connections, maxFileDescriptors);
+                        continue;
+                    }
+                    System.gc();
+                    results.add(measure(threads, port, connections));
+                }
+            }
+        }
+
+        assertThat(results).isNotEmpty().allSatisfy(result -> {
+            assertThat(result.errors).isZero();
+            assertThat(result.throughput).isPositive();
+        });
+    }
+
+    /**
+     * Sends requests over a single keep-alive connection
+     */
+    private static final class Client {
+        private final int port;
+        private final byte[] request;
+
+        private Client(int port, String key) {
+            this.port = port;
+            this.request = String.format(Locale.ROOT, "GET %s/%s/%s HTTP/1.1\r\nHost: localhost\r\n\r\n",
+                    RestConstants.PATH_PREFIX_API, key, RestConstants.PATH_VALUE).getBytes(StandardCharsets.US_ASCII);
+        }
+
+        private void run(long measureFrom, long measureUntil, LongAdder requests) throws IOException {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress("localhost", port));
+                final OutputStream out = socket.getOutputStream();
+                final InputStream in = new BufferedInputStream(socket.getInputStream());
+                long now;
+                while ((now = System.nanoTime()) < measureUntil) {
+                    out.write(request);
+                    out.flush();
+                    readResponse(in);
+                    if (now >= measureFrom) {
+                        requests.increment();
+                    }
+                }
+            }
+        }
+
+        private static void readResponse(InputStream in) throws IOException {
+            final String status = readLine(in);
+            if (!status.startsWith("HTTP/1.1 200")) {
+                throw new IOException("Unexpected response: " + status);
+            }
+            int contentLength = 0;
+            for (String header = readLine(in); !header.isEmpty(); header = readLine(in)) {
+                if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                    contentLength = Integer.parseInt(header.substring(15).trim());
+                }
+            }
+            in.skipNBytes(contentLength);
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            final StringBuilder line = new StringBuilder();
+            for (int c = in.read(); c != '\n'; c = in.read()) {
+                if (c < 0) {
+                    throw new IOException("Connection closed");
+                }
+                if (c != '\r') {
+                    line.append((char) c);
+                }
+            }
+            return line.toString();
+        }
+    }
+
+    private static final class Result {
+        private final double throughput;
+        private final long errors;
+        private final int peakThreads;
+        private final long peakHeap;
+
+        private Result(double throughput, long errors, int peakThreads, long peakHeap) {
+            this.throughput = throughput;
+            this.errors = errors;
+            this.peakThreads = peakThreads;
+            this.peakHeap = peakHeap;
+        }
+    }
+
+}
@@ -0,0 +1,42 @@
+package de.mczul.config;
+
+import de.mczul.config.testing.IntegrationTest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Virtual thread mode integration tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+@IntegrationTest
+@TestPropertySource(properties = "de.mczul.config.threads=virtual")
+class VirtualThreadConfigIT {
+
+    @Autowired
+    private ApplicationContext context;
+    @Autowired
+    @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    private AsyncTaskExecutor applicationTaskExecutor;
+
+    @Test
+    void customize_tomcat_executor() {
+        assertThat(context.getBeansOfType(TomcatProtocolHandlerCustomizer.class)).containsKey("virtualThreadProtocolHandlerCustomizer");
+    }
+
+    @Test
+    void run_asynchronous_tasks_on_virtual_threads() throws ExecutionException, InterruptedException {
+        assertThat(applicationTaskExecutor.submit(() -> Thread.currentThread().isVirtual()).get()).isTrue();
+    }
+
+}
@@ -0,0 +1,69 @@
+package de.mczul.config.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+@DisplayName("StoredValue tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+class StoredValueTest {
+    private static final int THRESHOLD = 64;
+
+    @Test
+    void keep_values_below_threshold_as_they_are() {
+        final StoredValue stored = StoredValue.encode("a".repeat(THRESHOLD - 1), THRESHOLD);
+
+        assertThat(stored.isCompressed()).isFalse();
+        assertThat(stored.getRepresentation()).isEqualTo("a".repeat(THRESHOLD - 1));
+        assertThat(stored.decode()).isEqualTo("a".repeat(THRESHOLD - 1));
+    }
+
+    @Test
+    void compress_values_reaching_threshold() {
+        final String value = "{\"feature\":\"enabled\",\"ratio\":0.5}".repeat(100);
+        final StoredValue stored = StoredValue.encode(value, THRESHOLD);
+
+        assertThat(stored.isCompressed()).isTrue();
+        assertThat(stored.getRepresentation()).startsWith("\u0001gzip:").hasSizeLessThan(value.length());
+        assertThat(stored.getCompressed()).startsWith(0x1f, 0x8b);
+        assertThat(stored.decode()).isEqualTo(value);
+    }
+
+    @Test
+    void keep_incompressible_values_as_they_are() {
+        final Random random = new Random(42);
+        final StringBuilder value = new StringBuilder();
+        for (int i = 0; i < THRESHOLD * 4; i++) {
+            value.append((char) ('!' + random.nextInt(94)));
+        }
+        final StoredValue stored = StoredValue.encode(value.toString(), THRESHOLD);
+
+        assertThat(stored.isCompressed()).isFalse();
+        assertThat(stored.decode()).isEqualTo(value.toString());
+    }
+
+    @Test
+    void escape_plain_values_starting_with_marker() {
+        final String value = "\u0001gzip:not compressed";
+        final StoredValue stored = StoredValue.encode(value, THRESHOLD);
+
+        assertThat(stored.isCompressed()).isFalse();
+        assertThat(stored.getRepresentation()).isNotEqualTo(value);
+        assertThat(stored.decode()).isEqualTo(value);
+        assertThatIllegalStateException().isThrownBy(stored::getCompressed);
+    }
+
+    @Test
+    void decode_rows_written_before_compression() {
+        assertThat(new StoredValue("42").decode()).isEqualTo("42");
+        assertThat(new StoredValue("\u0001legacy").decode()).isEqualTo("\u0001legacy");
+        assertThat(new StoredValue(null).decode()).isNull();
+        assertThat(StoredValue.encode(null, THRESHOLD).getRepresentation()).isNull();
+    }
+}
@@ -0,0 +1,114 @@
+package de.mczul.config.service;
+
+import de.mczul.config.model.ScheduledConfigEntry;
+import de.mczul.config.testing.IntegrationTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Config change log integration tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+@IntegrationTest
+class ConfigChangeLogIT {
+    private static final String OTHER_ORIGIN = "00000000-0000-0000-0000-000000000000";
+
+    @Autowired
+    private ConfigChangeLog underTest;
+    @Autowired
+    private ScheduledConfigService service;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> inserted = new ArrayList<>();
+
+    // Simulates a change of another node that is committed with the given revision
+    private void insertChange(long revision, String key, Instant changed) {
+        jdbcTemplate.update("INSERT INTO config.change_log (revision, key, origin, changed) VALUES (?, ?, ?, ?)",
+                revision, key, OTHER_ORIGIN, Timestamp.from(changed));
+        inserted.add(revision);
+    }
+
+    private long latestRevision() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(revision), 0) FROM config.change_log", Long.class);
+    }
+
+    @AfterEach
+    void afterEach() {
+        inserted.forEach(revision -> jdbcTemplate.update("DELETE FROM config.change_log WHERE revision = ?", revision));
+    }
+
+    @Test
+    void skip_own_changes() {
+        service.set(ScheduledConfigEntry.builder()
+                .key("MY.CHANGED.KEY")
+                .validFrom(ZonedDateTime.now())
+                .value("1")
+                .author("A")
+                .build());
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM config.change_log WHERE key = ?", Integer.class, "my.changed.key")).isOne();
+        assertThat(underTest.poll()).doesNotContain("my.changed.key");
+    }
+
+    @Test
+    void report_changes_of_other_nodes_that_are_committed_out_of_order() {
+        underTest.poll();
+        final long base = latestRevision();
+
+        insertChange(base + 2, "my.late.key", Instant.now());
+        assertThat(underTest.poll()).containsExactly("my.late.key");
+        // Revisions of rolled back transactions of other tests may be missing as well
+        assertThat(meterRegistry.get(ConfigChangeLog.METRIC_MISSING).gauge().value()).isGreaterThanOrEqualTo(1);
+
+        // The transaction of the skipped revision commits after the poll
+        insertChange(base + 1, "my.early.key", Instant.now());
+        assertThat(underTest.poll()).containsExactly("my.early.key");
+        assertThat(underTest.poll()).isEmpty();
+        assertThat(meterRegistry.get(ConfigChangeLog.METRIC_POLL_AGE).timeGauge().value(TimeUnit.SECONDS)).isLessThan(1);
+    }
+
+    @Test
+    void report_changes_of_other_nodes_that_are_committed_after_the_start() {
+        underTest.poll();
+        final long base = latestRevision();
+        insertChange(base + 1, "my.settled.key", Instant.now().minus(Duration.ofMinutes(1)));
+        insertChange(base + 3, "my.committed.key", Instant.now());
+
+        // Restarted while the transaction of the revision in between is running
+        underTest.start();
+        assertThat(underTest.poll()).isEmpty();
+
+        insertChange(base + 2, "my.pending.key", Instant.now());
+        assertThat(underTest.poll()).containsExactly("my.pending.key");
+    }
+
+    @Test
+    void prune_changes_beyond_retention() {
+        underTest.poll();
+        final long base = latestRevision();
+        insertChange(base + 1, "my.old.key", Instant.now().minus(Duration.ofDays(1)));
+        insertChange(base + 2, "my.recent.key", Instant.now());
+
+        assertThat(underTest.prune()).isOne();
+        assertThat(jdbcTemplate.queryForList("SELECT key FROM config.change_log WHERE revision > ?", String.class, base))
+                .containsExactly("my.recent.key");
+    }
+
+}
@@ -0,0 +1,95 @@
+package de.mczul.config.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@DisplayName("ConfigKeyIndex unit tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+@ExtendWith(MockitoExtension.class)
+class ConfigKeyIndexTest {
+    private static final List<String> KEYS = List.of(
+            "payment.gateway.timeout",
+            "payment.gateway",
+            "payment.gateway.retries",
+            "payment.fee",
+            "pay",
+            "shipping.carrier",
+            "payments.enabled"
+    );
+
+    @Mock
+    private ScheduledConfigRepository scheduledConfigRepository;
+    @InjectMocks
+    private ConfigKeyIndex underTest;
+
+    @BeforeEach
+    void beforeEach() {
+        when(scheduledConfigRepository.findAllKeys()).thenReturn(KEYS.subList(0, 3));
+        KEYS.subList(3, KEYS.size()).forEach(underTest::add);
+    }
+
+    private static List<String> expected(String prefix, String after) {
+        return KEYS.stream()
+                .filter(key -> key.startsWith(prefix))
+                .filter(key -> after == null || key.compareTo(after) > 0)
+                .sorted()
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    @Test
+    void load_keys_from_database_only_once() {
+        underTest.add("another.key");
+        underTest.find("", null, Integer.MAX_VALUE);
+
+        verify(scheduledConfigRepository, times(1)).findAllKeys();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "p", "pay", "payment", "payment.", "payment.gateway", "payment.gateway.", "payments", "shipping", "x", "payment.gateway.timeout.x"})
+    void find_all_keys_with_prefix_in_ascending_order(String prefix) {
+        assertThat(underTest.find(prefix, null, Integer.MAX_VALUE)).containsExactlyElementsOf(expected(prefix, null));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"pay", "payment", "payment.gateway", "payment.gateway.retries", "payment.gateway.s", "payment.h", "a", "z"})
+    void find_keys_after_exclusive_lower_bound(String after) {
+        assertThat(underTest.find("", after, Integer.MAX_VALUE)).containsExactlyElementsOf(expected("", after));
+        assertThat(underTest.find("payment.", after, Integer.MAX_VALUE)).containsExactlyElementsOf(expected("payment.", after));
+    }
+
+    @Test
+    void page_through_prefix_with_limit() {
+        final var first = underTest.find("payment", null, 2);
+        final var second = underTest.find("payment", first.get(first.size() - 1), 2);
+        final var third = underTest.find("payment", second.get(second.size() - 1), 2);
+
+        assertThat(first).containsExactly("payment.fee", "payment.gateway");
+        assertThat(second).containsExactly("payment.gateway.retries", "payment.gateway.timeout");
+        assertThat(third).containsExactly("payments.enabled");
+    }
+
+    @Test
+    void ignore_duplicate_keys() {
+        underTest.add("payment.fee");
+        underTest.add("payment");
+
+        assertThat(underTest.find("payment", null, Integer.MAX_VALUE))
+                .containsExactly("payment", "payment.fee", "payment.gateway", "payment.gateway.retries", "payment.gateway.timeout", "payments.enabled");
+    }
+
+}
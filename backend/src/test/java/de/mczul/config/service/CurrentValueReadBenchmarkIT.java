@@ -0,0 +1,150 @@
+package de.mczul.config.service;
+
+import de.mczul.config.testing.IntegrationTest;
+import de.mczul.config.testing.TestTags;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares latency and heap allocations per request of resolving the current value of a key that is not part of the
+ * activator snapshot with a managed entry ({@link CurrentValueStore#find(String)}) and with the value projection
+ * ({@link CurrentValueStore#findValue(String)}). Entries carry a comment of realistic size, which is loaded along with
+ * the entry but never needed to answer value queries.
+ * <p>
+ * Disabled by default, run with {@code mvn verify -Dit.test=CurrentValueReadBenchmarkIT -Dbenchmark=true}.
+ */
+@Slf4j
+@DisplayName("CurrentValueStore read benchmark")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+@IntegrationTest
+@Tag(TestTags.BENCHMARK)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@TestInstance(Lifecycle.PER_CLASS)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:read-benchmark;DB_CLOSE_DELAY=-1")
+class CurrentValueReadBenchmarkIT {
+    private static final int NUMBER_OF_KEYS = 10_000;
+    private static final int WARMUP_REQUESTS = 20_000;
+    private static final int MEASURED_REQUESTS = 50_000;
+    private static final int FIRST_ID = 20_000_000;
+    private static final String COMMENT = "Changed by the benchmark in order to verify a comment of realistic length. ".repeat(4);
+
+    @Autowired
+    private CurrentValueStore underTest;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<String> keys = IntStream.range(0, NUMBER_OF_KEYS)
+            .mapToObj(i -> String.format(Locale.ROOT, "benchmark.read_%05d", i))
+            .collect(Collectors.toUnmodifiableList());
+
+    @BeforeAll
+    void beforeAll() {
+        final Instant now = Instant.now();
+        jdbcTemplate.batchUpdate("INSERT INTO config.scheduled_config " +
+                "(id, key, normalized_key, valid_from, value, created, comment, author) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setInt(1, FIRST_ID + i);
+                ps.setString(2, keys.get(i));
+                ps.setString(3, keys.get(i));
+                ps.setTimestamp(4, Timestamp.from(now.minus(Duration.ofHours(1))));
+                ps.setString(5, String.valueOf(i));
+                ps.setTimestamp(6, Timestamp.from(now.minus(Duration.ofHours(2))));
+                ps.setString(7, COMMENT);
+                ps.setString(8, "benchmark");
+            }
+
+            @Override
+            public int getBatchSize() {
+                return NUMBER_OF_KEYS;
+            }
+        });
+        underTest.refresh(keys);
+    }
+
+    @AfterAll
+    void afterAll() {
+        jdbcTemplate.update("DELETE FROM config.current_value");
+        jdbcTemplate.update("DELETE FROM config.scheduled_config");
+    }
+
+    /**
+     * Heap allocated by the current thread so far; queried through JMX, since the typed MXBean is not portable
+     */
+    private static long allocatedBytes() throws JMException {
+        return (Long) ManagementFactory.getPlatformMBeanServer().invoke(
+                new ObjectName("java.lang:type=Threading"),
+                "getThreadAllocatedBytes",
+                new Object[]{Thread.currentThread().threadId()},
+                new String[]{long.class.getName()}
+        );
+    }
+
+    private <T> Measurement measure(String label, Function<String, T> request, Function<T, String> value) throws JMException {
+        for (int i = 0; i < WARMUP_REQUESTS; i++) {
+            request.apply(keys.get(i % NUMBER_OF_KEYS));
+        }
+        final long allocatedBefore = allocatedBytes();
+        final long start = System.nanoTime();
+        T result = null;
+        for (int i = 0; i < MEASURED_REQUESTS; i++) {
+            result = request.apply(keys.get(i % NUMBER_OF_KEYS));
+        }
+        final double micros = (System.nanoTime() - start) / 1_000.0 / MEASURED_REQUESTS;
+        final long bytes = (allocatedBytes() - allocatedBefore) / MEASURED_REQUESTS;
+        LOG.info(String.format(Locale.ROOT, "%-30s %10.1f us %10d bytes per request", label, micros, bytes));
+        return new Measurement(value.apply(result), bytes);
+    }
+
+    @Test
+    void compare_entity_and_projection_lookup() throws JMException {
+        final String expectedValue = String.valueOf((MEASURED_REQUESTS - 1) % NUMBER_OF_KEYS);
+
+        final Measurement entity = measure("current value (entity)", underTest::find, entry -> entry.orElseThrow().getValue());
+        final Measurement projection = measure("current value (projection)", underTest::findValue, value -> value.orElseThrow().getValue());
+
+        assertThat(entity.value).isEqualTo(expectedValue);
+        assertThat(projection.value).isEqualTo(expectedValue);
+        assertThat(projection.bytesPerRequest).isLessThan(entity.bytesPerRequest);
+    }
+
+    private static final class Measurement {
+        private final String value;
+        private final long bytesPerRequest;
+
+        private Measurement(String value, long bytesPerRequest) {
+            this.value = value;
+            this.bytesPerRequest = bytesPerRequest;
+        }
+    }
+
+}
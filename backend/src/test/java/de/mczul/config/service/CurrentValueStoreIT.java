@@ -0,0 +1,122 @@
+package de.mczul.config.service;
+
+import de.mczul.config.model.ScheduledConfigEntry;
+import de.mczul.config.testing.IntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("CurrentValueStore integration tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+@IntegrationTest
+class CurrentValueStoreIT {
+    private static final String KEY = "my_materialized_key";
+    private static final Duration ACTIVATION_DELAY = Duration.ofMillis(500);
+
+    @Autowired
+    private CurrentValueStore underTest;
+    @Autowired
+    private CurrentValueRepository currentValueRepository;
+    @Autowired
+    private ScheduledConfigRepository entryRepository;
+
+    @BeforeEach
+    void beforeEach() {
+        currentValueRepository.deleteAll();
+        entryRepository.deleteAll();
+    }
+
+    private ScheduledConfigEntry save(ZonedDateTime validFrom, String value) {
+        return entryRepository.save(ScheduledConfigEntry.builder()
+                .key(KEY)
+                .validFrom(validFrom)
+                .value(value)
+                .created(ZonedDateTime.now())
+                .author("A")
+                .build());
+    }
+
+    @Test
+    void refresh_materializes_latest_effective_entry_and_next_activation() {
+        final var now = ZonedDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        save(now.minusHours(2), "1");
+        final var current = save(now.minusHours(1), "2");
+        final var future = save(now.plusHours(1), "3");
+
+        underTest.refresh(KEY);
+
+        final var currentValue = currentValueRepository.findById(KEY).orElseThrow();
+        assertThat(currentValue.getEntryId()).isEqualTo(current.getId());
+        assertThat(currentValue.getValue()).isEqualTo("2");
+        assertThat(currentValue.getValidUntil().toInstant()).isEqualTo(future.getValidFrom().toInstant());
+        assertThat(underTest.find(KEY)).contains(current);
+    }
+
+    @Test
+    void never_answer_with_materialized_entry_after_next_activation() throws InterruptedException {
+        save(ZonedDateTime.now().minusHours(1), "1");
+        final var next = save(ZonedDateTime.now().plus(ACTIVATION_DELAY), "2");
+        underTest.refresh(KEY);
+
+        Thread.sleep(ACTIVATION_DELAY.multipliedBy(2).toMillis());
+
+        assertThat(currentValueRepository.findById(KEY).orElseThrow().getValue()).isEqualTo("1");
+        assertThat(underTest.find(KEY)).contains(next);
+    }
+
+    @Test
+    void activate_entries_whose_valid_from_has_passed() throws InterruptedException {
+        save(ZonedDateTime.now().minusHours(1), "1");
+        final var next = save(ZonedDateTime.now().plus(ACTIVATION_DELAY), "2");
+        underTest.refresh(KEY);
+        underTest.activate();
+
+        Thread.sleep(ACTIVATION_DELAY.multipliedBy(2).toMillis());
+
+        assertThat(underTest.activate()).isEqualTo(1);
+        final var currentValue = currentValueRepository.findById(KEY).orElseThrow();
+        assertThat(currentValue.getEntryId()).isEqualTo(next.getId());
+        assertThat(currentValue.getValidUntil()).isNull();
+    }
+
+    @Test
+    void never_replace_materialized_entry_with_older_one() {
+        final var current = save(ZonedDateTime.now().minusHours(1), "1");
+        underTest.refresh(KEY);
+        // Older entries are added e.g. to correct the history
+        save(ZonedDateTime.now().minusHours(2), "0");
+
+        underTest.refresh(KEY);
+
+        assertThat(currentValueRepository.findById(KEY).orElseThrow().getEntryId()).isEqualTo(current.getId());
+    }
+
+    @Test
+    void find_value_of_materialized_row_or_latest_effective_entry() {
+        final var now = ZonedDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        save(now.minusHours(2), "1");
+        final var current = save(now.minusHours(1), "2");
+
+        // Not materialized yet
+        final var latest = underTest.findValue(KEY).orElseThrow();
+        assertThat(latest.getKey()).isEqualTo(KEY);
+        assertThat(latest.getValue()).isEqualTo("2");
+
+        underTest.refresh(KEY);
+
+        final var materialized = underTest.findValue(KEY).orElseThrow();
+        assertThat(materialized.getValue()).isEqualTo("2");
+        assertThat(materialized.getValidFrom().toInstant()).isEqualTo(current.getValidFrom().toInstant());
+        assertThat(underTest.findValue("my_missing_key")).isEmpty();
+    }
+
+}
@@ -0,0 +1,51 @@
+package de.mczul.config.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("CurrentValueStore unit tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+@ExtendWith(MockitoExtension.class)
+class CurrentValueStoreTest {
+    @Mock
+    private CurrentValueRepository currentValueRepository;
+    @Mock
+    private ScheduledConfigRepository scheduledConfigRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CurrentValueStore underTest;
+
+    @BeforeEach
+    void beforeEach() {
+        underTest = new CurrentValueStore(currentValueRepository, scheduledConfigRepository, transactionManager);
+    }
+
+    @Test
+    void repeat_activations_whose_commit_has_failed() {
+        when(currentValueRepository.activateAll(any())).thenReturn(1);
+        doThrow(new TransactionSystemException("Commit failed")).doNothing().when(transactionManager).commit(any());
+
+        assertThatExceptionOfType(TransactionSystemException.class).isThrownBy(() -> underTest.activate());
+        assertThat(underTest.isReconciliationPending()).isTrue();
+
+        assertThat(underTest.activate()).isEqualTo(1);
+        assertThat(underTest.isReconciliationPending()).isFalse();
+        verify(currentValueRepository, times(2)).activateAll(any());
+        verify(currentValueRepository, never()).activate(any(), any());
+    }
+
+}
@@ -0,0 +1,155 @@
+package de.mczul.config.service;
+
+import de.mczul.config.testing.IntegrationTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+@DisplayName("JobLeases integration tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+@IntegrationTest
+class JobLeasesIT {
+    private static final Duration TTL = Duration.ofMillis(300);
+    private static final int NODES = 4;
+    private static final int TICKS = 5;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final List<JobLeases> nodes = new ArrayList<>();
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    // Simulates another node that shares the database
+    private JobLeases node() {
+        JobLeaseProperties properties = new JobLeaseProperties();
+        properties.setTtl(TTL);
+        JobLeases node = new JobLeases(jdbcTemplate, properties, meterRegistry);
+        nodes.add(node);
+        return node;
+    }
+
+    @AfterEach
+    void afterEach() {
+        nodes.forEach(JobLeases::shutdown);
+        callers.shutdownNow();
+    }
+
+    @Test
+    void run_every_tick_on_a_single_node() throws InterruptedException {
+        final List<JobLeases> cluster = List.of(node(), node(), node(), node());
+        final AtomicInteger runs = new AtomicInteger();
+        for (int tick = 0; tick < TICKS; tick++) {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<CompletableFuture<Boolean>> ticks = new ArrayList<>();
+            for (JobLeases node : cluster) {
+                ticks.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return node.runExclusively("single", lease -> runs.incrementAndGet());
+                }, callers));
+            }
+            start.countDown();
+            assertThat(ticks.stream().map(CompletableFuture::join).filter(Boolean::booleanValue)).hasSize(1);
+        }
+        assertThat(runs).hasValue(TICKS);
+        assertThat(meterRegistry.get(JobLeases.METRIC_RUNS).tag(JobLeases.TAG_JOB, "single").tag(JobLeases.TAG_OUTCOME, "skipped").counter().count())
+                .isEqualTo(TICKS * (NODES - 1));
+    }
+
+    @Test
+    void keep_the_lease_of_running_jobs() {
+        final JobLeases nodeA = node();
+        final JobLeases nodeB = node();
+        final AtomicReference<Boolean> runOnB = new AtomicReference<>();
+
+        assertThat(nodeA.runExclusively("long", lease -> {
+            try {
+                // Exceeds the TTL several times
+                Thread.sleep(TTL.toMillis() * 3);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            runOnB.set(nodeB.runExclusively("long", unexpected -> {
+            }));
+        })).isTrue();
+        assertThat(runOnB).hasValue(false);
+    }
+
+    @Test
+    void fence_nodes_whose_lease_has_been_taken_over() throws InterruptedException {
+        final JobLeases nodeA = node();
+        final JobLeases nodeB = node();
+        final AtomicReference<JobLease> leaseA = new AtomicReference<>();
+        final AtomicReference<JobLease> leaseB = new AtomicReference<>();
+        final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        assertThat(nodeA.runExclusively("fenced", leaseA::set)).isTrue();
+        assertThat(nodeB.runExclusively("fenced", leaseB::set)).isFalse();
+        // Node A misses its ticks, e.g. due to a pause, until its lease has expired
+        TimeUnit.MILLISECONDS.sleep(TTL.toMillis() * 2);
+        assertThat(nodeB.runExclusively("fenced", leaseB::set)).isTrue();
+
+        assertThat(leaseB.get().getToken()).isGreaterThan(leaseA.get().getToken());
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> transaction.executeWithoutResult(status -> leaseA.get().fence()));
+        transaction.executeWithoutResult(status -> leaseB.get().fence());
+        assertThat(nodeA.runExclusively("fenced", lease -> {
+        })).isFalse();
+    }
+
+    @Test
+    void hand_over_leases_on_shutdown() {
+        final JobLeases nodeA = node();
+        final JobLeases nodeB = node();
+
+        assertThat(nodeA.runExclusively("handover", lease -> {
+        })).isTrue();
+        nodeA.shutdown();
+        assertThat(nodeB.runExclusively("handover", lease -> {
+        })).isTrue();
+    }
+
+    @Test
+    void expire_leases_by_the_clock_of_the_database() {
+        final JobLeases nodeA = node();
+        assertThat(nodeA.runExclusively("database-clock", lease -> {
+        })).isTrue();
+
+        final Long remainingMillis = jdbcTemplate.queryForObject(
+                "SELECT DATEDIFF('MILLISECOND', LOCALTIMESTAMP, expires) FROM config.job_lease WHERE name = ?", Long.class, "database-clock");
+        assertThat(remainingMillis).isBetween(0L, TTL.toMillis());
+
+        // Expired according to the database, regardless of the clocks of the nodes
+        jdbcTemplate.update("UPDATE config.job_lease SET expires = DATEADD('MILLISECOND', -1, LOCALTIMESTAMP) WHERE name = ?", "database-clock");
+        assertThat(node().runExclusively("database-clock", lease -> {
+        })).isTrue();
+    }
+
+}
@@ -0,0 +1,88 @@
+package de.mczul.config.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("ReadWriteRoutingDataSource unit tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+@ExtendWith(MockitoExtension.class)
+class ReadWriteRoutingDataSourceTest {
+    @Mock
+    private DataSource primary;
+    @Mock
+    private DataSource replica;
+    @Mock
+    private ReplicaMonitor monitor;
+    @Mock
+    private Connection primaryConnection;
+    @Mock
+    private Connection replicaConnection;
+
+    private ReadWriteRoutingDataSource underTest;
+
+    @BeforeEach
+    void beforeEach() {
+        underTest = new ReadWriteRoutingDataSource(primary, replica, monitor);
+    }
+
+    @AfterEach
+    void afterEach() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void route_read_only_transactions_to_available_replica() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(monitor.isAvailable()).thenReturn(true);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+
+        assertThat(underTest.getConnection()).isSameAs(replicaConnection);
+        verifyNoInteractions(primary);
+    }
+
+    @Test
+    void route_read_write_transactions_to_primary() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        assertThat(underTest.getConnection()).isSameAs(primaryConnection);
+        verifyNoInteractions(replica, monitor);
+    }
+
+    @Test
+    void route_read_only_transactions_to_primary_while_replica_is_unavailable() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(monitor.isAvailable()).thenReturn(false);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        assertThat(underTest.getConnection()).isSameAs(primaryConnection);
+        verifyNoInteractions(replica);
+    }
+
+    @Test
+    void fall_back_to_primary_if_replica_refuses_connections() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(monitor.isAvailable()).thenReturn(true);
+        when(replica.getConnection()).thenThrow(new SQLException("Connection refused"));
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        assertThat(underTest.getConnection()).isSameAs(primaryConnection);
+        verify(monitor).markUnavailable(any(SQLException.class));
+    }
+
+}
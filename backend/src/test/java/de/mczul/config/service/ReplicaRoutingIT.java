@@ -0,0 +1,127 @@
+package de.mczul.config.service;
+
+import de.mczul.config.model.ScheduledConfigEntry;
+import de.mczul.config.testing.IntegrationTest;
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Read replica routing integration tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+@IntegrationTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestPropertySource(properties = {
+        "de.mczul.config.replica.url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1",
+        "de.mczul.config.replica.max-staleness=1m"
+})
+class ReplicaRoutingIT {
+    // Only present in the replica database, hence tells which database a transaction has been routed to
+    private static final String REPLICA_KEY = "my_replica_key";
+
+    @Autowired
+    private ReplicaMonitor monitor;
+    @Autowired
+    private ScheduledConfigRepository entryRepository;
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ScheduledConfigCache cache;
+
+    private JdbcTemplate replica;
+
+    @BeforeAll
+    void beforeAll() throws Exception {
+        // Stands in for replication of the schema
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(replicaDataSource);
+        liquibase.setChangeLog("classpath:db/changelog-master.xml");
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        liquibase.afterPropertiesSet();
+
+        replica = new JdbcTemplate(replicaDataSource);
+        replica.update("INSERT INTO config.scheduled_config (id, key, normalized_key, valid_from, value, created, author) VALUES (-1, ?, ?, ?, '1', ?, 'A')",
+                REPLICA_KEY, REPLICA_KEY, Timestamp.from(Instant.now()), Timestamp.from(Instant.now()));
+    }
+
+    @BeforeEach
+    void beforeEach() {
+        replicateHeartbeat(Duration.ZERO);
+        monitor.check();
+    }
+
+    private void replicateHeartbeat(Duration lag) {
+        replica.update("UPDATE config.replica_heartbeat SET beat = ? WHERE id = 1", Timestamp.from(Instant.now().minus(lag)));
+    }
+
+    private List<ScheduledConfigEntry> findReplicaEntries(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status -> entryRepository.findTimeline(REPLICA_KEY));
+    }
+
+    @Test
+    void route_read_only_transactions_to_replica() {
+        assertThat(monitor.isAvailable()).isTrue();
+        assertThat(findReplicaEntries(true)).hasSize(1);
+        assertThat(findReplicaEntries(false)).isEmpty();
+    }
+
+    @Test
+    void route_to_primary_while_replica_lags_behind() {
+        replicateHeartbeat(Duration.ofMinutes(2));
+        monitor.check();
+
+        assertThat(monitor.isAvailable()).isFalse();
+        assertThat(findReplicaEntries(true)).isEmpty();
+    }
+
+    @Test
+    void load_cached_timelines_from_primary() {
+        cache.evict(REPLICA_KEY);
+
+        assertThat(monitor.isAvailable()).isTrue();
+        assertThat(cache.timeline(REPLICA_KEY).getEntries()).isEmpty();
+        cache.evict(REPLICA_KEY);
+        assertThat(cache.timelines(List.of(REPLICA_KEY)).get(REPLICA_KEY).getEntries()).isEmpty();
+        cache.evict(REPLICA_KEY);
+    }
+
+    @Test
+    void write_to_primary_within_read_write_transactions() {
+        final ScheduledConfigEntry saved = entryRepository.save(ScheduledConfigEntry.builder()
+                .key("my_primary_key")
+                .validFrom(ZonedDateTime.now())
+                .value("1")
+                .created(ZonedDateTime.now())
+                .author("A")
+                .build());
+
+        assertThat(replica.queryForObject("SELECT COUNT(*) FROM config.scheduled_config WHERE id = ?", Integer.class, saved.getId())).isZero();
+        entryRepository.delete(saved);
+    }
+
+}
@@ -0,0 +1,205 @@
+package de.mczul.config.service;
+
+import de.mczul.config.model.ConfigValue;
+import de.mczul.config.model.ScheduledConfigEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@DisplayName("ScheduledConfigActivator unit tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+@ExtendWith(MockitoExtension.class)
+class ScheduledConfigActivatorTest {
+    private static final String KEY = "my_key";
+
+    @Mock
+    private ScheduledConfigCache scheduledConfigCache;
+    @Mock
+    private CurrentValueStore currentValueStore;
+
+    private ScheduledConfigActivator underTest;
+
+    @BeforeEach
+    void beforeEach() {
+        underTest = new ScheduledConfigActivator(scheduledConfigCache, currentValueStore);
+    }
+
+    @AfterEach
+    void afterEach() {
+        underTest.shutdown();
+    }
+
+    private static ScheduledConfigEntry buildEntry(int id, ZonedDateTime validFrom) {
+        return ScheduledConfigEntry.builder()
+                .id(id)
+                .key(KEY)
+                .validFrom(validFrom)
+                .value(String.valueOf(id))
+                .build();
+    }
+
+    @Test
+    void resolve_keys_missing_in_snapshot_from_current_values_and_load_timeline() {
+        final var current = buildEntry(1, ZonedDateTime.now().minusMinutes(1));
+        final var timeline = ScheduledConfigTimeline.of(KEY, List.of(current));
+        when(currentValueStore.find(KEY)).thenReturn(Optional.of(current));
+        when(scheduledConfigCache.timeline(KEY)).thenReturn(timeline);
+        when(scheduledConfigCache.cached(KEY)).thenReturn(Optional.of(timeline));
+
+        assertThat(underTest.current(KEY)).contains(current);
+        verify(currentValueStore).find(KEY);
+        verify(scheduledConfigCache, timeout(1_000)).timeline(KEY);
+        // Loaded timelines are published in the background without rebuilding the snapshot
+        verify(scheduledConfigCache, timeout(1_000)).cached(KEY);
+        verify(scheduledConfigCache, never()).timelines();
+    }
+
+    @Test
+    void answer_from_snapshot_after_publishing() {
+        final var current = buildEntry(1, ZonedDateTime.now().minusMinutes(1));
+        final var timeline = ScheduledConfigTimeline.of(KEY, List.of(current));
+        when(scheduledConfigCache.timelines()).thenReturn(List.of(timeline));
+
+        underTest.publish();
+
+        assertThat(underTest.current(KEY)).contains(current);
+        verify(scheduledConfigCache, never()).timeline(any());
+    }
+
+    @Test
+    void resolve_values_from_snapshot_or_projection_without_loading_entries() {
+        final var current = buildEntry(1, ZonedDateTime.now().minusMinutes(1));
+        when(scheduledConfigCache.timelines()).thenReturn(List.of(ScheduledConfigTimeline.of(KEY, List.of(current))));
+        final var missingValue = new ConfigValue("my_missing_key", "2", ZonedDateTime.now().minusMinutes(1));
+        when(currentValueStore.findValue(missingValue.getKey())).thenReturn(Optional.of(missingValue));
+
+        underTest.publish();
+
+        assertThat(underTest.currentValue(KEY)).contains(ConfigValue.of(current));
+        assertThat(underTest.currentValue(missingValue.getKey())).contains(missingValue);
+        verify(currentValueStore, never()).find(any());
+    }
+
+    @Test
+    void answer_empty_for_published_keys_without_effective_entry() {
+        final var future = buildEntry(1, ZonedDateTime.now().plusHours(1));
+        when(scheduledConfigCache.timelines()).thenReturn(List.of(ScheduledConfigTimeline.of(KEY, List.of(future))));
+
+        underTest.publish();
+
+        assertThat(underTest.current(KEY)).isEmpty();
+        verify(scheduledConfigCache, never()).timeline(any());
+    }
+
+    @Test
+    void switch_snapshot_when_next_entry_becomes_valid() throws InterruptedException {
+        final var current = buildEntry(1, ZonedDateTime.now().minusMinutes(1));
+        final var future = buildEntry(2, ZonedDateTime.now().plusNanos(300_000_000));
+        when(scheduledConfigCache.timelines()).thenReturn(List.of(ScheduledConfigTimeline.of(KEY, List.of(current, future))));
+
+        underTest.publish();
+        assertThat(underTest.current(KEY)).contains(current);
+
+        Thread.sleep(500);
+
+        assertThat(underTest.current(KEY)).contains(future);
+        verify(scheduledConfigCache, never()).timeline(any());
+    }
+
+    @Test
+    void publish_changed_keys_without_rebuilding_snapshot() throws InterruptedException {
+        final var otherKey = "my_other_key";
+        final var other = buildEntry(1, ZonedDateTime.now().minusMinutes(1)).withKey(otherKey);
+        when(scheduledConfigCache.timelines()).thenReturn(List.of(ScheduledConfigTimeline.of(otherKey, List.of(other))));
+        underTest.publish();
+
+        final var current = buildEntry(2, ZonedDateTime.now().minusMinutes(1));
+        final var future = buildEntry(3, ZonedDateTime.now().plusNanos(300_000_000));
+        final var timeline = ScheduledConfigTimeline.of(KEY, List.of(current, future));
+        when(scheduledConfigCache.cached(KEY)).thenReturn(Optional.of(timeline));
+        underTest.publish(List.of(KEY));
+
+        assertThat(underTest.current(KEY)).contains(current);
+        assertThat(underTest.current(otherKey)).contains(other);
+        verify(scheduledConfigCache, times(1)).timelines();
+
+        // Activations of changed keys rebuild the snapshot
+        when(scheduledConfigCache.timelines()).thenReturn(List.of(ScheduledConfigTimeline.of(otherKey, List.of(other)), timeline));
+        Thread.sleep(500);
+
+        assertThat(underTest.current(KEY)).contains(future);
+        verify(scheduledConfigCache, times(2)).timelines();
+    }
+
+    @Test
+    void remove_evicted_keys_from_snapshot() {
+        final var current = buildEntry(1, ZonedDateTime.now().minusMinutes(1));
+        when(scheduledConfigCache.timelines()).thenReturn(List.of(ScheduledConfigTimeline.of(KEY, List.of(current))));
+        underTest.publish();
+        when(scheduledConfigCache.cached(KEY)).thenReturn(Optional.empty());
+
+        underTest.publish(List.of(KEY));
+
+        assertThat(underTest.current(KEY)).isEmpty();
+        verify(currentValueStore).find(KEY);
+    }
+
+    @Test
+    void remove_keys_evicted_from_cache_from_snapshot() throws InterruptedException {
+        @SuppressWarnings("unchecked") final ArgumentCaptor<Consumer<String>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(scheduledConfigCache).onEviction(listener.capture());
+        final var current = buildEntry(1, ZonedDateTime.now().minusMinutes(1));
+        when(scheduledConfigCache.timelines()).thenReturn(List.of(ScheduledConfigTimeline.of(KEY, List.of(current))));
+        underTest.publish();
+        when(scheduledConfigCache.cached(KEY)).thenReturn(Optional.empty());
+
+        listener.getValue().accept(KEY);
+        verify(scheduledConfigCache, timeout(1_000)).cached(KEY);
+        Thread.sleep(100);
+
+        assertThat(underTest.current(KEY)).isEmpty();
+        verify(currentValueStore).find(KEY);
+    }
+
+    @Test
+    void rebuild_expired_snapshot_on_activator_thread_only() throws InterruptedException {
+        final var current = buildEntry(1, ZonedDateTime.now().minusMinutes(1));
+        final var future = buildEntry(2, ZonedDateTime.now().plusNanos(200_000_000));
+        final var timeline = ScheduledConfigTimeline.of(KEY, List.of(current, future));
+        final Set<String> rebuildingThreads = ConcurrentHashMap.newKeySet();
+        when(scheduledConfigCache.timelines()).thenAnswer(invocation -> {
+            rebuildingThreads.add(Thread.currentThread().getName());
+            return List.of(timeline);
+        });
+        lenient().when(scheduledConfigCache.cached(KEY)).thenReturn(Optional.of(timeline));
+        underTest.publish();
+        rebuildingThreads.clear();
+
+        Thread.sleep(300);
+        for (int i = 0; i < 100; i++) {
+            assertThat(underTest.current(KEY)).contains(future);
+        }
+
+        verify(scheduledConfigCache, timeout(1_000).atLeastOnce()).timelines();
+        assertThat(rebuildingThreads).allMatch(name -> name.startsWith("config-activator-"));
+        verify(scheduledConfigCache, never()).timeline(any());
+    }
+
+}
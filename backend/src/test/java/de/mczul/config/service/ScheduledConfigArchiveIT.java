@@ -0,0 +1,80 @@
+package de.mczul.config.service;
+
+import de.mczul.config.model.ScheduledConfigDto;
+import de.mczul.config.model.ScheduledConfigEntry;
+import de.mczul.config.model.ScheduledConfigPast;
+import de.mczul.config.testing.IntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.ZonedDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ScheduledConfigArchive integration tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+@IntegrationTest
+class ScheduledConfigArchiveIT {
+    private static final String KEY = "my_archived_key";
+
+    @Autowired
+    private ScheduledConfigRetention retention;
+    @Autowired
+    private ScheduledConfigArchive underTest;
+    @Autowired
+    private ScheduledConfigRepository entryRepository;
+    @Autowired
+    private CurrentValueRepository currentValueRepository;
+    @Autowired
+    private ScheduledConfigMapper mapper;
+
+    @DynamicPropertySource
+    static void archiveProperties(DynamicPropertyRegistry registry) throws IOException {
+        final String directory = Files.createTempDirectory("scheduled-config-archive").toString();
+        registry.add("de.mczul.config.archive.directory", () -> directory);
+        registry.add("de.mczul.config.retention.mode", () -> "ARCHIVE");
+        registry.add("de.mczul.config.retention.keep-versions", () -> "1");
+        registry.add("de.mczul.config.retention.keep-younger-than", () -> "1d");
+    }
+
+    @BeforeEach
+    void beforeEach() {
+        currentValueRepository.deleteAll();
+        entryRepository.deleteAll();
+    }
+
+    private ScheduledConfigEntry save(int validFromHours) {
+        return entryRepository.save(ScheduledConfigEntry.builder()
+                .key(KEY)
+                .validFrom(ZonedDateTime.now().plusHours(validFromHours))
+                .value(String.valueOf(validFromHours))
+                .created(ZonedDateTime.now().minusDays(10).plusHours(validFromHours))
+                .author("A")
+                .build());
+    }
+
+    @Test
+    void move_superseded_entries_to_archive_and_merge_them_into_history() {
+        final var oldest = save(-3);
+        final var previous = save(-2);
+        final var current = save(-1);
+
+        assertThat(retention.purge()).isEqualTo(2);
+
+        assertThat(entryRepository.findAll()).extracting(ScheduledConfigEntry::getId).containsExactly(current.getId());
+        assertThat(underTest.find(KEY)).extracting(ScheduledConfigEntry::getId).containsExactlyInAnyOrder(oldest.getId(), previous.getId());
+
+        final ScheduledConfigDto dto = mapper.toDto(current);
+        assertThat(dto.getHistory()).extracting(ScheduledConfigPast::getId).containsExactly(previous.getId(), oldest.getId());
+        assertThat(dto.getHistory().get(0).getValue()).isEqualTo(previous.getValue());
+    }
+
+}
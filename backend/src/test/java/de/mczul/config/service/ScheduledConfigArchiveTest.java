@@ -0,0 +1,110 @@
+package de.mczul.config.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import de.mczul.config.model.ScheduledConfigEntry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ScheduledConfigArchive unit tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+class ScheduledConfigArchiveTest {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @TempDir
+    Path directory;
+
+    private ScheduledConfigArchive open(DataSize segmentSize) throws IOException {
+        ArchiveProperties properties = new ArchiveProperties();
+        properties.setDirectory(directory);
+        properties.setSegmentSize(segmentSize);
+        return new ScheduledConfigArchive(OBJECT_MAPPER, properties);
+    }
+
+    private static ScheduledConfigEntry entry(int id, String key) {
+        return ScheduledConfigEntry.builder()
+                .id(id)
+                .key(key)
+                .validFrom(ZonedDateTime.parse("2020-07-01T12:00:00Z").plusDays(id))
+                .value(String.valueOf(id))
+                .created(ZonedDateTime.parse("2020-07-01T12:00:00Z").plusDays(id))
+                .author("A")
+                .build();
+    }
+
+    private long countSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".index")).count();
+        }
+    }
+
+    @Test
+    void find_appended_entries_by_key_after_reopening() throws IOException {
+        final ScheduledConfigArchive archive = open(DataSize.ofMegabytes(1));
+        archive.append(List.of(entry(1, "my_key"), entry(2, "my_other_key")));
+        archive.append(List.of(entry(3, "my_key")));
+
+        assertThat(archive.find("MY_KEY")).extracting(ScheduledConfigEntry::getId).containsExactly(1, 3);
+        assertThat(archive.find("missing")).isEmpty();
+
+        final ScheduledConfigArchive reopened = open(DataSize.ofMegabytes(1));
+        assertThat(reopened.find("my_key")).containsExactly(entry(1, "my_key"), entry(3, "my_key"));
+        assertThat(reopened.find("my_key").get(0).getValidFrom().toInstant()).isEqualTo(entry(1, "my_key").getValidFrom().toInstant());
+        assertThat(countSegments()).isEqualTo(1);
+    }
+
+    @Test
+    void start_new_segment_once_size_has_been_exceeded() throws IOException {
+        final ScheduledConfigArchive archive = open(DataSize.ofBytes(1));
+        archive.append(List.of(entry(1, "my_key")));
+        archive.append(List.of(entry(2, "my_key")));
+        open(DataSize.ofBytes(1)).append(List.of(entry(3, "my_key")));
+
+        assertThat(countSegments()).isEqualTo(3);
+        assertThat(open(DataSize.ofBytes(1)).find("my_key")).extracting(ScheduledConfigEntry::getId).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void skip_index_lines_of_interrupted_appends() throws IOException {
+        open(DataSize.ofMegabytes(1)).append(List.of(entry(1, "my_key")));
+        try (Stream<Path> files = Files.list(directory)) {
+            final Path index = files.filter(file -> file.getFileName().toString().endsWith(".index")).findFirst().orElseThrow();
+            Files.write(index, "my_key\t4096\t100\nmy_key\t0".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        }
+
+        assertThat(open(DataSize.ofMegabytes(1)).find("my_key")).extracting(ScheduledConfigEntry::getId).containsExactly(1);
+    }
+
+    @Test
+    void find_entries_appended_by_other_nodes() throws IOException {
+        final ScheduledConfigArchive nodeA = open(DataSize.ofBytes(1));
+        final ScheduledConfigArchive nodeB = open(DataSize.ofBytes(1));
+        nodeA.append(List.of(entry(1, "my_key")));
+        assertThat(nodeB.find("my_key")).extracting(ScheduledConfigEntry::getId).containsExactly(1);
+
+        nodeB.append(List.of(entry(2, "my_key")));
+        nodeA.append(List.of(entry(3, "my_key")));
+
+        assertThat(countSegments()).isEqualTo(3);
+        assertThat(nodeA.find("my_key")).extracting(ScheduledConfigEntry::getId).containsExactly(1, 2, 3);
+        assertThat(nodeB.find("my_key")).extracting(ScheduledConfigEntry::getId).containsExactly(1, 2, 3);
+    }
+}
@@ -0,0 +1,201 @@
+package de.mczul.config.service;
+
+import de.mczul.config.model.ScheduledConfigEntry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("ScheduledConfigCache unit tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+@ExtendWith(MockitoExtension.class)
+class ScheduledConfigCacheTest {
+    @Mock
+    private ScheduledConfigRepository scheduledConfigRepository;
+
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private final Set<String> evicted = ConcurrentHashMap.newKeySet();
+    private ScheduledConfigCache underTest;
+
+    @BeforeEach
+    void beforeEach() {
+        underTest = new ScheduledConfigCache(scheduledConfigRepository, new SimpleMeterRegistry());
+        underTest.onEviction(evicted::add);
+    }
+
+    @AfterEach
+    void afterEach() {
+        callers.shutdownNow();
+    }
+
+    private static ScheduledConfigEntry buildEntry(int id, String key) {
+        return ScheduledConfigEntry.builder()
+                .id(id)
+                .key(key)
+                .validFrom(ZonedDateTime.now().minusMinutes(id))
+                .value(String.valueOf(id))
+                .build();
+    }
+
+    @Test
+    void load_timeline_only_once() {
+        final var key = "my_key";
+        when(scheduledConfigRepository.findTimeline(key)).thenReturn(List.of(buildEntry(1, key)));
+
+        underTest.timeline(key);
+        final var timeline = underTest.timeline(key);
+
+        verify(scheduledConfigRepository, times(1)).findTimeline(key);
+        assertThat(timeline.getEntries()).hasSize(1);
+    }
+
+    @Test
+    void add_must_only_update_loaded_timelines() {
+        final var loadedKey = "loaded_key";
+        when(scheduledConfigRepository.findTimeline(loadedKey)).thenReturn(List.of());
+        underTest.timeline(loadedKey);
+
+        underTest.add(buildEntry(1, loadedKey));
+        underTest.add(buildEntry(2, "unknown_key"));
+
+        assertThat(underTest.timeline(loadedKey).getEntries()).extracting(ScheduledConfigEntry::getId).containsExactly(1);
+        assertThat(underTest.timelines()).hasSize(1);
+    }
+
+    @Test
+    void load_missing_timelines_in_bounded_batches() {
+        final int numberOfKeys = ScheduledConfigCache.LOAD_BATCH_SIZE * 2 + 1;
+        final var keys = IntStream.range(0, numberOfKeys).mapToObj(i -> "key_" + i).collect(Collectors.toUnmodifiableList());
+        final var cachedKey = keys.get(0);
+        when(scheduledConfigRepository.findTimeline(cachedKey)).thenReturn(List.of(buildEntry(1, cachedKey)));
+        when(scheduledConfigRepository.findTimelines(any())).thenAnswer(invocation -> {
+            Collection<String> batch = invocation.getArgument(0);
+            return batch.stream().map(key -> buildEntry(2, key)).collect(Collectors.toUnmodifiableList());
+        });
+        underTest.timeline(cachedKey);
+
+        final var timelines = underTest.timelines(keys);
+
+        @SuppressWarnings("unchecked") final ArgumentCaptor<Collection<String>> argCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(scheduledConfigRepository, times(2)).findTimelines(argCaptor.capture());
+        assertThat(argCaptor.getAllValues()).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(ScheduledConfigCache.LOAD_BATCH_SIZE));
+        assertThat(argCaptor.getAllValues().stream().flatMap(Collection::stream)).doesNotContain(cachedKey);
+        assertThat(timelines).hasSize(numberOfKeys);
+        assertThat(timelines.get(cachedKey).getEntries()).extracting(ScheduledConfigEntry::getId).containsExactly(1);
+        assertThat(timelines.get(keys.get(1)).getEntries()).extracting(ScheduledConfigEntry::getId).containsExactly(2);
+    }
+
+    @Test
+    void bound_the_number_of_empty_timelines() {
+        final var knownKey = "known_key";
+        when(scheduledConfigRepository.findTimeline(any())).thenReturn(List.of());
+        when(scheduledConfigRepository.findTimeline(knownKey)).thenReturn(List.of(buildEntry(1, knownKey)));
+        underTest.timeline(knownKey);
+        underTest.timeline("filled_key");
+        underTest.add(buildEntry(2, "filled_key"));
+
+        IntStream.range(0, ScheduledConfigCache.EMPTY_TIMELINES_LIMIT * 2).forEach(i -> underTest.timeline("unknown_key_" + i));
+        underTest.timelines(List.of("unknown_key_batch"));
+
+        assertThat(underTest.timelines()).hasSizeLessThanOrEqualTo(ScheduledConfigCache.EMPTY_TIMELINES_LIMIT + 2);
+        assertThat(underTest.timelines()).extracting(ScheduledConfigTimeline::getKey).contains(knownKey, "filled_key");
+        assertThat(evicted).contains("unknown_key_0").doesNotContain(knownKey);
+    }
+
+    @Test
+    void load_timelines_without_blocking_other_keys() throws InterruptedException {
+        final var slowKey = "slow_key";
+        final var otherKey = "other_key";
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        when(scheduledConfigRepository.findTimeline(slowKey)).thenAnswer(invocation -> {
+            loading.countDown();
+            assertThat(release.await(5, TimeUnit.SECONDS)).isTrue();
+            return List.of(buildEntry(1, slowKey));
+        });
+        when(scheduledConfigRepository.findTimeline(otherKey)).thenReturn(List.of());
+
+        final CompletableFuture<ScheduledConfigTimeline> slow = CompletableFuture.supplyAsync(() -> underTest.timeline(slowKey), callers);
+        final CompletableFuture<ScheduledConfigTimeline> coalesced = CompletableFuture.supplyAsync(() -> {
+            try {
+                assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return underTest.timeline(slowKey);
+        }, callers);
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Neither lookups nor writes of other keys wait for the running query
+        assertThat(underTest.timeline(otherKey).isEmpty()).isTrue();
+        underTest.add(buildEntry(2, otherKey));
+        assertThat(underTest.timeline(otherKey).getEntries()).extracting(ScheduledConfigEntry::getId).containsExactly(2);
+
+        release.countDown();
+        assertThat(slow.orTimeout(5, TimeUnit.SECONDS).join().getEntries()).extracting(ScheduledConfigEntry::getId).containsExactly(1);
+        assertThat(coalesced.orTimeout(5, TimeUnit.SECONDS).join().getEntries()).extracting(ScheduledConfigEntry::getId).containsExactly(1);
+        verify(scheduledConfigRepository, times(1)).findTimeline(slowKey);
+    }
+
+    @Test
+    void bound_the_number_of_cached_entries() {
+        final int entriesPerKey = 1_000;
+        final int numberOfKeys = ScheduledConfigCache.CACHED_ENTRIES_LIMIT / entriesPerKey * 2;
+        when(scheduledConfigRepository.findTimeline(any())).thenAnswer(invocation -> IntStream.range(0, entriesPerKey)
+                .mapToObj(id -> buildEntry(id, invocation.getArgument(0)))
+                .collect(Collectors.toUnmodifiableList()));
+
+        IntStream.range(0, numberOfKeys).forEach(i -> underTest.timeline("key_" + i));
+
+        assertThat(underTest.timelines().stream().mapToInt(ScheduledConfigTimeline::size).sum()).isLessThanOrEqualTo(ScheduledConfigCache.CACHED_ENTRIES_LIMIT);
+        assertThat(underTest.cached("key_" + (numberOfKeys - 1))).isPresent();
+        assertThat(evicted).isNotEmpty().allMatch(key -> underTest.cached(key).isEmpty());
+    }
+
+    @Test
+    void apply_entries_added_while_loading_without_repeating_the_query() {
+        final var keys = List.of("my_key", "evicted_key", "other_key");
+        final var loaded = buildEntry(1, "my_key");
+        final var added = buildEntry(2, "my_key");
+        when(scheduledConfigRepository.findTimelines(any())).thenAnswer(invocation -> {
+            // Written and evicted concurrently, after the query has read its result
+            underTest.add(added);
+            underTest.add(buildEntry(3, "unrelated_key"));
+            underTest.evict("evicted_key");
+            return List.of(loaded, buildEntry(4, "evicted_key"));
+        });
+
+        final var timelines = underTest.timelines(keys);
+
+        verify(scheduledConfigRepository, times(1)).findTimelines(any());
+        assertThat(timelines).containsOnlyKeys(keys);
+        assertThat(timelines.get("my_key").getEntries()).containsExactly(added, loaded);
+        assertThat(timelines.get("evicted_key").getEntries()).extracting(ScheduledConfigEntry::getId).containsExactly(4);
+        assertThat(underTest.timelines()).extracting(ScheduledConfigTimeline::getKey).containsExactlyInAnyOrder("my_key", "other_key");
+    }
+
+}
@@ -0,0 +1,83 @@
+package de.mczul.config.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.mczul.config.model.ScheduledConfigEntry;
+import de.mczul.config.testing.IntegrationTest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ScheduledConfigExporter integration tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+@IntegrationTest
+@TestInstance(Lifecycle.PER_CLASS)
+class ScheduledConfigExporterIT {
+    private static final ZonedDateTime CREATED = ZonedDateTime.parse("2020-07-01T12:00:00Z");
+
+    @Autowired
+    private ScheduledConfigExporter underTest;
+    @Autowired
+    private ScheduledConfigRepository entryRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeAll
+    void beforeAll() {
+        for (String key : List.of("my.export_a", "my.export_b", "my.exportxc")) {
+            for (int day = 0; day < 3; day++) {
+                entryRepository.save(ScheduledConfigEntry.builder()
+                        .key(key)
+                        .validFrom(CREATED.plusDays(day))
+                        .value("value, \"" + day + "\"")
+                        .created(CREATED.plusDays(day))
+                        .author("A")
+                        .build());
+            }
+        }
+    }
+
+    private List<String> export(ExportFormat format, String prefix, ZonedDateTime createdFrom, ZonedDateTime createdUntil) throws IOException {
+        final ByteArrayOutputStream target = new ByteArrayOutputStream();
+        final long count = underTest.export(format, prefix, createdFrom, createdUntil, target);
+        final List<String> lines = new ArrayList<>(List.of(target.toString(StandardCharsets.UTF_8).split("\n")));
+        assertThat(count).isEqualTo(format == ExportFormat.CSV ? lines.size() - 1 : lines.size());
+        return lines;
+    }
+
+    @Test
+    void export_history_of_keys_with_prefix_as_ndjson() throws IOException {
+        final List<String> lines = export(ExportFormat.NDJSON, "MY.EXPORT_", null, null);
+
+        assertThat(lines).hasSize(6);
+        final JsonNode first = objectMapper.readTree(lines.get(0));
+        assertThat(first.get("key").asText()).isEqualTo("my.export_a");
+        assertThat(first.get("value").asText()).isEqualTo("value, \"0\"");
+        assertThat(first.has("id")).isTrue();
+    }
+
+    @Test
+    void export_created_range_as_csv() throws IOException {
+        final List<String> lines = export(ExportFormat.CSV, "my.export", CREATED.plusDays(1), CREATED.plusDays(2));
+
+        assertThat(lines.get(0)).isEqualTo(ScheduledConfigExporter.CSV_HEADER);
+        assertThat(lines.subList(1, lines.size()))
+                .hasSize(3)
+                .allSatisfy(line -> assertThat(line).contains(",\"value, \"\"1\"\"\","));
+    }
+
+}
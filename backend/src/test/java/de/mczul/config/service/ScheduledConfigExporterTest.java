@@ -0,0 +1,29 @@
+package de.mczul.config.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ScheduledConfigExporter unit tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+class ScheduledConfigExporterTest {
+
+    @Test
+    void escape_wildcards_of_key_prefix() {
+        assertThat(ScheduledConfigExporter.toKeyPattern("")).isEqualTo("%");
+        assertThat(ScheduledConfigExporter.toKeyPattern("My_Key%")).isEqualTo("my\\_key\\%%");
+    }
+
+    @Test
+    void quote_csv_fields_only_if_necessary() {
+        assertThat(ScheduledConfigExporter.escapeCsv(null)).isEmpty();
+        assertThat(ScheduledConfigExporter.escapeCsv("")).isEqualTo("\"\"");
+        assertThat(ScheduledConfigExporter.escapeCsv("plain")).isEqualTo("plain");
+        assertThat(ScheduledConfigExporter.escapeCsv("a,b")).isEqualTo("\"a,b\"");
+        assertThat(ScheduledConfigExporter.escapeCsv("say \"hi\"\n")).isEqualTo("\"say \"\"hi\"\"\n\"");
+    }
+
+}
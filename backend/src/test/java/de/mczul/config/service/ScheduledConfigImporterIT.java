@@ -0,0 +1,95 @@
+package de.mczul.config.service;
+
+import de.mczul.config.AppConstants;
+import de.mczul.config.model.ImportError;
+import de.mczul.config.model.ImportReport;
+import de.mczul.config.model.ScheduledConfigEntry;
+import de.mczul.config.testing.IntegrationTest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.ZonedDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ScheduledConfigImporter integration tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+@IntegrationTest
+class ScheduledConfigImporterIT {
+    private static final String KEY_PREFIX = "MY.IMPORTED.KEY_";
+
+    @Autowired
+    private ScheduledConfigImporter underTest;
+    @Autowired
+    private ScheduledConfigService service;
+    @Autowired
+    private ScheduledConfigRepository entryRepository;
+
+    private static String line(int index, ZonedDateTime validFrom) {
+        return "{\"key\":\"" + KEY_PREFIX + index + "\",\"validFrom\":\"" + validFrom.toOffsetDateTime() + "\",\"value\":\"" + index + "\"," +
+                "\"created\":\"" + validFrom.toOffsetDateTime() + "\",\"author\":\"A\"}";
+    }
+
+    @Test
+    void import_entries_in_chunks_and_attribute_conflicts_to_lines() throws IOException {
+        final ZonedDateTime validFrom = ZonedDateTime.now().minusMinutes(1);
+        final int count = ScheduledConfigImporter.CHUNK_SIZE + 200;
+        final List<String> lines = IntStream.range(0, count)
+                .mapToObj(i -> line(i, validFrom))
+                .collect(Collectors.toList());
+        // Conflicts with the first line, which is part of the same chunk
+        lines.add(3, line(0, validFrom));
+
+        final ImportReport report = underTest.importEntries(new BufferedReader(new StringReader(String.join("\n", lines))));
+
+        assertThat(report.getLines()).isEqualTo(count + 1);
+        assertThat(report.getImported()).isEqualTo(count);
+        assertThat(report.getFailed()).isEqualTo(1);
+        assertThat(report.getErrors()).extracting(ImportError::getLine).containsExactly(4);
+        assertThat(report.getEntriesPerSecond()).isPositive();
+
+        final List<ScheduledConfigEntry> imported = entryRepository.findAll().stream()
+                .filter(entry -> entry.getKey().startsWith(KEY_PREFIX.toLowerCase(AppConstants.DEFAULT_LOCALE)))
+                .collect(Collectors.toUnmodifiableList());
+        assertThat(imported).hasSize(count);
+        assertThat(imported).extracting(ScheduledConfigEntry::getId).doesNotHaveDuplicates();
+        assertThat(service.get(KEY_PREFIX + (count - 1))).map(ScheduledConfigEntry::getValue).contains(String.valueOf(count - 1));
+    }
+
+    @Test
+    void import_versions_of_the_same_key_in_order() throws IOException {
+        final String key = "my.imported.versions";
+        final ZonedDateTime validFrom = ZonedDateTime.now().minusDays(1);
+        final List<String> lines = IntStream.range(0, 3)
+                .mapToObj(i -> "{\"key\":\"" + key + "\",\"validFrom\":\"" + validFrom.plusHours(i).toOffsetDateTime() + "\",\"value\":\"" + i + "\"," +
+                        "\"created\":\"" + validFrom.toOffsetDateTime() + "\",\"author\":\"A\"}")
+                .collect(Collectors.toList());
+
+        final ImportReport report = underTest.importEntries(new BufferedReader(new StringReader(String.join("\n", lines))));
+
+        assertThat(report.getImported()).isEqualTo(3);
+        final List<ScheduledConfigEntry> versions = entryRepository.findAll().stream()
+                .filter(entry -> entry.getKey().equals(key))
+                .sorted(Comparator.comparing(ScheduledConfigEntry::getCreated))
+                .collect(Collectors.toUnmodifiableList());
+        assertThat(versions).extracting(ScheduledConfigEntry::getValue).containsExactly("0", "1", "2");
+        assertThat(versions).extracting(ScheduledConfigEntry::getCreated).doesNotHaveDuplicates();
+        assertThat(entryRepository.findHistory(key, versions.get(2).getCreated())).extracting(ScheduledConfigEntry::getValue).containsExactly("1", "0");
+        assertThat(entryRepository.findAllLatest(Pageable.unpaged()).getContent())
+                .filteredOn(entry -> entry.getKey().equals(key))
+                .extracting(ScheduledConfigEntry::getValue)
+                .containsExactly("2");
+    }
+
+}
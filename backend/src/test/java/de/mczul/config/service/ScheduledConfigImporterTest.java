@@ -0,0 +1,126 @@
+package de.mczul.config.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import de.mczul.config.model.ImportError;
+import de.mczul.config.model.ImportReport;
+import de.mczul.config.model.ScheduledConfigEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import javax.validation.Validation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@DisplayName("ScheduledConfigImporter unit tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+@ExtendWith(MockitoExtension.class)
+class ScheduledConfigImporterTest {
+    @Mock
+    private ScheduledConfigService scheduledConfigService;
+
+    private ScheduledConfigImporter underTest;
+
+    @BeforeEach
+    void beforeEach() {
+        underTest = new ScheduledConfigImporter(
+                new ObjectMapper().registerModule(new JavaTimeModule()),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new ScheduledConfigMapperImpl(),
+                scheduledConfigService
+        );
+    }
+
+    private static String line(String key) {
+        return "{\"key\":\"" + key + "\",\"validFrom\":\"2020-07-01T12:00:00Z\",\"value\":\"1\",\"created\":\"2020-07-01T12:00:00Z\",\"author\":\"A\"}";
+    }
+
+    private ImportReport importLines(List<String> lines) throws IOException {
+        return underTest.importEntries(new BufferedReader(new StringReader(String.join("\n", lines))));
+    }
+
+    @Test
+    void report_errors_of_malformed_and_invalid_lines() throws IOException {
+        when(scheduledConfigService.setAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        final ImportReport report = importLines(List.of(
+                line("MY_KEY_1"),
+                "{\"key\":",
+                "",
+                line("_MY_INVALID_KEY"),
+                line("MY_KEY_2")
+        ));
+
+        assertThat(report.getLines()).isEqualTo(4);
+        assertThat(report.getImported()).isEqualTo(2);
+        assertThat(report.getFailed()).isEqualTo(2);
+        assertThat(report.isErrorsTruncated()).isFalse();
+        assertThat(report.getErrors()).extracting(ImportError::getLine).containsExactly(2, 4);
+        assertThat(report.getErrors()).allSatisfy(error -> assertThat(error.getViolations()).isNotEmpty());
+        verify(scheduledConfigService).setAll(anyList());
+    }
+
+    @Test
+    void save_entries_in_chunks() throws IOException {
+        final List<Integer> chunkSizes = new ArrayList<>();
+        when(scheduledConfigService.setAll(anyList())).thenAnswer(invocation -> {
+            List<ScheduledConfigEntry> entries = invocation.getArgument(0);
+            chunkSizes.add(entries.size());
+            return entries;
+        });
+
+        final ImportReport report = importLines(IntStream.range(0, ScheduledConfigImporter.CHUNK_SIZE + 1)
+                .mapToObj(i -> line("MY_KEY_" + i))
+                .collect(Collectors.toUnmodifiableList()));
+
+        assertThat(report.getImported()).isEqualTo(ScheduledConfigImporter.CHUNK_SIZE + 1);
+        assertThat(chunkSizes).containsExactly(ScheduledConfigImporter.CHUNK_SIZE, 1);
+    }
+
+    @Test
+    void attribute_rejected_chunk_to_causing_lines() throws IOException {
+        when(scheduledConfigService.setAll(anyList())).thenThrow(new DataIntegrityViolationException("Duplicate"));
+        when(scheduledConfigService.set(any(ScheduledConfigEntry.class))).thenAnswer(invocation -> {
+            ScheduledConfigEntry entry = invocation.getArgument(0);
+            if (entry.getKey().equals("MY_KEY_2")) {
+                throw new DataIntegrityViolationException("Duplicate");
+            }
+            return entry;
+        });
+
+        final ImportReport report = importLines(List.of(line("MY_KEY_1"), line("MY_KEY_2"), line("MY_KEY_3")));
+
+        assertThat(report.getImported()).isEqualTo(2);
+        assertThat(report.getFailed()).isEqualTo(1);
+        assertThat(report.getErrors()).extracting(ImportError::getLine).containsExactly(2);
+        verify(scheduledConfigService, times(3)).set(any(ScheduledConfigEntry.class));
+    }
+
+    @Test
+    void truncate_reported_errors() throws IOException {
+        final ImportReport report = importLines(IntStream.range(0, ScheduledConfigImporter.MAX_REPORTED_ERRORS + 1)
+                .mapToObj(i -> "{}")
+                .collect(Collectors.toUnmodifiableList()));
+
+        assertThat(report.getFailed()).isEqualTo(ScheduledConfigImporter.MAX_REPORTED_ERRORS + 1);
+        assertThat(report.getErrors()).hasSize(ScheduledConfigImporter.MAX_REPORTED_ERRORS);
+        assertThat(report.isErrorsTruncated()).isTrue();
+        verifyNoInteractions(scheduledConfigService);
+    }
+}
@@ -1,5 +1,6 @@
 package de.mczul.config.service;
 
+import de.mczul.config.model.ScheduledConfigDto;
 import de.mczul.config.model.ScheduledConfigEntry;
 import de.mczul.config.model.ScheduledConfigPast;
 import org.junit.jupiter.api.DisplayName;
@@ -19,6 +20,7 @@ import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @DisplayName("ScheduledConfigMapper tests")
@@ -28,6 +30,8 @@ class ScheduledConfigMapperTest {
 
     @Mock
     private ScheduledConfigRepository scheduledConfigRepository;
+    @Mock
+    private ScheduledConfigArchive scheduledConfigArchive;
     @InjectMocks
     private ScheduledConfigMapperImpl underTest;
 
@@ -104,4 +108,100 @@ class ScheduledConfigMapperTest {
             }
         }
     }
+
+    @Test
+    void load_history_of_multiple_entries_with_single_query() {
+        final var now = ZonedDateTime.now();
+        final var keyA = "key_a";
+        final var keyB = "key_b";
+        // Ordered by key and creation timestamp (descending) like the repository result
+        final var history = List.of(
+                ScheduledConfigEntry.builder().id(3).key(keyA).value("3").created(now.minusHours(1)).build(),
+                ScheduledConfigEntry.builder().id(2).key(keyA).value("2").created(now.minusHours(2)).build(),
+                ScheduledConfigEntry.builder().id(1).key(keyA).value("1").created(now.minusHours(3)).build(),
+                ScheduledConfigEntry.builder().id(4).key(keyB).value("4").created(now.minusHours(1)).build()
+        );
+        final var entries = List.of(history.get(0), history.get(3));
+        when(scheduledConfigRepository.findHistories(List.of(keyA, keyB))).thenReturn(history);
+        // Limited by the database
+        when(scheduledConfigRepository.findHistories(List.of(keyA, keyB), List.of(3, 4), 1)).thenReturn(List.of(history.get(0), history.get(1), history.get(3)));
+
+        final var unlimited = underTest.toDtos(entries, null);
+        final var limited = underTest.toDtos(entries, 1);
+
+        verify(scheduledConfigRepository).findHistories(any());
+        verify(scheduledConfigRepository).findHistories(any(), any(), anyInt());
+        verify(scheduledConfigRepository, never()).findHistory(any(), any());
+        assertThat(unlimited).extracting(ScheduledConfigDto::getId).containsExactly(3, 4);
+        assertThat(unlimited.get(0).getHistory()).extracting(ScheduledConfigPast::getId).containsExactly(2, 1);
+        assertThat(unlimited.get(1).getHistory()).isEmpty();
+        assertThat(limited.get(0).getHistory()).extracting(ScheduledConfigPast::getId).containsExactly(2);
+    }
+
+    @Test
+    void load_histories_regardless_of_key_representation() {
+        final var now = ZonedDateTime.now();
+        final var entry = ScheduledConfigEntry.builder().id(2).key("My_Key").value("2").created(now).build();
+        final var older = ScheduledConfigEntry.builder().id(1).key("MY_KEY").value("1").created(now.minusHours(1)).build();
+        when(scheduledConfigRepository.findHistories(List.of("my_key"))).thenReturn(List.of(entry, older));
+
+        assertThat(underTest.toDtos(List.of(entry), null).get(0).getHistory()).extracting(ScheduledConfigPast::getId).containsExactly(1);
+    }
+
+    @Test
+    void skip_history_if_limit_is_zero() {
+        final var entry = ScheduledConfigEntry.builder().id(1).key("key").value("1").created(ZonedDateTime.now()).build();
+
+        final var single = underTest.toDto(entry, 0);
+        final var multiple = underTest.toDtos(List.of(entry), 0);
+
+        verifyNoInteractions(scheduledConfigRepository, scheduledConfigArchive);
+        assertThat(single.getHistory()).isEmpty();
+        assertThat(multiple).hasSize(1);
+        assertThat(multiple.get(0).getHistory()).isEmpty();
+    }
+
+    @Test
+    void merge_archived_entries_if_history_does_not_satisfy_limit() {
+        final var now = ZonedDateTime.now();
+        final var key = "key";
+        final var entry = ScheduledConfigEntry.builder().id(4).key(key).value("4").created(now).build();
+        final var hot = ScheduledConfigEntry.builder().id(3).key(key).value("3").created(now.minusHours(1)).build();
+        when(scheduledConfigRepository.findHistory(key, now)).thenReturn(List.of(hot));
+        // Limited by the database, including the entry itself
+        when(scheduledConfigRepository.findHistories(List.of(key), List.of(4), 1)).thenReturn(List.of(entry, hot));
+        when(scheduledConfigRepository.findHistories(List.of(key), List.of(4), 2)).thenReturn(List.of(entry, hot));
+        when(scheduledConfigArchive.find(key)).thenReturn(List.of(
+                ScheduledConfigEntry.builder().id(1).key(key).value("1").created(now.minusHours(3)).build(),
+                ScheduledConfigEntry.builder().id(2).key(key).value("2").created(now.minusHours(2)).build(),
+                // Left behind by a rolled back deletion
+                hot,
+                // Same key with a different casing
+                ScheduledConfigEntry.builder().id(5).key("KEY").value("5").created(now.minusHours(4)).build()
+        ));
+
+        assertThat(underTest.toDto(entry, 1).getHistory()).extracting(ScheduledConfigPast::getId).containsExactly(3);
+        verifyNoInteractions(scheduledConfigArchive);
+        verify(scheduledConfigRepository, never()).findHistory(any(), any());
+
+        assertThat(underTest.toDto(entry, 2).getHistory()).extracting(ScheduledConfigPast::getId).containsExactly(3, 2);
+        assertThat(underTest.toDto(entry).getHistory()).extracting(ScheduledConfigPast::getId).containsExactly(3, 2, 1, 5);
+    }
+
+    @Test
+    void merge_entries_that_have_been_archived_repeatedly_once() {
+        final var now = ZonedDateTime.now();
+        final var key = "key";
+        final var entry = ScheduledConfigEntry.builder().id(3).key(key).value("3").created(now).build();
+        final var archived = ScheduledConfigEntry.builder().id(2).key(key).value("2").created(now.minusHours(1)).build();
+        when(scheduledConfigRepository.findHistory(key, now)).thenReturn(List.of());
+        // Archived by a cleanup whose deletion has been rolled back and by a later one
+        when(scheduledConfigArchive.find(key)).thenReturn(List.of(
+                ScheduledConfigEntry.builder().id(1).key(key).value("1").created(now.minusHours(2)).build(),
+                archived,
+                archived
+        ));
+
+        assertThat(underTest.toDto(entry).getHistory()).extracting(ScheduledConfigPast::getId).containsExactly(2, 1);
+    }
 }
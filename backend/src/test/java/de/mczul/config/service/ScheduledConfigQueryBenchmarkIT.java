@@ -0,0 +1,191 @@
+package de.mczul.config.service;
+
+import de.mczul.config.testing.IntegrationTest;
+import de.mczul.config.testing.TestTags;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the former queries on lower(key) and the raw key column with the queries of
+ * {@link ScheduledConfigRepository} that seek the indexes on normalized_key, based on one million history rows.
+ * <p>
+ * Disabled by default, run with {@code mvn verify -Dit.test=ScheduledConfigQueryBenchmarkIT -Dbenchmark=true}.
+ */
+@Slf4j
+@DisplayName("ScheduledConfigRepository query benchmark")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+@IntegrationTest
+@Tag(TestTags.BENCHMARK)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@TestInstance(Lifecycle.PER_CLASS)
+// Dedicated database without result reuse, otherwise repeated queries without parameters are answered from a cache
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=FALSE")
+class ScheduledConfigQueryBenchmarkIT {
+    private static final int NUMBER_OF_KEYS = 10_000;
+    private static final int VERSIONS_PER_KEY = 100;
+    private static final int PAST_VERSIONS_PER_KEY = 90;
+    private static final int INSERT_BATCH_SIZE = 10_000;
+    private static final int FIRST_ID = 10_000_000;
+
+    private static final String LEGACY_CURRENT = "SELECT e1.id FROM config.scheduled_config e1 " +
+            "WHERE lower(e1.key) = lower(?) " +
+            "AND e1.valid_from <= CURRENT_TIMESTAMP " +
+            "AND NOT EXISTS (" +
+            "   SELECT 'x' FROM config.scheduled_config e2 " +
+            "   WHERE lower(e1.key) = lower(e2.key) AND e2.valid_from <= CURRENT_TIMESTAMP AND e2.valid_from > e1.valid_from" +
+            ")";
+    private static final String LEGACY_OUTDATED_COUNT = "SELECT COUNT(*) FROM config.scheduled_config e1 " +
+            "WHERE e1.valid_from <= CURRENT_TIMESTAMP " +
+            "AND EXISTS (" +
+            "   SELECT 'x' FROM config.scheduled_config e2 " +
+            "   WHERE e1.key = e2.key AND e2.valid_from <= CURRENT_TIMESTAMP AND e2.valid_from > e1.valid_from" +
+            ")";
+    private static final String OUTDATED_COUNT = "SELECT COUNT(*) FROM config.scheduled_config e1 " +
+            "WHERE e1.valid_from <= CURRENT_TIMESTAMP " +
+            "AND EXISTS (" +
+            "   SELECT 'x' FROM config.scheduled_config e2 " +
+            "   WHERE e1.normalized_key = e2.normalized_key AND e2.valid_from <= CURRENT_TIMESTAMP AND e2.valid_from > e1.valid_from" +
+            ")";
+    private static final String LEGACY_LATEST_CONDITION = "FROM config.scheduled_config e1 " +
+            "WHERE NOT EXISTS (" +
+            "   SELECT 'X' FROM config.scheduled_config e2 WHERE e2.key = e1.key AND e2.created > e1.created" +
+            ")";
+
+    @Autowired
+    private ScheduledConfigRepository underTest;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+    private static String key(int index) {
+        return String.format(Locale.ROOT, "benchmark.key_%05d", index);
+    }
+
+    private Instant validFrom(int version) {
+        return now.minus(Duration.ofDays(PAST_VERSIONS_PER_KEY - version));
+    }
+
+    @BeforeAll
+    void beforeAll() {
+        underTest.deleteAll();
+        for (int offset = 0; offset < NUMBER_OF_KEYS * VERSIONS_PER_KEY; offset += INSERT_BATCH_SIZE) {
+            final int batchOffset = offset;
+            jdbcTemplate.batchUpdate("INSERT INTO config.scheduled_config " +
+                    "(id, key, normalized_key, valid_from, value, created, author) VALUES (?, ?, ?, ?, ?, ?, ?)", new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    final int row = batchOffset + i;
+                    final int version = row % VERSIONS_PER_KEY;
+                    final String key = key(row / VERSIONS_PER_KEY);
+                    ps.setInt(1, FIRST_ID + row);
+                    ps.setString(2, key);
+                    ps.setString(3, key);
+                    ps.setTimestamp(4, Timestamp.from(validFrom(version)));
+                    ps.setString(5, String.valueOf(version));
+                    ps.setTimestamp(6, Timestamp.from(now.minus(Duration.ofHours(VERSIONS_PER_KEY - version))));
+                    ps.setString(7, "benchmark");
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return INSERT_BATCH_SIZE;
+                }
+            });
+        }
+        LOG.info("Inserted {} rows", jdbcTemplate.queryForObject("SELECT COUNT(*) FROM config.scheduled_config", Long.class));
+    }
+
+    @AfterAll
+    void afterAll() {
+        jdbcTemplate.update("DELETE FROM config.scheduled_config");
+    }
+
+    private static <T> T measure(String label, int repetitions, Supplier<T> action) {
+        T result = action.get();
+        final long start = System.nanoTime();
+        for (int i = 0; i < repetitions; i++) {
+            result = action.get();
+        }
+        final double averageMillis = (System.nanoTime() - start) / 1_000_000.0 / repetitions;
+        LOG.info(String.format(Locale.ROOT, "%-40s %12.3f ms", label, averageMillis));
+        return result;
+    }
+
+    @Test
+    void compare_current_value_lookup() {
+        final String key = key(NUMBER_OF_KEYS / 2);
+        final int expectedId = FIRST_ID + NUMBER_OF_KEYS / 2 * VERSIONS_PER_KEY + PAST_VERSIONS_PER_KEY;
+
+        final Integer legacy = measure("current value (before)", 3,
+                () -> jdbcTemplate.queryForObject(LEGACY_CURRENT, Integer.class, key.toUpperCase(Locale.ROOT)));
+        final Integer optimized = measure("current value (after)", 1_000,
+                () -> underTest.findCurrentByKey(key.toUpperCase(Locale.ROOT)).orElseThrow().getId());
+
+        assertThat(legacy).isEqualTo(expectedId);
+        assertThat(optimized).isEqualTo(expectedId);
+    }
+
+    @Test
+    void compare_outdated_scan() {
+        final long expected = (long) NUMBER_OF_KEYS * PAST_VERSIONS_PER_KEY;
+
+        // Counting instead of ScheduledConfigRepository#findOutdated avoids materializing 900k entities
+        final Long legacy = measure("outdated entries (before)", 3,
+                () -> jdbcTemplate.queryForObject(LEGACY_OUTDATED_COUNT, Long.class));
+        final Long optimized = measure("outdated entries (after)", 3,
+                () -> jdbcTemplate.queryForObject(OUTDATED_COUNT, Long.class));
+
+        assertThat(legacy).isEqualTo(expected);
+        assertThat(optimized).isEqualTo(expected);
+    }
+
+    @Test
+    void compare_latest_page() {
+        final int pageIndex = NUMBER_OF_KEYS / 10 - 1;
+        final String expectedKey = key(pageIndex * 10);
+
+        final String legacy = measure("deep latest page incl. count (before)", 1, () -> {
+            jdbcTemplate.queryForObject("SELECT COUNT(*) " + LEGACY_LATEST_CONDITION, Long.class);
+            return jdbcTemplate.queryForList("SELECT e1.key " + LEGACY_LATEST_CONDITION +
+                    " ORDER BY e1.key, e1.valid_from LIMIT 10 OFFSET " + pageIndex * 10, String.class).get(0);
+        });
+        final String optimized = measure("deep latest page incl. count (after)", 3,
+                () -> underTest.findAllLatest(PageRequest.of(pageIndex, 10, Sort.by("key", "validFrom"))).getContent().get(0).getKey());
+        final String sliced = measure("deep latest slice (after)", 100,
+                () -> underTest.findLatestSliceAfter(key(pageIndex * 10 - 1), validFrom(VERSIONS_PER_KEY - 1).atZone(ZoneOffset.UTC), PageRequest.of(0, 10))
+                        .getContent().get(0).getKey());
+
+        assertThat(legacy).isEqualTo(expectedKey);
+        assertThat(optimized).isEqualTo(expectedKey);
+        assertThat(sliced).isEqualTo(expectedKey);
+    }
+
+}
@@ -18,6 +18,8 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.summingInt;
@@ -95,6 +97,130 @@ class ScheduledConfigRepositoryIT {
         }
     }
 
+    @Transactional
+    @Test
+    void maintain_normalized_key() {
+        final var saved = underTest.saveAndFlush(ScheduledConfigEntry.builder()
+                .key("My_Mixed_Key")
+                .validFrom(ZonedDateTime.now().minusHours(1))
+                .value("1")
+                .created(ZonedDateTime.now())
+                .author("A")
+                .build());
+        assertThat(saved.getNormalizedKey()).isEqualTo("my_mixed_key");
+
+        saved.setKey("Another_Key");
+        underTest.saveAndFlush(saved);
+
+        assertThat(underTest.findTimeline("ANOTHER_KEY")).containsExactly(saved);
+        assertThat(underTest.findCurrentByKey("another_KEY")).contains(saved);
+        assertThat(underTest.findAllKeys()).containsExactly("another_key");
+    }
+
+    @Transactional
+    @Test
+    void find_history_regardless_of_key_representation() {
+        final var created = ZonedDateTime.now().minusMinutes(10);
+        final var first = underTest.save(ScheduledConfigEntry.builder()
+                .key("My_Cased_Key")
+                .validFrom(created)
+                .value("1")
+                .created(created)
+                .author("A")
+                .build());
+        final var second = underTest.save(ScheduledConfigEntry.builder()
+                .key("my_cased_key")
+                .validFrom(created.plusMinutes(1))
+                .value("2")
+                .created(created.plusMinutes(1))
+                .author("A")
+                .build());
+        underTest.flush();
+
+        assertThat(underTest.findHistory("MY_CASED_KEY", created.plusMinutes(2))).containsExactly(second, first);
+        assertThat(underTest.findHistories(List.of("my_cased_key"))).containsExactly(second, first);
+        assertThat(underTest.findHistories(List.of("my_cased_key"), List.of(second.getId()), 1)).containsExactly(second, first);
+    }
+
+    @Transactional
+    @Test
+    void find_histories() {
+        final String firstKey = "MY_KEY_1";
+        final String secondKey = "MY_KEY_2";
+        var entries = List.of(
+                ScheduledConfigEntry.builder()
+                        .key(firstKey)
+                        .validFrom(ZonedDateTime.now().plusHours(1))
+                        .value("1")
+                        .created(ZonedDateTime.now().minusHours(12))
+                        .author("A")
+                        .build(),
+                ScheduledConfigEntry.builder()
+                        .key(secondKey)
+                        .validFrom(ZonedDateTime.now().plusHours(2))
+                        .value("2")
+                        .created(ZonedDateTime.now().minusHours(6))
+                        .author("B")
+                        .build(),
+                ScheduledConfigEntry.builder()
+                        .key(firstKey)
+                        .validFrom(ZonedDateTime.now().plusHours(3))
+                        .value("3")
+                        .created(ZonedDateTime.now().minusHours(1))
+                        .author("C")
+                        .build(),
+                ScheduledConfigEntry.builder()
+                        .key(firstKey + "_X")
+                        .validFrom(ZonedDateTime.now().plusHours(4))
+                        .value("X")
+                        .created(ZonedDateTime.now())
+                        .author("D")
+                        .build()
+        );
+
+        underTest.saveAll(entries);
+
+        // Ordered by key and descending creation timestamp
+        final var expected = List.of(entries.get(2), entries.get(0), entries.get(1));
+        final var actual = underTest.findHistories(List.of(firstKey, secondKey));
+
+        assertThat(actual).containsExactlyElementsOf(expected);
+    }
+
+    @Transactional
+    @Test
+    void find_limited_histories() {
+        final String firstKey = "my_limited_key_1";
+        final String secondKey = "my_limited_key_2";
+        final ZonedDateTime now = ZonedDateTime.now();
+        final List<ScheduledConfigEntry> first = underTest.saveAll(IntStream.range(0, 6)
+                .mapToObj(i -> ScheduledConfigEntry.builder()
+                        .key(firstKey)
+                        .validFrom(now.plusHours(i))
+                        .value(String.valueOf(i))
+                        .created(now.minusHours(i))
+                        .author("A")
+                        .build())
+                .collect(Collectors.toList()));
+        final List<ScheduledConfigEntry> second = underTest.saveAll(IntStream.range(0, 3)
+                .mapToObj(i -> ScheduledConfigEntry.builder()
+                        .key(secondKey)
+                        .validFrom(now.plusHours(i))
+                        .value(String.valueOf(i))
+                        // Created at the same time, so none of them is part of the history of another one
+                        .created(now.minusHours(1))
+                        .author("B")
+                        .build())
+                .collect(Collectors.toList()));
+        underTest.flush();
+
+        // Histories of size 1 of the entries created 1 and 3 hours ago end with the entry created 4 hours ago
+        final var actual = underTest.findHistories(List.of(firstKey, secondKey), List.of(first.get(1).getId(), first.get(3).getId(), second.get(0).getId()), 1);
+
+        assertThat(actual.subList(0, 5)).containsExactlyElementsOf(first.subList(0, 5));
+        assertThat(actual.subList(5, actual.size())).containsExactlyInAnyOrderElementsOf(second);
+    }
+
     @Transactional
     @Test
     void find_all_latest() {
@@ -155,6 +281,42 @@ class ScheduledConfigRepositoryIT {
         assertThat(actual).containsExactlyInAnyOrderElementsOf(expected);
     }
 
+    @Transactional
+    @Test
+    void find_latest_slices() {
+        final var keys = List.of("MY_KEY_3", "MY_KEY_1", "MY_KEY_2");
+        final var entries = keys.stream()
+                .flatMap(key -> Stream.of(
+                        ScheduledConfigEntry.builder()
+                                .key(key)
+                                .validFrom(ZonedDateTime.now().plusHours(1))
+                                .value("old")
+                                .created(ZonedDateTime.now().minusHours(2))
+                                .author("A")
+                                .build(),
+                        ScheduledConfigEntry.builder()
+                                .key(key)
+                                .validFrom(ZonedDateTime.now().plusHours(2))
+                                .value("latest")
+                                .created(ZonedDateTime.now().minusHours(1))
+                                .author("B")
+                                .build()
+                ))
+                .collect(Collectors.toUnmodifiableList());
+        underTest.saveAll(entries);
+
+        final var pageRequest = PageRequest.of(0, 2);
+        final var first = underTest.findLatestSlice(pageRequest);
+        final var last = first.getContent().get(first.getNumberOfElements() - 1);
+        final var second = underTest.findLatestSliceAfter(last.getKey(), last.getValidFrom(), pageRequest);
+
+        assertThat(first.hasNext()).isTrue();
+        assertThat(first.getContent()).extracting(ScheduledConfigEntry::getKey).containsExactly("MY_KEY_1", "MY_KEY_2");
+        assertThat(second.hasNext()).isFalse();
+        assertThat(second.getContent()).extracting(ScheduledConfigEntry::getKey).containsExactly("MY_KEY_3");
+        assertThat(Stream.concat(first.stream(), second.stream())).extracting(ScheduledConfigEntry::getValue).containsOnly("latest");
+    }
+
     @Transactional
     @Test
     void find_outdated() {
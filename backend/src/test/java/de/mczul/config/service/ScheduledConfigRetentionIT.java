@@ -0,0 +1,131 @@
+package de.mczul.config.service;
+
+import de.mczul.config.model.ScheduledConfigEntry;
+import de.mczul.config.testing.IntegrationTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.ZonedDateTime;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+@DisplayName("ScheduledConfigRetention integration tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+@IntegrationTest
+@TestPropertySource(properties = {
+        "de.mczul.config.retention.mode=PURGE",
+        "de.mczul.config.retention.keep-versions=2",
+        "de.mczul.config.retention.keep-younger-than=1d",
+        "de.mczul.config.retention.chunk-size=3",
+})
+class ScheduledConfigRetentionIT {
+    private static final String KEY = "my_retained_key";
+
+    @Autowired
+    private ScheduledConfigRetention underTest;
+    @Autowired
+    private ScheduledConfigRepository entryRepository;
+    @Autowired
+    private CurrentValueRepository currentValueRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private JobLeases jobLeases;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ScheduledConfigCache cache;
+    @Autowired
+    private RetentionProperties properties;
+
+    @BeforeEach
+    void beforeEach() {
+        currentValueRepository.deleteAll();
+        entryRepository.deleteAll();
+        cache.clear();
+    }
+
+    private ScheduledConfigEntry save(String key, int validFromHours, int createdDays) {
+        return entryRepository.save(ScheduledConfigEntry.builder()
+                .key(key)
+                .validFrom(ZonedDateTime.now().plusHours(validFromHours))
+                .value(String.valueOf(validFromHours))
+                .created(ZonedDateTime.now().minusDays(createdDays))
+                .author("A")
+                .build());
+    }
+
+    @Test
+    void purge_entries_superseded_by_enough_effective_entries_in_chunks() {
+        final var purged = save(KEY, -5, 10);
+        final var purgedToo = save(KEY, -4, 10);
+        final var previous = save(KEY, -3, 10);
+        final var current = save(KEY, -2, 10);
+        final var future = save(KEY, 1, 10);
+        final var otherKey = save("my_other_key", -5, 10);
+        final double scannedBefore = meterRegistry.counter(ScheduledConfigRetention.METRIC_ROWS_SCANNED).count();
+        assertThat(cache.timeline(KEY).getEntries()).hasSize(5);
+
+        assertThat(underTest.purge()).isEqualTo(2);
+        // Evicted once the chunk has been committed
+        assertThat(cache.cached(KEY)).isEmpty();
+
+        assertThat(entryRepository.findAll())
+                .extracting(ScheduledConfigEntry::getId)
+                .containsExactlyInAnyOrder(previous.getId(), current.getId(), future.getId(), otherKey.getId())
+                .doesNotContain(purged.getId(), purgedToo.getId());
+        assertThat(meterRegistry.counter(ScheduledConfigRetention.METRIC_ROWS_SCANNED).count() - scannedBefore).isEqualTo(6);
+        assertThat(meterRegistry.timer(ScheduledConfigRetention.METRIC_CHUNK_DURATION).count()).isPositive();
+    }
+
+    @Test
+    void keep_all_entries_unless_enabled() {
+        save(KEY, -5, 10);
+        save(KEY, -4, 10);
+        save(KEY, -3, 10);
+        save(KEY, -2, 10);
+        properties.setMode(RetentionProperties.Mode.KEEP);
+        try {
+            assertThat(underTest.purge()).isZero();
+        } finally {
+            properties.setMode(RetentionProperties.Mode.PURGE);
+        }
+        assertThat(entryRepository.count()).isEqualTo(4);
+    }
+
+    @Test
+    void keep_entries_younger_than_configured_period() {
+        save(KEY, -5, 0);
+        save(KEY, -4, 0);
+        save(KEY, -3, 0);
+
+        assertThat(underTest.purge()).isZero();
+        assertThat(entryRepository.count()).isEqualTo(3);
+    }
+
+    @Test
+    void keep_entries_once_the_lease_has_been_taken_over() {
+        save(KEY, -5, 10);
+        save(KEY, -4, 10);
+        save(KEY, -3, 10);
+        save(KEY, -2, 10);
+        final AtomicReference<JobLease> lease = new AtomicReference<>();
+        assertThat(jobLeases.runExclusively("retention-fencing", lease::set)).isTrue();
+        // Another node takes over while the lease of this node has expired
+        jdbcTemplate.update("UPDATE config.job_lease SET owner = 'other', token = token + 1 WHERE name = ?", "retention-fencing");
+
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> underTest.purge(lease.get()));
+        assertThat(lease.get().isHeld()).isFalse();
+        assertThat(entryRepository.count()).isEqualTo(4);
+    }
+
+}
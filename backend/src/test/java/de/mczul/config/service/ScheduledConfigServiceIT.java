@@ -1,6 +1,10 @@
 package de.mczul.config.service;
 
+import de.mczul.config.AppConstants;
+import de.mczul.config.model.ConfigValue;
+import de.mczul.config.model.CurrentValue;
 import de.mczul.config.model.ScheduledConfigEntry;
+import de.mczul.config.model.StoredValue;
 import de.mczul.config.testing.IntegrationTest;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.DisplayNameGeneration;
@@ -8,9 +12,13 @@ import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -23,6 +31,14 @@ class ScheduledConfigServiceIT {
 
     @Autowired
     private ScheduledConfigService underTest;
+    @Autowired
+    private ScheduledConfigCache cache;
+    @Autowired
+    private ScheduledConfigActivator activator;
+    @Autowired
+    private CurrentValueRepository currentValueRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
 
     @Test
     void return_empty_if_key_not_existing() {
@@ -52,7 +68,8 @@ class ScheduledConfigServiceIT {
     @Test
     void handle_valid_from_with_different_time_zones_correctly() {
         final String key = "MY_SAMPLE_KEY";
-        final ZonedDateTime referenceDateTime = ZonedDateTime.now(ZoneId.of("Europe/Berlin"));
+        // Entries are stored with microsecond precision
+        final ZonedDateTime referenceDateTime = ZonedDateTime.now(ZoneId.of("Europe/Berlin")).truncatedTo(ChronoUnit.MICROS);
 
         var first = ScheduledConfigEntry.builder()
                 .key(key)
@@ -136,6 +153,144 @@ class ScheduledConfigServiceIT {
         assertThat(entry.get().getValue()).isEqualTo("3");
     }
 
+    @Test
+    void reflect_entries_set_after_timeline_has_been_loaded() {
+        final String KEY = "MY_KEY_CACHE_COHERENCE";
+
+        assertThat(underTest.get(KEY)).isEmpty();
+
+        underTest.set(ScheduledConfigEntry.builder()
+                .key(KEY)
+                .validFrom(ZonedDateTime.now().minusMinutes(1))
+                .value("1")
+                .created(ZonedDateTime.now())
+                .author("A")
+                .build());
+
+        Optional<ScheduledConfigEntry> entry = underTest.get(KEY);
+        assertThat(entry).isPresent();
+        assertThat(entry.get().getValue()).isEqualTo("1");
+    }
+
+    @Test
+    void resolve_current_value_after_caches_have_been_cleared() {
+        final String KEY = "MY_KEY_COLD_CACHE";
+        underTest.set(ScheduledConfigEntry.builder()
+                .key(KEY)
+                .validFrom(ZonedDateTime.now().minusMinutes(1))
+                .value("1")
+                .created(ZonedDateTime.now())
+                .author("A")
+                .build());
+
+        // Same state as after a restart
+        cache.clear();
+        activator.publish();
+
+        Optional<ScheduledConfigEntry> entry = underTest.get(KEY);
+        assertThat(entry).isPresent();
+        assertThat(entry.get().getValue()).isEqualTo("1");
+        assertThat(currentValueRepository.findById(KEY.toLowerCase(AppConstants.DEFAULT_LOCALE))).isPresent();
+    }
+
+    @Test
+    void resolve_past_and_future_values_for_reference_time() {
+        final String KEY = "MY_KEY_POINT_IN_TIME";
+        final ZonedDateTime referenceTime = ZonedDateTime.now();
+
+        for (int offset : new int[]{-48, -24, 24}) {
+            underTest.set(ScheduledConfigEntry.builder()
+                    .key(KEY)
+                    .validFrom(referenceTime.plusHours(offset))
+                    .value(String.valueOf(offset))
+                    .created(ZonedDateTime.now())
+                    .author("A")
+                    .build());
+        }
+
+        assertThat(underTest.get(KEY, referenceTime.minusDays(3))).isEmpty();
+        assertThat(underTest.get(KEY, referenceTime.minusHours(36))).map(ScheduledConfigEntry::getValue).contains("-48");
+        assertThat(underTest.get(KEY, referenceTime)).map(ScheduledConfigEntry::getValue).contains("-24");
+        assertThat(underTest.get(KEY, referenceTime.plusDays(2))).map(ScheduledConfigEntry::getValue).contains("24");
+    }
+
+    @Test
+    void resolve_multiple_keys_for_single_reference_time() {
+        final String firstKey = "MY_BULK_KEY_1";
+        final String secondKey = "MY_BULK_KEY_2";
+        final ZonedDateTime referenceTime = ZonedDateTime.now();
+
+        underTest.set(ScheduledConfigEntry.builder()
+                .key(firstKey)
+                .validFrom(referenceTime.minusMinutes(1))
+                .value("1")
+                .created(ZonedDateTime.now())
+                .author("A")
+                .build());
+        underTest.set(ScheduledConfigEntry.builder()
+                .key(secondKey)
+                .validFrom(referenceTime.plusMinutes(1))
+                .value("2")
+                .created(ZonedDateTime.now())
+                .author("B")
+                .build());
+
+        Map<String, ScheduledConfigEntry> entries = underTest.getAll(List.of(firstKey, secondKey, "MY_BULK_KEY_MISSING"), referenceTime);
+        assertThat(entries).containsOnlyKeys(firstKey.toLowerCase(AppConstants.DEFAULT_LOCALE));
+        assertThat(entries.get(firstKey.toLowerCase(AppConstants.DEFAULT_LOCALE)).getValue()).isEqualTo("1");
+    }
+
+    @Test
+    void page_through_namespace_and_skip_keys_without_effective_entry() {
+        final ZonedDateTime referenceTime = ZonedDateTime.now();
+        for (String key : List.of("MY.NAMESPACE.A", "MY.NAMESPACE.B", "MY.NAMESPACE.C", "MY.NAMESPACE.D", "MY.NAMESPACES.X")) {
+            underTest.set(ScheduledConfigEntry.builder()
+                    .key(key)
+                    .validFrom(key.endsWith("B") ? referenceTime.plusMinutes(1) : referenceTime.minusMinutes(1))
+                    .value(key)
+                    .created(ZonedDateTime.now())
+                    .author("A")
+                    .build());
+        }
+
+        List<ScheduledConfigEntry> firstPage = underTest.getByPrefix("my.namespace.", null, 2, referenceTime);
+        assertThat(firstPage).extracting(ScheduledConfigEntry::getKey).containsExactly("my.namespace.a", "my.namespace.c");
+
+        List<ScheduledConfigEntry> secondPage = underTest.getByPrefix("my.namespace.", "my.namespace.c", 2, referenceTime);
+        assertThat(secondPage).extracting(ScheduledConfigEntry::getKey).containsExactly("my.namespace.d");
+    }
+
+    @Test
+    void store_large_values_compressed_and_read_them_transparently() {
+        final String KEY = "MY_KEY_LARGE_VALUE";
+        final String value = "{\"enabled\":true}".repeat(1_000);
+
+        underTest.set(ScheduledConfigEntry.builder()
+                .key(KEY)
+                .validFrom(ZonedDateTime.now().minusMinutes(1))
+                .value(value)
+                .created(ZonedDateTime.now())
+                .author("A")
+                .build());
+
+        String stored = jdbcTemplate.queryForObject("SELECT CAST(v.value AS VARCHAR) " +
+                "FROM config.scheduled_config s JOIN config.value_content v ON v.hash = s.value_hash " +
+                "WHERE s.key = ?", String.class, KEY.toLowerCase(AppConstants.DEFAULT_LOCALE));
+        assertThat(stored).startsWith("\u0001gzip:").hasSizeLessThan(value.length());
+        assertThat(underTest.get(KEY)).map(ScheduledConfigEntry::getValue).contains(value);
+        assertThat(underTest.getValue(KEY)).map(ConfigValue::getValue).contains(value);
+        assertThat(underTest.getStoredValue(KEY)).hasValueSatisfying(storedValue -> {
+            assertThat(storedValue.isCompressed()).isTrue();
+            assertThat(storedValue.decode()).isEqualTo(value);
+        });
+
+        // Same representations once the value has been copied to the current values
+        activator.publish();
+        assertThat(currentValueRepository.findById(KEY.toLowerCase(AppConstants.DEFAULT_LOCALE))).map(CurrentValue::getValue).contains(value);
+        assertThat(underTest.getValue(KEY)).map(ConfigValue::getValue).contains(value);
+        assertThat(underTest.getStoredValue(KEY)).map(StoredValue::getRepresentation).contains(stored);
+    }
+
     @Test
     void handle_unique_constraint_violations_properly() {
         final String KEY = "MY_KEY_UNIQUE_CONSTRAINT_VIOLATION";
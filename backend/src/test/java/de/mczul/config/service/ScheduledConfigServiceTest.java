@@ -1,22 +1,39 @@
 package de.mczul.config.service;
 
 import de.mczul.config.model.ScheduledConfigEntry;
-import org.junit.jupiter.api.Disabled;
+import de.mczul.config.model.StoredValue;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.DisplayNameGeneration;
 import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.junit.jupiter.api.Assertions.fail;
-import static org.mockito.Mockito.verify;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 
 @DisplayName("ScheduledConfigService unit tests")
 @DisplayNameGeneration(ReplaceUnderscores.class)
@@ -24,9 +41,42 @@ import static org.mockito.Mockito.verify;
 class ScheduledConfigServiceTest {
     @Mock
     private ScheduledConfigRepository scheduledConfigRepository;
-    @InjectMocks
+    @Mock
+    private ScheduledConfigCache scheduledConfigCache;
+    @Mock
+    private ScheduledConfigActivator scheduledConfigActivator;
+    @Mock
+    private ConfigKeyIndex configKeyIndex;
+    @Mock
+    private CurrentValueStore currentValueStore;
+    @Mock
+    private ScheduledConfigRetention scheduledConfigRetention;
+    @Mock
+    private ValueContentStore valueContentStore;
+    @Mock
+    private ConfigChangeLog configChangeLog;
+    @Mock
+    private JobLeases jobLeases;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
     private ScheduledConfigService underTest;
 
+    @BeforeEach
+    void beforeEach() {
+        underTest = new ScheduledConfigService(
+                scheduledConfigRepository,
+                scheduledConfigCache,
+                scheduledConfigActivator,
+                configKeyIndex,
+                currentValueStore,
+                scheduledConfigRetention,
+                valueContentStore,
+                configChangeLog,
+                jobLeases,
+                meterRegistry
+        );
+    }
+
     @Test
     void set_must_convert_keys_to_lowercase_and_set_created_timestamp() {
         final var key = "MY_UPPERCASE_KEY";
@@ -34,6 +84,8 @@ class ScheduledConfigServiceTest {
                 .key(key)
                 .build();
         final var argCaptor = ArgumentCaptor.forClass(ScheduledConfigEntry.class);
+        when(valueContentStore.attach(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(scheduledConfigRepository.save(any(ScheduledConfigEntry.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         underTest.set(sample);
         verify(scheduledConfigRepository).save(argCaptor.capture());
@@ -45,9 +97,189 @@ class ScheduledConfigServiceTest {
                 .isBetween(ZonedDateTime.now().minusSeconds(1), ZonedDateTime.now());
     }
 
-    @Disabled("Not yet implemented")
     @Test
-    void cleanup_must_only_delete_entries_with_newer_valid_from_timestamp() {
-        fail("Not implemented yet!");
+    void set_must_refresh_current_value_add_saved_entry_to_cache_and_publish_snapshot() {
+        final var sample = ScheduledConfigEntry.builder()
+                .key("MY_KEY")
+                .build();
+        final var saved = sample.withId(42);
+        when(valueContentStore.attach(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(scheduledConfigRepository.save(any(ScheduledConfigEntry.class))).thenReturn(saved);
+
+        underTest.set(sample);
+        verify(configChangeLog).record(List.of(saved.getKey()));
+        verify(currentValueStore).refresh(Set.of(saved.getKey()));
+        verify(scheduledConfigCache).add(saved);
+        verify(configKeyIndex).add(saved.getKey());
+        verify(scheduledConfigActivator).publish(Set.of(saved.getKey()));
+    }
+
+    @Test
+    void set_all_must_normalize_entries_and_publish_snapshot_once() {
+        final var samples = List.of(
+                ScheduledConfigEntry.builder().key("MY_KEY_A").build(),
+                ScheduledConfigEntry.builder().key("my_key_a").build(),
+                ScheduledConfigEntry.builder().key("MY_KEY_B").build()
+        );
+        when(valueContentStore.attach(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(scheduledConfigRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<ScheduledConfigEntry> saved = underTest.setAll(samples);
+        assertThat(saved).extracting(ScheduledConfigEntry::getKey).containsExactly("my_key_a", "my_key_a", "my_key_b");
+        assertThat(saved).extracting(ScheduledConfigEntry::getCreated).doesNotContainNull();
+        verify(scheduledConfigRepository).flush();
+        verify(configChangeLog).record(List.of("my_key_a", "my_key_a", "my_key_b"));
+        verify(currentValueStore).refresh(Set.of("my_key_a", "my_key_b"));
+        verify(scheduledConfigCache, times(3)).add(any(ScheduledConfigEntry.class));
+        verify(scheduledConfigActivator).publish(Set.of("my_key_a", "my_key_b"));
+    }
+
+    @Test
+    void get_must_resolve_current_entry_from_snapshot_with_normalized_key() {
+        final var key = "my_key";
+        final var current = ScheduledConfigEntry.builder().id(2).key(key).validFrom(ZonedDateTime.now().minusMinutes(1)).value("2").build();
+        when(scheduledConfigActivator.current(eq(key), any())).thenReturn(Optional.of(current));
+
+        assertThat(underTest.get(key.toUpperCase(Locale.ENGLISH))).contains(current);
+        verifyNoInteractions(scheduledConfigRepository);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void get_must_resolve_keys_missing_in_snapshot_from_current_values() {
+        final var key = "my_key";
+        final var current = ScheduledConfigEntry.builder().id(2).key(key).validFrom(ZonedDateTime.now().minusMinutes(1)).value("2").build();
+        when(scheduledConfigActivator.current(eq(key), any())).thenAnswer(invocation -> invocation.getArgument(1, Function.class).apply(key));
+        when(currentValueStore.find(key)).thenReturn(Optional.of(current));
+
+        assertThat(underTest.get(key)).contains(current);
+        verify(currentValueStore).find(key);
+    }
+
+    @Test
+    void get_stored_value_must_coalesce_concurrent_lookups_of_the_same_key() throws InterruptedException {
+        final int lookups = 8;
+        final var stored = new StoredValue("42");
+        final var loading = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+        when(currentValueStore.findStoredValue("my_key")).thenAnswer(invocation -> {
+            loading.countDown();
+            assertThat(release.await(5, TimeUnit.SECONDS)).isTrue();
+            return Optional.of(stored);
+        });
+        final ExecutorService callers = Executors.newFixedThreadPool(lookups);
+
+        try {
+            final var leader = CompletableFuture.supplyAsync(() -> underTest.getStoredValue("MY_KEY"), callers);
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            final var followers = IntStream.range(1, lookups)
+                    .mapToObj(i -> CompletableFuture.supplyAsync(() -> underTest.getStoredValue("my_key"), callers))
+                    .collect(Collectors.toList());
+            // Followers have joined the running lookup once they have been counted
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (coalesced("stored-value") < lookups - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            assertThat(leader.join()).containsSame(stored);
+            assertThat(followers).allSatisfy(follower -> assertThat(follower.join()).containsSame(stored));
+            assertThat(coalesced("stored-value")).isEqualTo(lookups - 1);
+            verify(currentValueStore, times(1)).findStoredValue("my_key");
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void set_must_detach_running_lookups_of_written_keys() throws InterruptedException {
+        final var loading = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+        when(currentValueStore.findStoredValue("my_key"))
+                .thenAnswer(invocation -> {
+                    loading.countDown();
+                    assertThat(release.await(5, TimeUnit.SECONDS)).isTrue();
+                    return Optional.of(new StoredValue("1"));
+                })
+                .thenReturn(Optional.of(new StoredValue("2")));
+        when(valueContentStore.attach(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(scheduledConfigRepository.save(any(ScheduledConfigEntry.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        final ExecutorService callers = Executors.newSingleThreadExecutor();
+
+        try {
+            final var outdated = CompletableFuture.supplyAsync(() -> underTest.getStoredValue("my_key"), callers);
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            underTest.set(ScheduledConfigEntry.builder().key("MY_KEY").value("2").build());
+
+            assertThat(underTest.getStoredValue("my_key")).map(StoredValue::getRepresentation).contains("2");
+            release.countDown();
+            assertThat(outdated.join()).map(StoredValue::getRepresentation).contains("1");
+            assertThat(coalesced("stored-value")).isZero();
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    private double coalesced(String query) {
+        return meterRegistry.get(ScheduledConfigService.METRIC_COALESCED).tag(ScheduledConfigService.TAG_QUERY, query).counter().count();
+    }
+
+    private JobLease leaseJobs() {
+        final JobLease lease = new JobLease(jobLeases, "job", 1);
+        when(jobLeases.runExclusively(anyString(), any())).thenAnswer(invocation -> {
+            invocation.<Consumer<JobLease>>getArgument(1).accept(lease);
+            return true;
+        });
+        return lease;
+    }
+
+    @Test
+    void cleanup_must_purge_entries_according_to_retention_policies() {
+        final JobLease lease = leaseJobs();
+
+        underTest.cleanup();
+        verify(jobLeases).runExclusively(eq(ScheduledConfigService.JOB_CLEANUP), any());
+        verify(scheduledConfigRetention).purge(lease);
+        verify(configChangeLog).prune();
+        verifyNoInteractions(scheduledConfigRepository);
+    }
+
+    @Test
+    void cleanup_must_be_skipped_without_lease() {
+        when(jobLeases.runExclusively(anyString(), any())).thenReturn(false);
+
+        underTest.cleanup();
+        verifyNoInteractions(scheduledConfigRetention, configChangeLog);
+    }
+
+    @Test
+    void activate_must_run_with_lease_unless_reconciliation_is_pending() {
+        leaseJobs();
+        when(currentValueStore.isReconciliationPending()).thenReturn(true, false);
+
+        underTest.activate();
+        verifyNoInteractions(jobLeases);
+        underTest.activate();
+        verify(jobLeases).runExclusively(eq(ScheduledConfigService.JOB_ACTIVATION), any());
+        verify(currentValueStore, times(2)).activate();
+    }
+
+    @Test
+    void follow_changes_must_evict_keys_changed_by_other_nodes() {
+        when(configChangeLog.poll()).thenReturn(Set.of("my_key"));
+
+        underTest.followChanges();
+        verify(scheduledConfigCache).evict("my_key");
+        verify(configKeyIndex).add("my_key");
+        verify(scheduledConfigActivator).publish(Set.of("my_key"));
+        verifyNoInteractions(currentValueStore);
+    }
+
+    @Test
+    void follow_changes_must_keep_caches_without_changes_of_other_nodes() {
+        when(configChangeLog.poll()).thenReturn(Set.of());
+
+        underTest.followChanges();
+        verifyNoInteractions(scheduledConfigCache, configKeyIndex, scheduledConfigActivator);
     }
 }
\ No newline at end of file
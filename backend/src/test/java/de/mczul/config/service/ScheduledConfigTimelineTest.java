@@ -0,0 +1,96 @@
+package de.mczul.config.service;
+
+import de.mczul.config.model.ScheduledConfigEntry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ScheduledConfigTimeline unit tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+class ScheduledConfigTimelineTest {
+    private static final String KEY = "my_key";
+    private static final ZonedDateTime REFERENCE_TIME = ZonedDateTime.now(ZoneId.of("UTC"));
+
+    private static ScheduledConfigEntry buildEntry(int id, ZonedDateTime validFrom) {
+        return ScheduledConfigEntry.builder()
+                .id(id)
+                .key(KEY)
+                .validFrom(validFrom)
+                .value(String.valueOf(id))
+                .build();
+    }
+
+    @Test
+    void empty_timeline_must_not_resolve_any_entry() {
+        final var timeline = ScheduledConfigTimeline.of(KEY, List.of());
+
+        assertThat(timeline.isEmpty()).isTrue();
+        assertThat(timeline.at(REFERENCE_TIME)).isEmpty();
+    }
+
+    @Test
+    void resolve_latest_entry_not_after_reference_time() {
+        final var first = buildEntry(1, REFERENCE_TIME.minusDays(1));
+        final var second = buildEntry(2, REFERENCE_TIME.minusHours(1));
+        final var third = buildEntry(3, REFERENCE_TIME.plusHours(1));
+        final var timeline = ScheduledConfigTimeline.of(KEY, List.of(third, first, second));
+
+        assertThat(timeline.getEntries()).containsExactly(first, second, third);
+        assertThat(timeline.at(REFERENCE_TIME.minusDays(2))).isEmpty();
+        assertThat(timeline.at(first.getValidFrom())).contains(first);
+        assertThat(timeline.at(REFERENCE_TIME)).contains(second);
+        assertThat(timeline.at(third.getValidFrom().minusNanos(1))).contains(second);
+        assertThat(timeline.at(REFERENCE_TIME.plusDays(1))).contains(third);
+    }
+
+    @Test
+    void compare_valid_from_timestamps_regardless_of_time_zone() {
+        final var first = buildEntry(1, REFERENCE_TIME.minusHours(2).withZoneSameInstant(ZoneId.of("Australia/Sydney")));
+        final var second = buildEntry(2, REFERENCE_TIME.minusHours(1).withZoneSameInstant(ZoneId.of("America/Los_Angeles")));
+        final var timeline = ScheduledConfigTimeline.of(KEY, List.of(second, first));
+
+        assertThat(timeline.at(REFERENCE_TIME.withZoneSameInstant(ZoneId.of("Europe/Berlin")))).contains(second);
+    }
+
+    @Test
+    void detect_entries_valid_from_exactly_the_given_instant() {
+        final var entry = buildEntry(1, REFERENCE_TIME.minusHours(1));
+        final var timeline = ScheduledConfigTimeline.of(KEY, List.of(entry));
+
+        assertThat(timeline.hasEntryValidFrom(entry.getValidFrom().withZoneSameInstant(ZoneId.of("Europe/Berlin")).toInstant())).isTrue();
+        assertThat(timeline.hasEntryValidFrom(entry.getValidFrom().plusNanos(1_000).toInstant())).isFalse();
+        assertThat(timeline.hasEntryValidFrom(REFERENCE_TIME.toInstant())).isFalse();
+    }
+
+    @Test
+    void with_must_insert_in_order_without_modifying_original() {
+        final var first = buildEntry(1, REFERENCE_TIME.minusHours(2));
+        final var third = buildEntry(3, REFERENCE_TIME.plusHours(2));
+        final var original = ScheduledConfigTimeline.of(KEY, List.of(first, third));
+        final var second = buildEntry(2, REFERENCE_TIME.minusHours(1));
+
+        final var updated = original.with(second);
+
+        assertThat(original.getEntries()).containsExactly(first, third);
+        assertThat(updated.getEntries()).containsExactly(first, second, third);
+        assertThat(updated.at(REFERENCE_TIME)).contains(second);
+    }
+
+    @Test
+    void with_must_replace_entry_with_same_valid_from() {
+        final var first = buildEntry(1, REFERENCE_TIME.minusHours(1));
+        final var replacement = buildEntry(2, first.getValidFrom());
+
+        final var updated = ScheduledConfigTimeline.of(KEY, List.of(first)).with(replacement);
+
+        assertThat(updated.getEntries()).containsExactly(replacement);
+    }
+
+}
@@ -0,0 +1,86 @@
+package de.mczul.config.service;
+
+import de.mczul.config.model.ScheduledConfigEntry;
+import de.mczul.config.testing.IntegrationTest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ScheduledConfigWriter last writer wins integration tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+@IntegrationTest
+@TestPropertySource(properties = "de.mczul.config.write.conflict-policy=LAST_WRITER_WINS")
+class ScheduledConfigWriterConflictIT {
+    private static final int THREADS = 16;
+    private static final int WRITES_PER_THREAD = 25;
+    private static final List<String> KEYS = List.of("my.contended.lww.a", "my.contended.lww.b");
+
+    @Autowired
+    private ScheduledConfigWriter underTest;
+    @Autowired
+    private ScheduledConfigService service;
+    @Autowired
+    private ScheduledConfigRepository entryRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void save_every_concurrent_conflicting_write_at_its_own_timestamp() throws InterruptedException {
+        final ZonedDateTime validFrom = ZonedDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusMinutes(1);
+        final Counter moved = meterRegistry.get(ScheduledConfigWriter.METRIC_CONFLICTS).tag(ScheduledConfigWriter.TAG_RESOLUTION, "moved").counter();
+        final double movedBefore = moved.count();
+        final ExecutorService callers = Executors.newFixedThreadPool(THREADS);
+        final List<CompletableFuture<ScheduledConfigEntry>> results = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            for (int write = 0; write < WRITES_PER_THREAD; write++) {
+                final ScheduledConfigEntry entry = ScheduledConfigEntry.builder()
+                        .key(KEYS.get(write % KEYS.size()).toUpperCase(Locale.ENGLISH))
+                        .validFrom(validFrom)
+                        .value(thread + "/" + write)
+                        .author("A")
+                        .build();
+                results.add(CompletableFuture.supplyAsync(() -> underTest.set(entry), callers));
+            }
+        }
+
+        final List<ScheduledConfigEntry> saved = results.stream()
+                .map(result -> result.orTimeout(30, TimeUnit.SECONDS).join())
+                .collect(Collectors.toList());
+        callers.shutdown();
+
+        assertThat(saved).hasSize(THREADS * WRITES_PER_THREAD);
+        assertThat(moved.count() - movedBefore).isEqualTo(saved.size() - KEYS.size());
+        for (String key : KEYS) {
+            final List<ScheduledConfigEntry> savedOfKey = saved.stream()
+                    .filter(entry -> entry.getKey().equals(key))
+                    .collect(Collectors.toList());
+            final List<Instant> validFroms = savedOfKey.stream().map(entry -> entry.getValidFrom().toInstant()).collect(Collectors.toList());
+            assertThat(validFroms).doesNotHaveDuplicates().allSatisfy(instant -> assertThat(instant).isBetween(validFrom.toInstant(), validFrom.plusSeconds(1).toInstant()));
+            assertThat(entryRepository.findTimeline(key)).hasSameSizeAs(savedOfKey);
+            // The latest write supersedes all others
+            final ScheduledConfigEntry latest = savedOfKey.stream().max(Comparator.comparing(entry -> entry.getValidFrom().toInstant())).orElseThrow();
+            assertThat(service.get(key)).map(ScheduledConfigEntry::getValue).contains(latest.getValue());
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+package de.mczul.config.service;
+
+import de.mczul.config.model.ScheduledConfigEntry;
+import de.mczul.config.testing.IntegrationTest;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ScheduledConfigWriter integration tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+@IntegrationTest
+@TestPropertySource(properties = {
+        "de.mczul.config.write.mode=GROUP",
+        "de.mczul.config.write.max-group-delay=50ms"
+})
+class ScheduledConfigWriterIT {
+    private static final int WRITES = 40;
+    private static final int STRESS_THREADS = 16;
+    private static final int STRESS_KEYS = 5;
+    private static final int STRESS_ROUNDS = 10;
+
+    @Autowired
+    private ScheduledConfigWriter underTest;
+    @Autowired
+    private ScheduledConfigService service;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private ScheduledConfigRepository entryRepository;
+
+    @Test
+    void save_concurrent_writes_in_groups_and_attribute_conflicts() throws InterruptedException {
+        final ZonedDateTime validFrom = ZonedDateTime.now().minusMinutes(1);
+        final List<ScheduledConfigEntry> entries = new ArrayList<>();
+        for (int i = 0; i < WRITES; i++) {
+            entries.add(ScheduledConfigEntry.builder()
+                    .key("MY.GROUPED.KEY_" + i)
+                    .validFrom(validFrom)
+                    .value(String.valueOf(i))
+                    .author("A")
+                    .build());
+        }
+        // Conflicts with the first entry, which is likely part of the same group; rejected before the group is saved
+        entries.add(1, entries.get(0).withValue("conflicting"));
+        final DistributionSummary groupSize = meterRegistry.get(ScheduledConfigWriter.METRIC_GROUP_SIZE).summary();
+        final long groupsBefore = groupSize.count();
+
+        final ExecutorService callers = Executors.newFixedThreadPool(entries.size());
+        final List<CompletableFuture<ScheduledConfigEntry>> results = entries.stream()
+                .map(entry -> CompletableFuture.supplyAsync(() -> underTest.set(entry), callers))
+                .collect(Collectors.toList());
+        final List<Throwable> failures = new ArrayList<>();
+        final List<ScheduledConfigEntry> saved = new ArrayList<>();
+        for (CompletableFuture<ScheduledConfigEntry> result : results) {
+            try {
+                saved.add(result.orTimeout(10, TimeUnit.SECONDS).join());
+            } catch (CompletionException e) {
+                failures.add(e.getCause());
+            }
+        }
+        callers.shutdown();
+
+        assertThat(failures).hasSize(1).allSatisfy(failure -> assertThat(failure).isInstanceOf(DuplicateKeyException.class));
+        assertThat(saved).hasSize(WRITES);
+        assertThat(saved).extracting(ScheduledConfigEntry::getId).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(saved).allSatisfy(entry -> assertThat(service.get(entry.getKey())).map(ScheduledConfigEntry::getValue).contains(entry.getValue()));
+        assertThat(groupSize.count() - groupsBefore).as("Writes have been gathered in groups").isLessThan(WRITES + 1);
+    }
+
+    @Test
+    void accept_exactly_one_of_many_concurrent_conflicting_writes() throws InterruptedException {
+        final ZonedDateTime validFrom = ZonedDateTime.now().minusMinutes(1);
+        final ExecutorService callers = Executors.newFixedThreadPool(STRESS_THREADS);
+        final List<CompletableFuture<ScheduledConfigEntry>> results = new ArrayList<>();
+        for (int round = 0; round < STRESS_ROUNDS; round++) {
+            for (int thread = 0; thread < STRESS_THREADS; thread++) {
+                for (int key = 0; key < STRESS_KEYS; key++) {
+                    final ScheduledConfigEntry entry = ScheduledConfigEntry.builder()
+                            .key("MY.CONTENDED.KEY_" + key)
+                            .validFrom(validFrom)
+                            .value(round + "/" + thread)
+                            .author("A")
+                            .build();
+                    results.add(CompletableFuture.supplyAsync(() -> underTest.set(entry), callers));
+                }
+            }
+        }
+
+        final List<Throwable> failures = new ArrayList<>();
+        final List<ScheduledConfigEntry> saved = new ArrayList<>();
+        for (CompletableFuture<ScheduledConfigEntry> result : results) {
+            try {
+                saved.add(result.orTimeout(30, TimeUnit.SECONDS).join());
+            } catch (CompletionException e) {
+                failures.add(e.getCause());
+            }
+        }
+        callers.shutdown();
+
+        assertThat(saved).hasSize(STRESS_KEYS).extracting(ScheduledConfigEntry::getKey).doesNotHaveDuplicates();
+        // All conflicts have been detected before they reached the database
+        assertThat(failures).hasSize(results.size() - STRESS_KEYS).allSatisfy(failure -> assertThat(failure).isInstanceOf(DuplicateKeyException.class));
+        for (ScheduledConfigEntry entry : saved) {
+            assertThat(entryRepository.findTimeline(entry.getKey())).singleElement().satisfies(stored -> assertThat(stored.getValue()).isEqualTo(entry.getValue()));
+        }
+    }
+
+}
@@ -0,0 +1,252 @@
+package de.mczul.config.service;
+
+import de.mczul.config.model.ScheduledConfigEntry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@DisplayName("ScheduledConfigWriter unit tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+@ExtendWith(MockitoExtension.class)
+class ScheduledConfigWriterTest {
+    @Mock
+    private ScheduledConfigService scheduledConfigService;
+    @Mock
+    private ScheduledConfigCache scheduledConfigCache;
+    // Keys without any entry unless stated otherwise
+    @Mock
+    private ScheduledConfigRepository scheduledConfigRepository;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private ScheduledConfigWriter underTest;
+
+    private static final ZonedDateTime VALID_FROM = ZonedDateTime.parse("2020-07-01T12:00:00Z");
+
+    private static ScheduledConfigEntry entry(String key) {
+        return ScheduledConfigEntry.builder()
+                .key(key)
+                .validFrom(VALID_FROM)
+                .value("1")
+                .author("A")
+                .build();
+    }
+
+    private static WriteProperties directProperties(WriteProperties.ConflictPolicy conflictPolicy) {
+        WriteProperties properties = new WriteProperties();
+        properties.setConflictPolicy(conflictPolicy);
+        return properties;
+    }
+
+    private static WriteProperties groupProperties(int maxGroupSize, Duration maxGroupDelay, int queueCapacity) {
+        WriteProperties properties = new WriteProperties();
+        properties.setMode(WriteProperties.Mode.GROUP);
+        properties.setMaxGroupSize(maxGroupSize);
+        properties.setMaxGroupDelay(maxGroupDelay);
+        properties.setQueueCapacity(queueCapacity);
+        properties.setEnqueueTimeout(Duration.ofMillis(10));
+        return properties;
+    }
+
+    private List<CompletableFuture<ScheduledConfigEntry>> setConcurrently(List<ScheduledConfigEntry> entries) {
+        return entries.stream()
+                .map(entry -> CompletableFuture.supplyAsync(() -> underTest.set(entry), callers))
+                .collect(Collectors.toList());
+    }
+
+    private ScheduledConfigWriter writer(WriteProperties properties) {
+        return new ScheduledConfigWriter(scheduledConfigService, scheduledConfigCache, scheduledConfigRepository, properties, meterRegistry);
+    }
+
+    private double conflicts(String resolution) {
+        return meterRegistry.get(ScheduledConfigWriter.METRIC_CONFLICTS).tag(ScheduledConfigWriter.TAG_RESOLUTION, resolution).counter().count();
+    }
+
+    @AfterEach
+    void afterEach() throws InterruptedException {
+        underTest.shutdown();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void save_every_entry_in_its_own_transaction_by_default() {
+        underTest = writer(new WriteProperties());
+        final ScheduledConfigEntry entry = entry("MY_KEY");
+        when(scheduledConfigService.set(any())).thenAnswer(invocation -> invocation.getArgument(0, ScheduledConfigEntry.class).withId(1));
+
+        assertThat(underTest.set(entry).getId()).isEqualTo(1);
+        verify(scheduledConfigService, never()).setAll(anyList());
+        assertThat(meterRegistry.find(ScheduledConfigWriter.METRIC_GROUP_SIZE).meter()).isNull();
+    }
+
+    @Test
+    void save_concurrent_entries_in_one_group() {
+        underTest = writer(groupProperties(3, Duration.ofSeconds(10), 10));
+        when(scheduledConfigService.setAll(anyList())).thenAnswer(invocation -> {
+            List<ScheduledConfigEntry> entries = invocation.getArgument(0);
+            return entries.stream()
+                    .map(entry -> entry.withId(Integer.parseInt(entry.getKey().substring("MY_KEY_".length()))))
+                    .collect(Collectors.toList());
+        });
+        final List<ScheduledConfigEntry> entries = IntStream.range(0, 3).mapToObj(i -> entry("MY_KEY_" + i)).collect(Collectors.toList());
+
+        final List<CompletableFuture<ScheduledConfigEntry>> results = setConcurrently(entries);
+
+        // The group is full long before its delay has passed
+        assertThat(results).allSatisfy(result -> {
+            ScheduledConfigEntry saved = result.orTimeout(5, TimeUnit.SECONDS).join();
+            assertThat(saved.getId()).as("Every caller receives its own entry").isEqualTo(Integer.parseInt(saved.getKey().substring("MY_KEY_".length())));
+        });
+        assertThat(results).extracting(CompletableFuture::join).extracting(ScheduledConfigEntry::getKey).containsExactlyElementsOf(entries.stream().map(ScheduledConfigEntry::getKey).collect(Collectors.toList()));
+        verify(scheduledConfigService, times(1)).setAll(anyList());
+        verify(scheduledConfigService, never()).set(any());
+        assertThat(meterRegistry.get(ScheduledConfigWriter.METRIC_GROUP_SIZE).summary().totalAmount()).isEqualTo(3);
+    }
+
+    @Test
+    void attribute_rejected_groups_to_the_causing_entries() {
+        underTest = writer(groupProperties(3, Duration.ofSeconds(10), 10));
+        final ScheduledConfigEntry valid1 = entry("MY_KEY_1");
+        final ScheduledConfigEntry conflicting = entry("MY_KEY_2");
+        final ScheduledConfigEntry valid2 = entry("MY_KEY_3");
+        when(scheduledConfigService.setAll(anyList())).thenThrow(new DataIntegrityViolationException("Duplicate"));
+        when(scheduledConfigService.set(any())).thenAnswer(invocation -> {
+            ScheduledConfigEntry entry = invocation.getArgument(0);
+            if (entry.getKey().equals(conflicting.getKey())) {
+                throw new DataIntegrityViolationException("Duplicate");
+            }
+            return entry.withId(42);
+        });
+
+        final List<CompletableFuture<ScheduledConfigEntry>> results = setConcurrently(List.of(valid1, conflicting, valid2));
+
+        assertThat(results.get(0).orTimeout(5, TimeUnit.SECONDS).join().getKey()).isEqualTo(valid1.getKey());
+        assertThat(results.get(2).orTimeout(5, TimeUnit.SECONDS).join().getKey()).isEqualTo(valid2.getKey());
+        assertThatExceptionOfType(RuntimeException.class)
+                .isThrownBy(() -> results.get(1).orTimeout(5, TimeUnit.SECONDS).join())
+                .withCauseInstanceOf(DataIntegrityViolationException.class);
+        verify(scheduledConfigService, times(3)).set(any());
+    }
+
+    @Test
+    void reject_entries_while_the_queue_is_full() throws InterruptedException {
+        underTest = writer(groupProperties(1, Duration.ZERO, 1));
+        final CountDownLatch saving = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        when(scheduledConfigService.setAll(anyList())).thenAnswer(invocation -> {
+            saving.countDown();
+            assertThat(release.await(5, TimeUnit.SECONDS)).isTrue();
+            return invocation.getArgument(0);
+        });
+
+        // Blocks the group commit thread
+        final CompletableFuture<ScheduledConfigEntry> first = CompletableFuture.supplyAsync(() -> underTest.set(entry("MY_KEY_1")), callers);
+        assertThat(saving.await(5, TimeUnit.SECONDS)).isTrue();
+        // Occupies the only slot of the queue
+        final CompletableFuture<ScheduledConfigEntry> second = CompletableFuture.supplyAsync(() -> underTest.set(entry("MY_KEY_2")), callers);
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get(ScheduledConfigWriter.METRIC_QUEUE_SIZE).gauge().value() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThatExceptionOfType(RejectedExecutionException.class).isThrownBy(() -> underTest.set(entry("MY_KEY_3")));
+        assertThat(meterRegistry.get(ScheduledConfigWriter.METRIC_REJECTED).counter().count()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(first.orTimeout(5, TimeUnit.SECONDS).join().getKey()).isEqualTo("MY_KEY_1");
+        assertThat(second.orTimeout(5, TimeUnit.SECONDS).join().getKey()).isEqualTo("MY_KEY_2");
+    }
+
+    @Test
+    void keep_committing_groups_after_an_error() {
+        underTest = writer(groupProperties(1, Duration.ZERO, 10));
+        when(scheduledConfigService.setAll(anyList()))
+                .thenThrow(new StackOverflowError())
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertThatExceptionOfType(StackOverflowError.class).isThrownBy(() -> underTest.set(entry("MY_KEY_1")));
+        assertThat(underTest.set(entry("MY_KEY_2")).getKey()).isEqualTo("MY_KEY_2");
+    }
+
+    @Test
+    void wait_for_the_outcome_of_slow_commits() {
+        underTest = writer(groupProperties(1, Duration.ZERO, 10));
+        when(scheduledConfigService.setAll(anyList())).thenAnswer(invocation -> {
+            Thread.sleep(200);
+            return invocation.getArgument(0);
+        });
+
+        assertThat(underTest.set(entry("MY_KEY")).getKey()).isEqualTo("MY_KEY");
+    }
+
+    @Test
+    void reject_entries_that_conflict_with_existing_ones() {
+        underTest = writer(directProperties(WriteProperties.ConflictPolicy.REJECT));
+        final ScheduledConfigEntry existing = entry("my_key").withId(1);
+        when(scheduledConfigCache.cached("my_key")).thenReturn(Optional.of(ScheduledConfigTimeline.of("my_key", List.of(existing))));
+
+        assertThatExceptionOfType(DuplicateKeyException.class).isThrownBy(() -> underTest.set(entry("MY_KEY")));
+        verifyNoInteractions(scheduledConfigService, scheduledConfigRepository);
+        assertThat(conflicts("rejected")).isEqualTo(1);
+    }
+
+    @Test
+    void move_entries_that_conflict_with_existing_ones_to_the_next_free_microsecond() {
+        underTest = writer(directProperties(WriteProperties.ConflictPolicy.LAST_WRITER_WINS));
+        // Probed instead of loading the timeline, which has not been cached
+        when(scheduledConfigRepository.findValidFromsSince(eq("my_key"), eq(VALID_FROM), any())).thenReturn(List.of(VALID_FROM, VALID_FROM.plusNanos(1_000)));
+        when(scheduledConfigService.set(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        final ScheduledConfigEntry saved = underTest.set(entry("MY_KEY").withValidFrom(VALID_FROM.plusNanos(10)));
+
+        assertThat(saved.getValidFrom()).isEqualTo(VALID_FROM.plusNanos(2_000));
+        assertThat(conflicts("moved")).isEqualTo(1);
+        verify(scheduledConfigRepository, times(1)).findValidFromsSince(any(), any(), any());
+        verify(scheduledConfigCache, never()).timeline(any());
+    }
+
+    @Test
+    void resolve_conflicts_within_a_group() {
+        underTest = writer(groupProperties(3, Duration.ofSeconds(10), 10));
+        when(scheduledConfigService.setAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        final List<CompletableFuture<ScheduledConfigEntry>> results = setConcurrently(List.of(entry("MY_KEY"), entry("my_key"), entry("MY_OTHER_KEY")));
+
+        final List<Throwable> failures = results.stream()
+                .map(result -> result.orTimeout(5, TimeUnit.SECONDS).handle((saved, failure) -> failure))
+                .map(CompletableFuture::join)
+                .filter(failure -> failure != null)
+                .collect(Collectors.toList());
+        assertThat(failures).singleElement().satisfies(failure -> assertThat(failure).hasCauseInstanceOf(DuplicateKeyException.class));
+        verify(scheduledConfigService).setAll(argThat(entries -> entries.size() == 2));
+    }
+
+}
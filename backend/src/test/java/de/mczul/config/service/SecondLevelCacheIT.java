@@ -0,0 +1,92 @@
+package de.mczul.config.service;
+
+import de.mczul.config.model.ScheduledConfigEntry;
+import de.mczul.config.testing.IntegrationTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.ZonedDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@DisplayName("Second-level cache integration tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+@IntegrationTest
+class SecondLevelCacheIT {
+    private static final String KEY = "MY_CACHED_KEY";
+    private static final String ENTITY_REGION = ScheduledConfigEntry.class.getName();
+
+    @Autowired
+    private ScheduledConfigService service;
+    @Autowired
+    private ScheduledConfigRepository entryRepository;
+    @Autowired
+    private CurrentValueStore currentValueStore;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void beforeEach() {
+        entryRepository.deleteAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    private ScheduledConfigEntry set(String value) {
+        return service.set(ScheduledConfigEntry.builder()
+                .key(KEY)
+                .validFrom(ZonedDateTime.now().minusMinutes(1))
+                .value(value)
+                .author("A")
+                .build());
+    }
+
+    @Test
+    void serve_repeated_lookups_by_id_from_entity_region() {
+        final ScheduledConfigEntry saved = set("1");
+
+        assertThat(entryRepository.findById(saved.getId())).contains(saved);
+        assertThat(entryRepository.findById(saved.getId())).contains(saved);
+        // Activations write the current_value table only and must not evict cached entries
+        currentValueStore.activate();
+        assertThat(entryRepository.findById(saved.getId())).contains(saved);
+
+        final CacheRegionStatistics region = statistics.getDomainDataRegionStatistics(ENTITY_REGION);
+        assertThat(region.getMissCount()).isEqualTo(1);
+        assertThat(region.getHitCount()).isEqualTo(2);
+        assertThat(meterRegistry.get(CacheRegionMetrics.METRIC_HIT_RATIO).tag(CacheRegionMetrics.TAG_REGION, ENTITY_REGION).gauge().value())
+                .isCloseTo(2 / 3d, within(0.001));
+    }
+
+    @Test
+    void invalidate_cached_history_on_new_entry() {
+        final ScheduledConfigEntry first = set("1");
+        final String key = first.getKey();
+        final ZonedDateTime limit = ZonedDateTime.now().plusDays(1);
+
+        assertThat(entryRepository.findHistory(key, limit)).containsExactly(first);
+        assertThat(entryRepository.findHistory(key, limit)).containsExactly(first);
+        final CacheRegionStatistics region = statistics.getQueryRegionStatistics(ScheduledConfigRepository.HISTORY_CACHE_REGION);
+        assertThat(region.getHitCount()).isEqualTo(1);
+
+        final ScheduledConfigEntry second = set("2");
+
+        assertThat(entryRepository.findHistory(key, limit)).containsExactly(second, first);
+        assertThat(region.getHitCount()).isEqualTo(1);
+    }
+
+}
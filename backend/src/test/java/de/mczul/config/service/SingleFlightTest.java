@@ -0,0 +1,109 @@
+package de.mczul.config.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+@DisplayName("SingleFlight unit tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+class SingleFlightTest {
+    private final Counter coalesced = new SimpleMeterRegistry().counter("coalesced");
+    private final SingleFlight<String, String> underTest = new SingleFlight<>(coalesced);
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void afterEach() {
+        callers.shutdownNow();
+    }
+
+    private void awaitCoalesced(int expected) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (coalesced.count() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void load_sequential_calls_separately() {
+        final AtomicInteger loads = new AtomicInteger();
+
+        assertThat(underTest.load("a", key -> key + loads.incrementAndGet())).isEqualTo("a1");
+        assertThat(underTest.load("a", key -> key + loads.incrementAndGet())).isEqualTo("a2");
+        assertThat(coalesced.count()).isZero();
+    }
+
+    @Test
+    void pass_failures_on_to_all_waiting_callers() throws InterruptedException {
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> underTest.load("a", key -> {
+            loading.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("Database unavailable");
+        }), callers);
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        final CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> underTest.load("a", key -> "unexpected"), callers);
+        // Lookups of other keys are not affected
+        assertThat(underTest.load("b", key -> key)).isEqualTo("b");
+        awaitCoalesced(1);
+        release.countDown();
+
+        for (CompletableFuture<String> caller : List.of(leader, follower)) {
+            assertThatExceptionOfType(RuntimeException.class)
+                    .isThrownBy(caller::join)
+                    .withCauseInstanceOf(IllegalStateException.class);
+        }
+        assertThat(coalesced.count()).isEqualTo(1);
+        // Failed loads are not kept
+        assertThat(underTest.load("a", key -> key)).isEqualTo("a");
+    }
+
+    @Test
+    void pass_errors_on_to_waiting_callers() throws InterruptedException {
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> underTest.load("a", key -> {
+            loading.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new NoClassDefFoundError("Missing driver");
+        }), callers);
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        final CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> underTest.load("a", key -> "unexpected"), callers);
+        awaitCoalesced(1);
+        release.countDown();
+
+        // Completed instead of waiting forever
+        assertThatExceptionOfType(ExecutionException.class)
+                .isThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+                .withCauseInstanceOf(NoClassDefFoundError.class);
+        assertThatExceptionOfType(ExecutionException.class)
+                .isThrownBy(() -> leader.get(5, TimeUnit.SECONDS))
+                .withCauseInstanceOf(NoClassDefFoundError.class);
+        assertThat(underTest.load("a", key -> key)).isEqualTo("a");
+    }
+
+}
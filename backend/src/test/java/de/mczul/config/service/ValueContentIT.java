@@ -0,0 +1,167 @@
+package de.mczul.config.service;
+
+import de.mczul.config.model.ConfigValue;
+import de.mczul.config.model.ScheduledConfigEntry;
+import de.mczul.config.model.StoredValue;
+import de.mczul.config.model.ValueContent;
+import de.mczul.config.testing.IntegrationTest;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Value content integration tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+@IntegrationTest
+class ValueContentIT {
+    private static final String LARGE_VALUE = "{\"feature\":\"enabled\"}".repeat(1_000);
+
+    @Autowired
+    private ScheduledConfigService service;
+    @Autowired
+    private ScheduledConfigRepository entryRepository;
+    @Autowired
+    private CurrentValueStore currentValues;
+    @Autowired
+    private ValueContentMigration migration;
+    @Autowired
+    private ValueContentStore underTest;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private static ScheduledConfigEntry entry(String key, ZonedDateTime validFrom, String value) {
+        return ScheduledConfigEntry.builder()
+                .key(key)
+                .validFrom(validFrom)
+                .value(value)
+                .created(ZonedDateTime.now())
+                .author("A")
+                .build();
+    }
+
+    private List<String> hashes(String normalizedKey) {
+        return jdbcTemplate.queryForList("SELECT value_hash FROM config.scheduled_config WHERE normalized_key = ? ORDER BY valid_from", String.class, normalizedKey);
+    }
+
+    private int inlineValues(String normalizedKey) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM config.scheduled_config WHERE normalized_key = ? AND value IS NOT NULL", Integer.class, normalizedKey);
+    }
+
+    @Test
+    void store_identical_values_of_versions_and_keys_once() {
+        final ZonedDateTime now = ZonedDateTime.now();
+        service.setAll(List.of(
+                entry("MY.TOGGLED.FLAG", now.minusHours(3), LARGE_VALUE),
+                entry("MY.TOGGLED.FLAG", now.minusHours(2), "off"),
+                entry("MY.TOGGLED.FLAG", now.minusHours(1), LARGE_VALUE),
+                entry("MY.OTHER.FLAG", now.minusHours(1), LARGE_VALUE),
+                entry("MY.NULL.FLAG", now.minusHours(1), null)
+        ));
+
+        final String hash = ValueContent.hash(LARGE_VALUE);
+        assertThat(hashes("my.toggled.flag")).containsExactly(hash, ValueContent.hash("off"), hash);
+        assertThat(hashes("my.other.flag")).containsExactly(hash);
+        assertThat(hashes("my.null.flag")).containsOnlyNulls();
+        assertThat(inlineValues("my.toggled.flag")).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM config.value_content WHERE hash = ?", Integer.class, hash)).isOne();
+        // Stored compressed, since the value exceeds the compression threshold
+        assertThat(jdbcTemplate.queryForObject("SELECT CAST(value AS VARCHAR) FROM config.value_content WHERE hash = ?", String.class, hash)).startsWith("\u0001gzip:");
+
+        assertThat(service.get("MY.TOGGLED.FLAG")).map(ScheduledConfigEntry::getValue).contains(LARGE_VALUE);
+        assertThat(service.get("MY.TOGGLED.FLAG", now.minusMinutes(90))).map(ScheduledConfigEntry::getValue).contains("off");
+        assertThat(service.getValue("MY.OTHER.FLAG")).map(ConfigValue::getValue).contains(LARGE_VALUE);
+        assertThat(service.get("MY.NULL.FLAG")).map(ScheduledConfigEntry::getValue).isEmpty();
+        assertThat(entryRepository.findTimeline("my.toggled.flag")).extracting(ScheduledConfigEntry::getValue).containsExactly(LARGE_VALUE, "off", LARGE_VALUE);
+        assertThat(service.getStoredValue("MY.OTHER.FLAG")).hasValueSatisfying(stored -> {
+            assertThat(stored.getHash()).isEqualTo(hash);
+            assertThat(stored.decode()).isEqualTo(LARGE_VALUE);
+        });
+    }
+
+    @Test
+    void migrate_inline_values_while_they_remain_readable() {
+        final String key = "my.migrated.key";
+        final ZonedDateTime now = ZonedDateTime.now();
+        // Saved without the content store, hence like rows written before values were deduplicated
+        entryRepository.save(entry(key, now.minusHours(2), LARGE_VALUE));
+        entryRepository.save(entry(key, now.minusHours(1), "current"));
+        currentValues.refresh(key);
+        assertThat(inlineValues(key)).isEqualTo(2);
+        assertThat(service.getValue(key)).map(ConfigValue::getValue).contains("current");
+
+        for (int i = 0; i < 10 && inlineValues(key) > 0; i++) {
+            migration.migrateChunk();
+        }
+
+        assertThat(inlineValues(key)).isZero();
+        assertThat(hashes(key)).containsExactly(ValueContent.hash(LARGE_VALUE), ValueContent.hash("current"));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM config.current_value WHERE key = ? AND value IS NULL AND value_hash = ?", Integer.class, key, ValueContent.hash("current"))).isOne();
+        assertThat(entryRepository.findTimeline(key)).extracting(ScheduledConfigEntry::getValue).containsExactly(LARGE_VALUE, "current");
+        assertThat(service.getValue(key)).map(ConfigValue::getValue).contains("current");
+        assertThat(service.getStoredValue(key)).map(StoredValue::getHash).contains(ValueContent.hash("current"));
+    }
+
+    @Test
+    void purge_contents_that_have_not_been_used_within_grace_period() {
+        final ZonedDateTime now = ZonedDateTime.now();
+        service.set(entry("MY.REFERENCED.KEY", now.minusHours(1), "referenced"));
+        final Timestamp expired = Timestamp.from(Instant.now().minus(ValueContentStore.UNUSED_GRACE_PERIOD).minusSeconds(60));
+        jdbcTemplate.update("INSERT INTO config.value_content (hash, value, last_used) VALUES ('unused', 'x', ?), ('recent', 'y', ?)", expired, Timestamp.from(Instant.now()));
+        jdbcTemplate.update("UPDATE config.value_content SET last_used = ? WHERE hash = ?", expired, ValueContent.hash("referenced"));
+
+        underTest.purgeUnused();
+
+        assertThat(jdbcTemplate.queryForList("SELECT hash FROM config.value_content WHERE hash IN ('unused', 'recent', ?)", String.class, ValueContent.hash("referenced")))
+                .containsExactlyInAnyOrder("recent", ValueContent.hash("referenced"));
+        assertThat(service.get("MY.REFERENCED.KEY")).map(ScheduledConfigEntry::getValue).contains("referenced");
+        jdbcTemplate.update("DELETE FROM config.value_content WHERE hash = 'recent'");
+    }
+
+    @Test
+    void load_contents_along_with_entries() {
+        final String key = "my.fetched.key";
+        final ZonedDateTime now = ZonedDateTime.now();
+        service.setAll(IntStream.range(0, 20)
+                .mapToObj(i -> entry(key, now.minusHours(i + 1), "value " + i))
+                .collect(Collectors.toList()));
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        final long listed;
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+
+        assertThat(entryRepository.findTimeline(key)).hasSize(20).extracting(ScheduledConfigEntry::getValue).doesNotContainNull();
+        assertThat(entryRepository.findHistories(List.of(key))).hasSize(20).extracting(ScheduledConfigEntry::getValue).doesNotContainNull();
+        listed = statistics.getPrepareStatementCount();
+        transaction.executeWithoutResult(status -> {
+            try (var entries = entryRepository.streamAll(key, null, null)) {
+                assertThat(entries.map(ScheduledConfigEntry::getValue)).hasSize(20).doesNotContainNull();
+            }
+        });
+
+        // One statement per query instead of one per content
+        assertThat(listed).isEqualTo(2);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+}
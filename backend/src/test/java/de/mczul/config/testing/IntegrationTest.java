@@ -17,4 +17,6 @@ import java.lang.annotation.*;
 @Tag(TestTags.INTEGRATION_TEST)
 public @interface IntegrationTest {
     @AliasFor(annotation = ActiveProfiles.class, attribute = "profiles") String[] activeProfiles() default {AppConstants.PROFILES_TEST};
+
+    @AliasFor(annotation = SpringBootTest.class, attribute = "webEnvironment") SpringBootTest.WebEnvironment webEnvironment() default SpringBootTest.WebEnvironment.MOCK;
 }
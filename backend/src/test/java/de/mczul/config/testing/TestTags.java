@@ -3,5 +3,6 @@ package de.mczul.config.testing;
 public class TestTags {
 
     public static final String INTEGRATION_TEST = "integration";
+    public static final String BENCHMARK = "benchmark";
 
 }
@@ -1,11 +1,14 @@
 package de.mczul.config.web;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import de.mczul.config.AppConstants;
 import de.mczul.config.model.*;
 import de.mczul.config.service.ScheduledConfigMapper;
 import de.mczul.config.service.ScheduledConfigRepository;
 import de.mczul.config.testing.IntegrationTest;
 import org.assertj.core.util.Lists;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.exception.DataException;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.DisplayNameGeneration;
 import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
@@ -17,6 +20,7 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -25,9 +29,10 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.sql.SQLException;
 import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
-import java.util.Optional;
 import java.util.Random;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -36,6 +41,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -98,18 +104,83 @@ class DefaultControllerIT {
         @Test
         void handle_query_by_key_with_key_not_existing() throws Exception {
             final String key = "NOT_EXISTING";
-            when(scheduledConfigRepository.findCurrentByKey(key)).thenReturn(Optional.empty());
+            when(scheduledConfigRepository.findTimeline(key.toLowerCase(AppConstants.DEFAULT_LOCALE))).thenReturn(List.of());
             checkNullValueQueryResponse(key);
         }
 
         @Test
         void handle_query_by_key_with_null_value_entry() throws Exception {
             final String key = "KEY_WITH_NULL_VALUE";
-            when(scheduledConfigRepository.findCurrentByKey(key)).thenReturn(
-                    Optional.of(SampleProvider.buildValidEntries().findFirst().orElseThrow().withId(42))
+            when(scheduledConfigRepository.findTimeline(key.toLowerCase(AppConstants.DEFAULT_LOCALE))).thenReturn(
+                    List.of(SampleProvider.buildValidEntries().findFirst().orElseThrow().withId(42))
             );
             checkNullValueQueryResponse(key);
         }
+
+        @Test
+        void handle_bulk_query_with_single_batched_repository_query() throws Exception {
+            final ScheduledConfigEntry entry = ScheduledConfigEntry.builder()
+                    .id(42)
+                    .key("bulk_key_1")
+                    .validFrom(ZonedDateTime.now().minusMinutes(1))
+                    .value("1")
+                    .created(ZonedDateTime.now().minusMinutes(1))
+                    .author("A")
+                    .build();
+            when(scheduledConfigRepository.findTimelines(any())).thenReturn(List.of(entry));
+
+            final MvcResult result = mockMvc
+                    .perform(
+                            post(RestConstants.PATH_PREFIX_API + "/" + RestConstants.PATH_BULK_QUERY)
+                                    .contentType(MediaType.APPLICATION_JSON_VALUE)
+                                    .content(objectMapper.writeValueAsBytes(List.of("BULK_KEY_1", "BULK_KEY_2")))
+                    )
+                    .andExpect(status().isOk())
+                    .andReturn();
+            verify(scheduledConfigRepository).findTimelines(any());
+
+            final ConfigBulkQueryResponse response = objectMapper.readValue(result.getResponse().getContentAsByteArray(), ConfigBulkQueryResponse.class);
+            assertThat(response.getReferenceTime()).isBeforeOrEqualTo(ZonedDateTime.now());
+            assertThat(response.getValues()).extracting(ConfigQueryResponse::getKey).containsExactly("bulk_key_1", "bulk_key_2");
+            assertThat(response.getValues()).extracting(ConfigQueryResponse::getValue).containsExactly("1", null);
+        }
+
+        @Test
+        void handle_query_by_key_with_reference_time() throws Exception {
+            final String key = "key_with_history";
+            final ZonedDateTime now = ZonedDateTime.now();
+            when(scheduledConfigRepository.findTimeline(key)).thenReturn(List.of(
+                    ScheduledConfigEntry.builder().id(1).key(key).validFrom(now.minusDays(2)).value("old").build(),
+                    ScheduledConfigEntry.builder().id(2).key(key).validFrom(now.minusDays(1)).value("current").build()
+            ));
+
+            final MvcResult result = mockMvc
+                    .perform(get(RestConstants.PATH_PREFIX_API + "/" + key)
+                            .param(RestConstants.QUERY_PARAM_REFERENCE_TIME, now.minusHours(36).toOffsetDateTime().toString()))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            final ConfigQueryResponse response = objectMapper.readValue(result.getResponse().getContentAsByteArray(), ConfigQueryResponse.class);
+            assertThat(response.getValue()).isEqualTo("old");
+            assertThat(response.getReferenceTime()).isEqualTo(now.minusHours(36).withZoneSameInstant(response.getReferenceTime().getZone()));
+        }
+
+        @Test
+        void reject_bulk_query_without_keys() throws Exception {
+            mockMvc.perform(
+                    post(RestConstants.PATH_PREFIX_API + "/" + RestConstants.PATH_BULK_QUERY)
+                            .contentType(MediaType.APPLICATION_JSON_VALUE)
+                            .content("[]")
+            ).andExpect(status().isBadRequest());
+        }
+
+        @Test
+        void reject_prefix_query_with_page_size_above_maximum() throws Exception {
+            mockMvc.perform(
+                    get(RestConstants.PATH_PREFIX_API + "/" + RestConstants.PATH_PREFIX_QUERY)
+                            .param(RestConstants.QUERY_PARAM_PAGE_SIZE, String.valueOf(RestConstants.MAX_PAGE_SIZE + 1))
+            ).andExpect(status().isBadRequest());
+        }
     }
 
     @Nested
@@ -142,6 +213,15 @@ class DefaultControllerIT {
             assertThat(dtoArray).as("Returned records did not match expected list").containsExactlyInAnyOrder(expectedDtos.toArray(ScheduledConfigDto[]::new));
         }
 
+        @Test
+        void reject_slice_with_page_size_above_maximum() throws Exception {
+            mockMvc.perform(
+                    get(RestConstants.PATH_PREFIX_API + "/" + RestConstants.PATH_SLICE)
+                            .param(RestConstants.QUERY_PARAM_PAGE_SIZE, String.valueOf(RestConstants.MAX_PAGE_SIZE + 1))
+            ).andExpect(status().isBadRequest());
+            verify(scheduledConfigRepository, never()).findLatestSlice(any());
+        }
+
         @Test
         void must_save_valid_samples() throws Exception {
             final ScheduledConfigDto sample = ScheduledConfigDto.builder()
@@ -175,6 +255,81 @@ class DefaultControllerIT {
             );
         }
 
+        @Test
+        void must_answer_conflicting_samples_with_conflict() throws Exception {
+            final ScheduledConfigDto sample = ScheduledConfigDto.builder()
+                    .key("FOO.CONFLICT")
+                    .validFrom(ZonedDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusMinutes(1))
+                    .value("BAR")
+                    .created(ZonedDateTime.now().minusMinutes(1))
+                    .author("john.doe")
+                    .build();
+            final ScheduledConfigEntry existing = scheduledConfigMapper.toEntry(sample.withId(42).withKey("foo.conflict"));
+            when(scheduledConfigRepository.findTimeline("foo.conflict")).thenReturn(List.of(existing));
+
+            final MvcResult result = mockMvc.perform(
+                    post(RestConstants.PATH_PREFIX_API)
+                            .contentType(MediaType.APPLICATION_JSON_VALUE)
+                            .content(objectMapper.writeValueAsBytes(sample))
+            )
+                    .andExpect(status().isConflict())
+                    .andReturn();
+
+            final ValidationErrorResponse errorResponse = objectMapper.readValue(result.getResponse().getContentAsString(), ValidationErrorResponse.class);
+            assertThat(errorResponse.getViolations()).extracting(Violation::getFieldName).containsExactly("validFrom");
+            verify(scheduledConfigRepository, never()).save(any(ScheduledConfigEntry.class));
+        }
+
+        @Test
+        void must_answer_unique_constraint_violations_with_conflict() throws Exception {
+            final ScheduledConfigDto sample = ScheduledConfigDto.builder()
+                    .key("FOO.RACE")
+                    .validFrom(ZonedDateTime.now().minusMinutes(1))
+                    .value("BAR")
+                    .created(ZonedDateTime.now().minusMinutes(1))
+                    .author("john.doe")
+                    .build();
+            // Raised by the unique constraint for an entry of another node that has not been cached yet
+            when(scheduledConfigRepository.save(any(ScheduledConfigEntry.class))).thenThrow(new DataIntegrityViolationException("could not execute statement",
+                    new ConstraintViolationException("could not execute statement", new SQLException("Unique index or primary key violation", "23505"), null)));
+
+            final MvcResult result = mockMvc.perform(
+                    post(RestConstants.PATH_PREFIX_API)
+                            .contentType(MediaType.APPLICATION_JSON_VALUE)
+                            .content(objectMapper.writeValueAsBytes(sample))
+            )
+                    .andExpect(status().isConflict())
+                    .andReturn();
+
+            final ValidationErrorResponse errorResponse = objectMapper.readValue(result.getResponse().getContentAsString(), ValidationErrorResponse.class);
+            assertThat(errorResponse.getViolations()).extracting(Violation::getFieldName).containsExactly("validFrom");
+        }
+
+        @Test
+        void must_answer_other_integrity_violations_with_bad_request() throws Exception {
+            final ScheduledConfigDto sample = ScheduledConfigDto.builder()
+                    .key("FOO.AUTHOR")
+                    .validFrom(ZonedDateTime.now().minusMinutes(1))
+                    .value("BAR")
+                    .created(ZonedDateTime.now().minusMinutes(1))
+                    .author("john.doe".repeat(11))
+                    .build();
+            // Raised by the database, since the author exceeds its column
+            when(scheduledConfigRepository.save(any(ScheduledConfigEntry.class))).thenThrow(new DataIntegrityViolationException("could not execute statement",
+                    new DataException("could not execute statement", new SQLException("Value too long for column AUTHOR VARCHAR(80)", "22001"))));
+
+            final MvcResult result = mockMvc.perform(
+                    post(RestConstants.PATH_PREFIX_API)
+                            .contentType(MediaType.APPLICATION_JSON_VALUE)
+                            .content(objectMapper.writeValueAsBytes(sample))
+            )
+                    .andExpect(status().isBadRequest())
+                    .andReturn();
+
+            final ValidationErrorResponse errorResponse = objectMapper.readValue(result.getResponse().getContentAsString(), ValidationErrorResponse.class);
+            assertThat(errorResponse.getViolations()).extracting(Violation::getFieldName).doesNotContain("validFrom");
+        }
+
         @Test
         void must_prevent_saving_valid_entry_with_id() throws Exception {
             final ScheduledConfigDto sample = ScheduledConfigDto.builder()
@@ -1,18 +1,29 @@
 package de.mczul.config.web;
 
 import de.mczul.config.AppConstants;
+import de.mczul.config.model.ConfigBulkQueryResponse;
+import de.mczul.config.model.ConfigPrefixQueryResponse;
 import de.mczul.config.model.ConfigQueryResponse;
+import de.mczul.config.model.ConfigValue;
+import de.mczul.config.model.ImportReport;
 import de.mczul.config.model.SampleProvider;
 import de.mczul.config.model.ScheduledConfigDto;
 import de.mczul.config.model.ScheduledConfigEntry;
+import de.mczul.config.model.ScheduledConfigSliceResponse;
+import de.mczul.config.model.StoredValue;
+import de.mczul.config.service.ExportFormat;
+import de.mczul.config.service.ScheduledConfigExporter;
+import de.mczul.config.service.ScheduledConfigImporter;
 import de.mczul.config.service.ScheduledConfigMapper;
 import de.mczul.config.service.ScheduledConfigRepository;
 import de.mczul.config.service.ScheduledConfigService;
+import de.mczul.config.service.ScheduledConfigWriter;
 import org.assertj.core.util.Lists;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
@@ -20,18 +31,38 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @DisplayName("DefaultController unit tests")
 @DisplayNameGeneration(ReplaceUnderscores.class)
@@ -43,6 +74,12 @@ public class DefaultControllerTest {
     private ScheduledConfigRepository scheduledConfigRepository;
     @Mock
     private ScheduledConfigService scheduledConfigService;
+    @Mock
+    private ScheduledConfigWriter scheduledConfigWriter;
+    @Mock
+    private ScheduledConfigImporter scheduledConfigImporter;
+    @Mock
+    private ScheduledConfigExporter scheduledConfigExporter;
 
     @InjectMocks
     private DefaultController underTest;
@@ -67,13 +104,14 @@ public class DefaultControllerTest {
                     .build();
 
             // Prepare service response
-            when(scheduledConfigService.get(expectedEntry.getKey())).thenReturn(Optional.of(expectedEntry));
+            when(scheduledConfigService.getValue(expectedEntry.getKey())).thenReturn(Optional.of(ConfigValue.of(expectedEntry)));
 
             // Execute call
-            ResponseEntity<ConfigQueryResponse> responseEntity = underTest.queryByKey(expectedEntry.getKey());
+            ResponseEntity<ConfigQueryResponse> responseEntity = underTest.queryByKey(expectedEntry.getKey(), null);
 
             // Verify usage of service
-            verify(scheduledConfigService, times(1)).get(expectedEntry.getKey());
+            verify(scheduledConfigService, times(1)).getValue(expectedEntry.getKey());
+            verify(scheduledConfigService, never()).get(expectedEntry.getKey());
 
             // ResponseEntity
             assertThat(responseEntity).isNotNull();
@@ -92,13 +130,13 @@ public class DefaultControllerTest {
             final String key = "DOES_NOT_EXIST";
 
             // Prepare service response
-            when(scheduledConfigService.get(any())).thenReturn(Optional.empty());
+            when(scheduledConfigService.getValue(any())).thenReturn(Optional.empty());
 
             // Execute call
-            ResponseEntity<ConfigQueryResponse> responseEntity = underTest.queryByKey(key);
+            ResponseEntity<ConfigQueryResponse> responseEntity = underTest.queryByKey(key, null);
 
             // Verify usage of service
-            verify(scheduledConfigService, times(1)).get(key);
+            verify(scheduledConfigService, times(1)).getValue(key);
 
             // ResponseEntity
             assertThat(responseEntity).isNotNull();
@@ -111,6 +149,153 @@ public class DefaultControllerTest {
             assertThat(response.getReferenceTime()).isBetween(ZonedDateTime.now().minusSeconds(1), ZonedDateTime.now());
             assertThat(response.getValue()).isNull();
         }
+
+        @Test
+        void query_by_key_with_reference_time() {
+            final ZonedDateTime referenceTime = ZonedDateTime.now().minusDays(7);
+            final ScheduledConfigEntry expectedEntry = ScheduledConfigEntry.builder()
+                    .id(42)
+                    .key("my_key")
+                    .validFrom(referenceTime.minusHours(1))
+                    .value("42")
+                    .build();
+            when(scheduledConfigService.get(expectedEntry.getKey(), referenceTime)).thenReturn(Optional.of(expectedEntry));
+
+            ResponseEntity<ConfigQueryResponse> responseEntity = underTest.queryByKey(expectedEntry.getKey(), referenceTime);
+
+            verify(scheduledConfigService, times(1)).get(expectedEntry.getKey(), referenceTime);
+            verify(scheduledConfigService, never()).getValue(expectedEntry.getKey());
+            ConfigQueryResponse response = responseEntity.getBody();
+            assertThat(response).isNotNull();
+            assertThat(response.getValue()).isEqualTo(expectedEntry.getValue());
+            assertThat(response.getReferenceTime()).isEqualTo(referenceTime);
+        }
+
+        @Test
+        void query_by_keys_with_shared_reference_time() {
+            final ScheduledConfigEntry existingEntry = ScheduledConfigEntry.builder()
+                    .id(42)
+                    .key("my_key")
+                    .validFrom(ZonedDateTime.now().minusHours(1))
+                    .value("42")
+                    .created(ZonedDateTime.now().minusHours(12))
+                    .build();
+            final List<String> keys = List.of("MY_KEY", "DOES_NOT_EXIST", "my_key");
+
+            when(scheduledConfigService.getAll(eq(keys), any(ZonedDateTime.class))).thenReturn(Map.of(existingEntry.getKey(), existingEntry));
+
+            ResponseEntity<ConfigBulkQueryResponse> responseEntity = underTest.queryByKeys(keys, null);
+
+            verify(scheduledConfigService, times(1)).getAll(eq(keys), any(ZonedDateTime.class));
+            assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+            ConfigBulkQueryResponse response = responseEntity.getBody();
+            assertThat(response).isNotNull();
+            assertThat(response.getReferenceTime()).isBetween(ZonedDateTime.now().minusSeconds(1), ZonedDateTime.now());
+            assertThat(response.getValues())
+                    .as("Keys must be normalized and deduplicated in request order")
+                    .extracting(ConfigQueryResponse::getKey)
+                    .containsExactly("my_key", "does_not_exist");
+            assertThat(response.getValues())
+                    .extracting(ConfigQueryResponse::getValue)
+                    .containsExactly(existingEntry.getValue(), null);
+            assertThat(response.getValues())
+                    .extracting(ConfigQueryResponse::getReferenceTime)
+                    .containsOnly(response.getReferenceTime());
+        }
+
+        @Test
+        void query_by_prefix_with_continuation_cursor() {
+            final List<ScheduledConfigEntry> entries = List.of(
+                    ScheduledConfigEntry.builder().id(1).key("payment.fee").value("1").build(),
+                    ScheduledConfigEntry.builder().id(2).key("payment.gateway").value("2").build()
+            );
+            when(scheduledConfigService.getByPrefix(eq("PAYMENT."), eq(null), eq(2), any(ZonedDateTime.class))).thenReturn(entries);
+            when(scheduledConfigService.getByPrefix(eq("PAYMENT."), eq("payment.gateway"), eq(2), any(ZonedDateTime.class))).thenReturn(List.of());
+
+            ConfigPrefixQueryResponse first = underTest.queryByPrefix("PAYMENT.", 2, null, null).getBody();
+            assertThat(first).isNotNull();
+            assertThat(first.getPrefix()).isEqualTo("payment.");
+            assertThat(first.getValues()).extracting(ConfigQueryResponse::getKey).containsExactly("payment.fee", "payment.gateway");
+            assertThat(first.getNextCursor()).isNotBlank();
+
+            ConfigPrefixQueryResponse second = underTest.queryByPrefix("PAYMENT.", 2, first.getNextCursor(), null).getBody();
+            assertThat(second).isNotNull();
+            assertThat(second.getValues()).isEmpty();
+            assertThat(second.getNextCursor()).isNull();
+        }
+
+        @Test
+        void query_by_prefix_with_malformed_cursor() {
+            assertThatExceptionOfType(ResponseStatusException.class)
+                    .isThrownBy(() -> underTest.queryByPrefix("payment.", 2, "%%%", null))
+                    .satisfies(e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST));
+        }
+
+        @Test
+        void query_value_passes_compressed_value_on_as_stored() {
+            final StoredValue stored = StoredValue.encode("x".repeat(10_000), 4_096);
+            when(scheduledConfigService.getStoredValue("MY_KEY")).thenReturn(Optional.of(stored));
+
+            ResponseEntity<byte[]> response = underTest.queryValueByKey("MY_KEY", "deflate, gzip;q=0.8");
+
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+            assertThat(response.getHeaders().getFirst(HttpHeaders.VARY)).isEqualTo(HttpHeaders.ACCEPT_ENCODING);
+            assertThat(response.getBody()).isEqualTo(stored.getCompressed());
+        }
+
+        @Test
+        void query_value_decompresses_if_gzip_not_accepted() {
+            final String value = "x".repeat(10_000);
+            when(scheduledConfigService.getStoredValue("MY_KEY")).thenReturn(Optional.of(StoredValue.encode(value, 4_096)));
+
+            ResponseEntity<byte[]> response = underTest.queryValueByKey("MY_KEY", null);
+
+            assertThat(response.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+            assertThat(response.getBody()).isEqualTo(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Test
+        void query_value_of_missing_or_null_entry() {
+            when(scheduledConfigService.getStoredValue("MY_KEY")).thenReturn(Optional.empty());
+            when(scheduledConfigService.getStoredValue("MY_NULL_KEY")).thenReturn(Optional.of(new StoredValue(null)));
+
+            assertThat(underTest.queryValueByKey("MY_KEY", "gzip").getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+            assertThat(underTest.queryValueByKey("MY_NULL_KEY", "gzip").getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        }
+
+        @Test
+        void query_value_answers_not_modified_for_known_content() throws Exception {
+            when(scheduledConfigService.getStoredValue("MY_KEY")).thenReturn(Optional.of(new StoredValue("42", "0123abcd")));
+            final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(underTest).build();
+
+            mockMvc.perform(get("/api/v1/MY_KEY/_value"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, "W/\"0123abcd\""))
+                    .andExpect(content().string("42"));
+            mockMvc.perform(get("/api/v1/MY_KEY/_value").header(HttpHeaders.IF_NONE_MATCH, "W/\"0123abcd\""))
+                    .andExpect(status().isNotModified())
+                    .andExpect(content().bytes(new byte[0]));
+        }
+
+        @ParameterizedTest
+        @CsvSource(delimiter = '|', nullValues = "NULL", value = {
+                "NULL|false",
+                "gzip|true",
+                "GZIP;q=0.5|true",
+                "gzip;q=0|false",
+                "gzip; q=0.000|false",
+                "deflate, br|false",
+                "*|true",
+                "*;q=0|false",
+                "gzip;q=0, *|false",
+                "*, gzip;q=0|false",
+                "identity;q=0, *;q=0.1|true"
+        })
+        void evaluate_accept_encoding(String acceptEncoding, boolean expected) {
+            assertThat(DefaultController.acceptsGzip(acceptEncoding)).isEqualTo(expected);
+        }
     }
 
     @Nested
@@ -123,7 +308,7 @@ public class DefaultControllerTest {
             final var argCaptor = ArgumentCaptor.forClass(Pageable.class);
 
             when(scheduledConfigRepository.findAllLatest(any(Pageable.class))).thenReturn(new PageImpl<>(Lists.emptyList()));
-            underTest.getScheduledConfigs(pageIndex, pageSize);
+            underTest.getScheduledConfigs(pageIndex, pageSize, null);
             verify(scheduledConfigRepository).findAllLatest(argCaptor.capture());
 
             assertThat(argCaptor.getValue().getPageNumber())
@@ -137,7 +322,7 @@ public class DefaultControllerTest {
         @Test
         void get_scheduled_configs_with_empty_database() {
             when(scheduledConfigRepository.findAllLatest(any(Pageable.class))).thenReturn(Page.empty());
-            ResponseEntity<List<ScheduledConfigDto>> responseEntity = underTest.getScheduledConfigs(12, 34);
+            ResponseEntity<List<ScheduledConfigDto>> responseEntity = underTest.getScheduledConfigs(12, 34, null);
             verify(scheduledConfigRepository, times(1)).findAllLatest(any(Pageable.class));
 
             assertThat(responseEntity).isNotNull();
@@ -149,10 +334,13 @@ public class DefaultControllerTest {
         void get_scheduled_configs_with_multiple_records() {
             var samples = SampleProvider.buildValidEntries().collect(Collectors.toUnmodifiableList());
             when(scheduledConfigRepository.findAllLatest(any(Pageable.class))).thenReturn(new PageImpl<>(samples));
-            when(scheduledConfigMapper.toDto(any())).thenAnswer((invocation) -> SampleProvider.convertToDto(invocation.getArgument(0), new Random().nextInt(10)));
-            ResponseEntity<List<ScheduledConfigDto>> responseEntity = underTest.getScheduledConfigs(0, 100);
+            when(scheduledConfigMapper.toDtos(samples, 3)).thenAnswer((invocation) -> samples.stream()
+                    .map(entry -> SampleProvider.convertToDto(entry, new Random().nextInt(10)))
+                    .collect(Collectors.toUnmodifiableList()));
+            ResponseEntity<List<ScheduledConfigDto>> responseEntity = underTest.getScheduledConfigs(0, 100, 3);
             verify(scheduledConfigRepository, times(1)).findAllLatest(any(Pageable.class));
-            verify(scheduledConfigMapper, times(samples.size())).toDto(any());
+            verify(scheduledConfigMapper, times(1)).toDtos(samples, 3);
+            verify(scheduledConfigMapper, never()).toDto(any());
 
             assertThat(responseEntity).isNotNull();
             assertThat(responseEntity.getStatusCode().is2xxSuccessful()).isTrue();
@@ -168,19 +356,89 @@ public class DefaultControllerTest {
             var entry = SampleProvider.convertToDomain(sample);
 
             when(scheduledConfigMapper.toEntry(sample)).thenReturn(entry);
-            when(scheduledConfigService.set(entry)).thenReturn(entry.withId(expectedId));
-            when(scheduledConfigMapper.toDto(entry.withId(expectedId))).thenReturn(sample.withId(expectedId));
+            when(scheduledConfigWriter.set(entry)).thenReturn(entry.withId(expectedId));
+            when(scheduledConfigMapper.toDto(entry.withId(expectedId), null)).thenReturn(sample.withId(expectedId));
 
-            ResponseEntity<ScheduledConfigDto> response = underTest.postScheduledConfig(sample);
+            ResponseEntity<ScheduledConfigDto> response = underTest.postScheduledConfig(sample, null);
 
             verify(scheduledConfigMapper, times(1)).toEntry(any(ScheduledConfigDto.class));
-            verify(scheduledConfigService, times(1)).set(any(ScheduledConfigEntry.class));
-            verify(scheduledConfigMapper, times(1)).toDto(any(ScheduledConfigEntry.class));
+            verify(scheduledConfigWriter, times(1)).set(any(ScheduledConfigEntry.class));
+            verify(scheduledConfigMapper, times(1)).toDto(any(ScheduledConfigEntry.class), isNull());
 
             assertThat(response).isNotNull();
             assertThat(response.getStatusCode()).isEqualByComparingTo(HttpStatus.CREATED);
             assertThat(response.getBody()).isNotNull();
             assertThat(response.getBody().getId()).isEqualTo(expectedId);
         }
+    
+
+        @Test
+        void get_scheduled_config_slice_with_continuation_cursor() {
+            final var validFrom = ZonedDateTime.parse("2020-07-01T12:00:00Z");
+            final var entries = List.of(
+                    ScheduledConfigEntry.builder().id(1).key("a").validFrom(validFrom).value("1").build(),
+                    ScheduledConfigEntry.builder().id(2).key("b").validFrom(validFrom).value("2").build()
+            );
+            final var pageRequest = PageRequest.of(0, 2);
+            when(scheduledConfigRepository.findLatestSlice(pageRequest)).thenReturn(new SliceImpl<>(entries, pageRequest, true));
+            when(scheduledConfigRepository.findLatestSliceAfter(eq("b"), any(ZonedDateTime.class), eq(pageRequest))).thenReturn(new SliceImpl<>(List.of(), pageRequest, false));
+
+            ScheduledConfigSliceResponse first = underTest.getScheduledConfigSlice(2, null, null).getBody();
+            assertThat(first).isNotNull();
+            assertThat(first.getNextCursor()).isNotBlank();
+            verify(scheduledConfigMapper).toDtos(entries, null);
+
+            ScheduledConfigSliceResponse second = underTest.getScheduledConfigSlice(2, first.getNextCursor(), null).getBody();
+            final var validFromCaptor = ArgumentCaptor.forClass(ZonedDateTime.class);
+            verify(scheduledConfigRepository).findLatestSliceAfter(eq("b"), validFromCaptor.capture(), eq(pageRequest));
+            assertThat(validFromCaptor.getValue()).isEqualTo(validFrom);
+            assertThat(second).isNotNull();
+            assertThat(second.getNextCursor()).isNull();
+            verify(scheduledConfigRepository, never()).findAllLatest(any());
+        }
+
+        @Test
+        void get_scheduled_config_slice_with_malformed_cursor() {
+            final var cursor = CursorCodec.encode("a", "yesterday");
+            assertThatExceptionOfType(ResponseStatusException.class)
+                    .isThrownBy(() -> underTest.getScheduledConfigSlice(2, cursor, null))
+                    .satisfies(e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST));
+        }
+
+        @Test
+        void import_scheduled_configs_from_request_body() throws IOException {
+            final var report = ImportReport.builder().lines(2).imported(2).build();
+            final var readerCaptor = ArgumentCaptor.forClass(BufferedReader.class);
+            when(scheduledConfigImporter.importEntries(readerCaptor.capture())).thenReturn(report);
+
+            final var body = new ByteArrayInputStream("{}\n{}".getBytes(StandardCharsets.UTF_8));
+            final ResponseEntity<ImportReport> response = underTest.importScheduledConfigs(body);
+
+            assertThat(response.getStatusCode()).isEqualByComparingTo(HttpStatus.OK);
+            assertThat(response.getBody()).isEqualTo(report);
+            assertThat(readerCaptor.getValue().readLine()).isEqualTo("{}");
+        }
+
+        @Test
+        void export_scheduled_configs_as_stream() throws IOException {
+            final var createdFrom = ZonedDateTime.now().minusDays(1);
+            final ResponseEntity<StreamingResponseBody> response = underTest.exportScheduledConfigs("csv", "payment.", createdFrom, null);
+
+            assertThat(response.getStatusCode()).isEqualByComparingTo(HttpStatus.OK);
+            assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.parseMediaType("text/csv"));
+            assertThat(response.getBody()).isNotNull();
+            verifyNoInteractions(scheduledConfigExporter);
+
+            final var target = new ByteArrayOutputStream();
+            response.getBody().writeTo(target);
+            verify(scheduledConfigExporter).export(ExportFormat.CSV, "payment.", createdFrom, null, target);
+        }
+
+        @Test
+        void export_scheduled_configs_with_unsupported_format() {
+            assertThatExceptionOfType(ResponseStatusException.class)
+                    .isThrownBy(() -> underTest.exportScheduledConfigs("xml", "", null, null))
+                    .satisfies(e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST));
+        }
     }
 }
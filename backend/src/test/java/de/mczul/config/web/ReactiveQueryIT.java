@@ -0,0 +1,253 @@
+package de.mczul.config.web;
+
+import de.mczul.config.model.ConfigBulkQueryResponse;
+import de.mczul.config.model.ConfigQueryResponse;
+import de.mczul.config.model.ScheduledConfigEntry;
+import de.mczul.config.model.ValidationErrorResponse;
+import de.mczul.config.model.Violation;
+import de.mczul.config.service.ScheduledConfigService;
+import de.mczul.config.testing.IntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator.ReplaceUnderscores;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DisplayName("Reactive read API integration tests")
+@DisplayNameGeneration(ReplaceUnderscores.class)
+@IntegrationTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = {
+        "de.mczul.config.reactive.enabled=true",
+        "de.mczul.config.reactive.poll-interval=50ms"
+})
+class ReactiveQueryIT {
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private ScheduledConfigService service;
+
+    private WebTestClient client;
+
+    private static ScheduledConfigEntry entry(String key, ZonedDateTime validFrom, String value) {
+        return ScheduledConfigEntry.builder()
+                .key(key)
+                .validFrom(validFrom)
+                .value(value)
+                .created(ZonedDateTime.now())
+                .author("A")
+                .build();
+    }
+
+    private Flux<ConfigQueryResponse> stream(String... keys) {
+        return client.get()
+                .uri(builder -> builder.path("/" + RestConstants.PATH_CHANGES)
+                        .queryParam(RestConstants.QUERY_PARAM_KEY, (Object[]) keys)
+                        .build())
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(ConfigQueryResponse.class)
+                .getResponseBody();
+    }
+
+    @BeforeEach
+    void beforeEach() {
+        client = WebTestClient.bindToServer()
+                .baseUrl("http://localhost:" + port + RestConstants.PATH_PREFIX_REACTIVE_API)
+                .responseTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @Test
+    void query_by_key_at_reference_time() {
+        final ZonedDateTime now = ZonedDateTime.now();
+        service.setAll(List.of(
+                entry("REACTIVE.SINGLE", now.minusHours(2), "past"),
+                entry("REACTIVE.SINGLE", now.minusHours(1), "current"),
+                entry("REACTIVE.SINGLE", now.plusHours(1), "future")
+        ));
+
+        ConfigQueryResponse current = client.get().uri("/REACTIVE.SINGLE")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ConfigQueryResponse.class)
+                .returnResult().getResponseBody();
+        assertThat(current).isNotNull();
+        assertThat(current.getKey()).isEqualTo("reactive.single");
+        assertThat(current.getValue()).isEqualTo("current");
+
+        client.get().uri(builder -> builder.path("/reactive.single")
+                        .queryParam(RestConstants.QUERY_PARAM_REFERENCE_TIME, now.minusMinutes(90).toOffsetDateTime().toString())
+                        .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.key").isEqualTo("reactive.single")
+                .jsonPath("$.value").isEqualTo("past")
+                .jsonPath("$.referenceTime").isNotEmpty();
+
+        client.get().uri("/reactive.unknown")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.key").isEqualTo("reactive.unknown")
+                .jsonPath("$.value").doesNotExist();
+    }
+
+    @Test
+    void query_by_keys_in_requested_order() {
+        final ZonedDateTime now = ZonedDateTime.now();
+        service.setAll(List.of(
+                entry("reactive.bulk.a", now.minusHours(1), "A"),
+                entry("reactive.bulk.b", now.minusHours(1), "B".repeat(10_000))
+        ));
+
+        ConfigBulkQueryResponse response = client.post().uri("/" + RestConstants.PATH_BULK_QUERY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of("REACTIVE.BULK.B", "reactive.bulk.missing", "reactive.bulk.a", "reactive.bulk.b"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ConfigBulkQueryResponse.class)
+                .returnResult().getResponseBody();
+
+        assertThat(response).isNotNull();
+        assertThat(response.getValues())
+                .extracting(ConfigQueryResponse::getKey, ConfigQueryResponse::getValue)
+                .containsExactly(
+                        tuple("reactive.bulk.b", "B".repeat(10_000)),
+                        tuple("reactive.bulk.missing", null),
+                        tuple("reactive.bulk.a", "A")
+                );
+        assertThat(response.getValues()).allSatisfy(value -> assertThat(value.getReferenceTime()).isEqualTo(response.getReferenceTime()));
+    }
+
+    @Test
+    void query_more_keys_than_fit_into_a_batch() {
+        final ZonedDateTime now = ZonedDateTime.now();
+        service.set(entry("reactive.batch.0", now.minusHours(1), "first"));
+        service.set(entry("reactive.batch.600", now.minusHours(1), "last"));
+        final List<String> keys = IntStream.rangeClosed(0, 600).mapToObj(i -> "reactive.batch." + i).collect(Collectors.toList());
+
+        ConfigBulkQueryResponse response = client.post().uri("/" + RestConstants.PATH_BULK_QUERY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(keys)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ConfigBulkQueryResponse.class)
+                .returnResult().getResponseBody();
+
+        assertThat(response).isNotNull();
+        assertThat(response.getValues()).hasSize(601);
+        assertThat(response.getValues().get(0).getValue()).isEqualTo("first");
+        assertThat(response.getValues().get(600).getValue()).isEqualTo("last");
+        assertThat(response.getValues().subList(1, 600)).allSatisfy(value -> assertThat(value.getValue()).isNull());
+    }
+
+    @Test
+    void reject_invalid_keys() {
+        ValidationErrorResponse single = client.get().uri("/_invalid")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(ValidationErrorResponse.class)
+                .returnResult().getResponseBody();
+        assertThat(single).isNotNull();
+        assertThat(single.getViolations()).extracting(Violation::getFieldName).containsExactly(RestConstants.PATH_VARIABLE_KEY);
+
+        ValidationErrorResponse bulk = client.post().uri("/" + RestConstants.PATH_BULK_QUERY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of("reactive.valid", "not valid", " "))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(ValidationErrorResponse.class)
+                .returnResult().getResponseBody();
+        assertThat(bulk).isNotNull();
+        assertThat(bulk.getViolations()).extracting(Violation::getFieldName).contains("keys[1]", "keys[2]").doesNotContain("keys[0]");
+
+        client.post().uri("/" + RestConstants.PATH_BULK_QUERY)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.violations[0].fieldName").isEqualTo("keys");
+
+        client.get().uri("/" + RestConstants.PATH_CHANGES)
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        client.get().uri(builder -> builder.path("/reactive.single")
+                        .queryParam(RestConstants.QUERY_PARAM_REFERENCE_TIME, "yesterday")
+                        .build())
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void stream_current_values_followed_by_changes() {
+        final ZonedDateTime now = ZonedDateTime.now();
+        service.set(entry("reactive.stream.a", now.minusHours(1), "A1"));
+        final AtomicInteger received = new AtomicInteger();
+
+        List<ConfigQueryResponse> events = stream("reactive.stream.a", "REACTIVE.STREAM.B")
+                .doOnNext(event -> {
+                    // Both current values have been sent, so every further event is a change
+                    if (received.incrementAndGet() == 2) {
+                        service.set(entry("reactive.stream.b", ZonedDateTime.now().minusSeconds(1), "B1"));
+                    }
+                })
+                .take(3)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertThat(events)
+                .extracting(ConfigQueryResponse::getKey, ConfigQueryResponse::getValue)
+                .containsExactly(
+                        tuple("reactive.stream.a", "A1"),
+                        tuple("reactive.stream.b", null),
+                        tuple("reactive.stream.b", "B1")
+                );
+    }
+
+    @Test
+    void follow_changes_of_several_streams() throws Exception {
+        final ZonedDateTime now = ZonedDateTime.now();
+        service.set(entry("reactive.shared.a", now.minusHours(1), "A1"));
+        service.set(entry("reactive.shared.b", now.minusHours(1), "B1"));
+        final CompletableFuture<List<ConfigQueryResponse>> first = stream("reactive.shared.a")
+                .take(2)
+                .collectList()
+                .toFuture();
+
+        List<ConfigQueryResponse> second = stream("reactive.shared.a", "reactive.shared.b")
+                .doOnNext(event -> {
+                    if ("reactive.shared.b".equals(event.getKey())) {
+                        service.set(entry("reactive.shared.a", ZonedDateTime.now().minusSeconds(1), "A2"));
+                    }
+                })
+                .take(3)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertThat(first.get(10, TimeUnit.SECONDS)).extracting(ConfigQueryResponse::getValue).containsExactly("A1", "A2");
+        assertThat(second).extracting(ConfigQueryResponse::getValue).containsExactly("A1", "B1", "A2");
+    }
+
+}